@@ -17,6 +17,8 @@ import io.github.siyukio.tools.api.ApiException;
 import io.github.siyukio.tools.api.ApiHandler;
 import io.github.siyukio.tools.api.ApiProfiles;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.dto.RawJson;
+import io.github.siyukio.tools.api.limit.ApiAdmission;
 import io.github.siyukio.tools.api.token.Token;
 import io.github.siyukio.tools.api.token.TokenProvider;
 import io.github.siyukio.tools.util.AsyncUtils;
@@ -29,7 +31,6 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
 import org.springframework.web.socket.*;
@@ -70,6 +71,7 @@ public class SpringWebSocketAcpTransport implements AcpAgentTransport {
     private final AtomicBoolean isClosing = new AtomicBoolean(false);
     private final AtomicBoolean isStarted = new AtomicBoolean(false);
     private final TokenProvider tokenProvider;
+    private final ApiAdmission apiAdmission;
     private final Map<String, AcpSessionHandler> acpSessionHandlerMap;
     private final ConcurrentHashMap<String, AuthSession> authSessionMap = new ConcurrentHashMap<>();
     private ScheduledFuture<?> keepAliveScheduler;
@@ -83,13 +85,32 @@ public class SpringWebSocketAcpTransport implements AcpAgentTransport {
         this(DEFAULT_ACP_PATH, tokenProvider, acpSessionHandlerMap);
     }
 
+    /**
+     * Creates a new WebSocketAcpTransport with default path whose tool calls pass the api admission limits.
+     *
+     */
+    public SpringWebSocketAcpTransport(TokenProvider tokenProvider, ApiAdmission apiAdmission, Map<String, AcpSessionHandler> acpSessionHandlerMap) {
+        this(DEFAULT_ACP_PATH, tokenProvider, apiAdmission, acpSessionHandlerMap);
+    }
+
     /**
      * Creates a new WebSocketAcpTransport on the specified port and path.
      *
      * @param path The WebSocket endpoint path (e.g., "/acp")
      */
     public SpringWebSocketAcpTransport(String path, TokenProvider tokenProvider, Map<String, AcpSessionHandler> acpSessionHandlerMap) {
+        this(path, tokenProvider, new ApiAdmission(null), acpSessionHandlerMap);
+    }
+
+    /**
+     * Creates a new WebSocketAcpTransport on the specified path whose tool calls pass the api admission limits.
+     *
+     * @param path         The WebSocket endpoint path (e.g., "/acp")
+     * @param apiAdmission the global and per-api limits shared with http requests
+     */
+    public SpringWebSocketAcpTransport(String path, TokenProvider tokenProvider, ApiAdmission apiAdmission, Map<String, AcpSessionHandler> acpSessionHandlerMap) {
         this.tokenProvider = tokenProvider;
+        this.apiAdmission = apiAdmission;
         this.acpSessionHandlerMap = acpSessionHandlerMap;
         Assert.hasText(path, "Path must not be empty");
         this.path = path;
@@ -601,23 +622,23 @@ public class SpringWebSocketAcpTransport implements AcpAgentTransport {
                             return Mono.error(new AcpProtocolException(HttpStatus.FORBIDDEN.value(), HttpStatus.FORBIDDEN.getReasonPhrase()));
                         }
                     }
-                    if (!CollectionUtils.isEmpty(authorization.scopes())) {
-                        Set<String> scopeSet = new HashSet<>(authorization.scopes());
-
-                        if (!CollectionUtils.isEmpty(principal.scopes())) {
-                            scopeSet.retainAll(principal.scopes());
-                        }
-
-                        if (scopeSet.isEmpty()) {
-                            return Mono.error(new AcpProtocolException(HttpStatus.FORBIDDEN.value(), HttpStatus.FORBIDDEN.getReasonPhrase()));
-                        }
+                    if (!authorization.allowsScopes(principal.scopes())) {
+                        return Mono.error(new AcpProtocolException(HttpStatus.FORBIDDEN.value(), HttpStatus.FORBIDDEN.getReasonPhrase()));
                     }
                 }
 
+                long admitted;
+                try {
+                    admitted = apiAdmission.admit(apiHandler);
+                } catch (ApiException ex) {
+                    return Mono.error(new AcpProtocolException(ex.getCode(), ex.getMessage()));
+                }
+
                 JSONObject requestJson;
                 try {
                     requestJson = apiHandler.requestValidator().validate(request.params());
                 } catch (ApiException ex) {
+                    apiAdmission.cancel(apiHandler);
                     return Mono.error(new AcpProtocolException(ex.getCode(), ex.getMessage()));
                 }
 
@@ -635,12 +656,16 @@ public class SpringWebSocketAcpTransport implements AcpAgentTransport {
                     log.error("CallTool error: {}, {}", request.tool(), throwable.getMessage());
                     ApiException exception = ApiException.getUnknownApiException(throwable);
                     return Mono.error(new AcpProtocolException(exception.getCode(), exception.getMessage()));
+                } finally {
+                    apiAdmission.release(apiHandler, admitted);
                 }
 
                 Class<?> returnType = apiHandler.apiDefinition().realReturnType();
                 JSONObject result;
                 if (returnType == void.class || returnType == Void.class) {
                     result = new JSONObject();
+                } else if (resultValue instanceof RawJson<?> rawJson) {
+                    result = rawJson.toJSONObject();
                 } else {
                     result = XDataUtils.copy(resultValue, JSONObject.class);
                 }
@@ -7,6 +7,7 @@ import com.agentclientprotocol.sdk.agent.transport.SpringWebSocketAcpTransport;
 import io.github.siyukio.application.acp.AcpSessionHandler;
 import io.github.siyukio.tools.acp.annotation.Agent;
 import io.github.siyukio.tools.api.AipHandlerManager;
+import io.github.siyukio.tools.api.limit.ApiAdmission;
 import io.github.siyukio.tools.api.token.TokenProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
@@ -98,7 +99,8 @@ public class SiyukioWebSocketAcpServerAutoConfiguration implements WebSocketConf
         }
 
         TokenProvider tokenProvider = this.applicationContext.getBean(TokenProvider.class);
-        return new SpringWebSocketAcpTransport(tokenProvider, handlerMap);
+        ApiAdmission apiAdmission = this.applicationContext.getBean(ApiAdmission.class);
+        return new SpringWebSocketAcpTransport(tokenProvider, apiAdmission, handlerMap);
     }
 
     @Bean
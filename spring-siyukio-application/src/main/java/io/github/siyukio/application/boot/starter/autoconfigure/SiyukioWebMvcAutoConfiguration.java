@@ -1,20 +1,26 @@
 package io.github.siyukio.application.boot.starter.autoconfigure;
 
-import io.github.siyukio.application.interceptor.ValidateAuthorizationInterceptor;
-import io.github.siyukio.application.interceptor.ValidateParameterInterceptor;
-import io.github.siyukio.application.interceptor.ValidateSignatureInterceptor;
+import io.github.siyukio.application.interceptor.ValidateApiInterceptor;
+import io.github.siyukio.application.metrics.ApiAdmissionMetrics;
 import io.github.siyukio.application.method.*;
 import io.github.siyukio.tools.api.AipHandlerManager;
 import io.github.siyukio.tools.api.ApiMock;
 import io.github.siyukio.tools.api.ApiProfiles;
 import io.github.siyukio.tools.api.ApiProperties;
+import io.github.siyukio.tools.api.definition.ApiDefinition;
 import io.github.siyukio.tools.api.definition.ApiDefinitionManager;
+import io.github.siyukio.tools.api.dto.RawJson;
+import io.github.siyukio.tools.api.limit.ApiAdmission;
+import io.github.siyukio.tools.api.limit.ApiLimiter;
+import io.github.siyukio.tools.api.signature.NonceStore;
 import io.github.siyukio.tools.api.signature.SignatureProvider;
 import io.github.siyukio.tools.api.token.TokenProvider;
 import io.github.siyukio.tools.util.CryptoUtils;
 import io.github.siyukio.tools.util.XDataUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
@@ -47,7 +53,9 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Buddy
@@ -71,6 +79,7 @@ public class SiyukioWebMvcAutoConfiguration extends WebMvcConfigurationSupport {
     public ApiDefinitionManager apiDefinitionManager() {
         ApiDefinitionManager apiDefinitionManager = new ApiDefinitionManager();
         apiDefinitionManager.addAlternative(DeferredResult.class);
+        apiDefinitionManager.addAlternative(RawJson.class);
         return apiDefinitionManager;
     }
 
@@ -122,8 +131,17 @@ public class SiyukioWebMvcAutoConfiguration extends WebMvcConfigurationSupport {
             }
         }
 
+        Map<String, PublicKey> publicKeyRing = new HashMap<>();
+        for (Map.Entry<String, String> entry : apiProperties.getJwt().getPublicKeyRing().entrySet()) {
+            try {
+                publicKeyRing.put(entry.getKey(), CryptoUtils.getPublicKeyFromPem(entry.getValue()));
+            } catch (Exception e) {
+                log.error("GetPublicKeyFromPem error, keyId: {}", entry.getKey(), e);
+            }
+        }
+
         if (!StringUtils.hasText(publicKeyText) && !StringUtils.hasText(privateKeyText)) {
-            log.warn("JWT will use HS256 algorithm. It is recommended to configure spring.siyukio.jwt.public-key and spring.siyukio.jwt.private-key, use ES256 algorithm");
+            log.warn("JWT will use HS256 algorithm. It is recommended to configure spring.siyukio.jwt.public-key and spring.siyukio.jwt.private-key, use EdDSA or ES256 algorithm");
         }
 
         String accessTokenDuration = apiProperties.getJwt().getAccessTokenDuration();
@@ -140,14 +158,33 @@ public class SiyukioWebMvcAutoConfiguration extends WebMvcConfigurationSupport {
 
         log.info("Init TokenProvider, accessTokenDuration:{} refreshTokenDuration:{}", accessTokenDuration, refreshTokenDuration);
 
-        return new TokenProvider(publicKey, privateKey, accessDuration, refreshDuration, password);
+        return new TokenProvider(apiProperties.getJwt().getKeyId(), publicKey, privateKey, publicKeyRing, accessDuration, refreshDuration, password);
     }
 
     @Bean
-    public SignatureProvider signatureProvider(ApiProperties apiProperties) {
+    public SignatureProvider signatureProvider(ApiProperties apiProperties, ObjectProvider<NonceStore> nonceStoreProvider) {
         String salt = apiProperties.getSignature().getSalt();
-        log.info("Init SignatureProvider, salt:{}", salt);
-        return new SignatureProvider(salt);
+        Duration window = Duration.parse(apiProperties.getSignature().getWindow());
+        boolean legacyEnabled = apiProperties.getSignature().getLegacyEnabled();
+        NonceStore nonceStore = nonceStoreProvider.getIfAvailable();
+        log.info("Init SignatureProvider, salt:{}, window:{}, legacyEnabled:{}, nonceStore:{}", salt, window, legacyEnabled,
+                nonceStore == null ? "memory" : nonceStore.getClass().getSimpleName());
+        return new SignatureProvider(salt, window, nonceStore, legacyEnabled);
+    }
+
+    @Bean
+    public ApiAdmission apiAdmission(ApiProperties apiProperties) {
+        ApiProperties.Limit limit = apiProperties.getLimit();
+        ApiDefinition.Limit globalLimit = new ApiDefinition.Limit(limit.getRate(), limit.getBurst(), limit.getMaxConcurrency());
+        ApiLimiter globalLimiter = ApiLimiter.createApiLimiter("global", globalLimit);
+        log.info("Init ApiAdmission, global limit:{}", globalLimiter == null ? "none" : globalLimit);
+        return new ApiAdmission(globalLimiter);
+    }
+
+    @Bean
+    public ApiAdmissionMetrics apiAdmissionMetrics(ApiAdmission apiAdmission, AipHandlerManager aipHandlerManager,
+                                                   ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new ApiAdmissionMetrics(apiAdmission, aipHandlerManager, meterRegistryProvider);
     }
 
     @Override
@@ -180,15 +217,12 @@ public class SiyukioWebMvcAutoConfiguration extends WebMvcConfigurationSupport {
         AipHandlerManager aipHandlerManager = applicationContext.getBean(AipHandlerManager.class);
         SignatureProvider signatureProvider = applicationContext.getBean(SignatureProvider.class);
 
-        registry.addInterceptor(new ValidateSignatureInterceptor(aipHandlerManager, signatureProvider)).addPathPatterns("/**").order(5);
-        log.info("Init ValidateSignatureInterceptor");
+        TokenProvider tokenProvider = applicationContext.getBean(TokenProvider.class);
 
-        registry.addInterceptor(new ValidateParameterInterceptor(aipHandlerManager)).addPathPatterns("/**").order(6);
-        log.info("Init ValidateParameterInterceptor");
+        ApiAdmission apiAdmission = applicationContext.getBean(ApiAdmission.class);
 
-        TokenProvider tokenProvider = applicationContext.getBean(TokenProvider.class);
-        registry.addInterceptor(new ValidateAuthorizationInterceptor(aipHandlerManager, tokenProvider)).addPathPatterns("/**").order(7);
-        log.info("Init ValidateTokenInterceptor");
+        registry.addInterceptor(new ValidateApiInterceptor(aipHandlerManager, signatureProvider, tokenProvider, apiAdmission)).addPathPatterns("/**").order(5);
+        log.info("Init ValidateApiInterceptor");
     }
 
     @Override
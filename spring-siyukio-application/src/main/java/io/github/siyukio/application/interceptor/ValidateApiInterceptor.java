@@ -0,0 +1,284 @@
+package io.github.siyukio.application.interceptor;
+
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.siyukio.application.method.ApiReturnValueHandler;
+import io.github.siyukio.tools.api.AipHandlerManager;
+import io.github.siyukio.tools.api.ApiException;
+import io.github.siyukio.tools.api.ApiHandler;
+import io.github.siyukio.tools.api.ApiProfiles;
+import io.github.siyukio.tools.api.cache.ApiResponseCache;
+import io.github.siyukio.tools.api.cache.CachedResponse;
+import io.github.siyukio.tools.api.constants.ApiConstants;
+import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.limit.ApiAdmission;
+import io.github.siyukio.tools.api.parameter.request.RequestValidator;
+import io.github.siyukio.tools.api.signature.SignatureProvider;
+import io.github.siyukio.tools.api.token.Token;
+import io.github.siyukio.tools.api.token.TokenProvider;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * This interceptor validates incoming api requests in one stage.
+ * <p>
+ * The api handler is resolved once and stored on the request. Checks run from the cheapest up:
+ * admission limits, signature headers, then the access token, and only then is the body read, validated and buffered,
+ * so unsigned or unauthenticated requests never pay for body parsing.
+ * HMAC-SHA256 signatures cover the body, which is hashed while it is read and verified before it is parsed.
+ * Apis with a response cache are answered from it here, without invoking the api.
+ * Access tokens are read from the Authorization header, or accessToken and token in the query string.
+ *
+ * @author Buddy
+ */
+@Slf4j
+public final class ValidateApiInterceptor implements HandlerInterceptor {
+
+    private final AipHandlerManager aipHandlerManager;
+
+    private final SignatureProvider signatureProvider;
+
+    private final TokenProvider tokenProvider;
+
+    private final ApiAdmission apiAdmission;
+
+    public ValidateApiInterceptor(AipHandlerManager aipHandlerManager, SignatureProvider signatureProvider, TokenProvider tokenProvider,
+                                  ApiAdmission apiAdmission) {
+        this.aipHandlerManager = aipHandlerManager;
+        this.signatureProvider = signatureProvider;
+        this.tokenProvider = tokenProvider;
+        this.apiAdmission = apiAdmission;
+    }
+
+    private String getAccessToken(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null) {
+            Object attr = request.getAttribute(HttpHeaders.AUTHORIZATION);
+            if (attr != null) {
+                authorization = attr.toString();
+            }
+        }
+        if (!StringUtils.hasText(authorization)) {
+            String query = request.getQueryString();
+            if (StringUtils.hasText(query)) {
+                authorization = request.getParameter("accessToken");
+                if (!StringUtils.hasText(authorization)) {
+                    authorization = request.getParameter("token");
+                }
+            }
+        }
+        return authorization;
+    }
+
+    private long getTimestamp(HttpServletRequest request) {
+        String ts = request.getHeader(SignatureProvider.HEADER_TIMESTAMP);
+        try {
+            return Long.parseLong(ts);
+        } catch (NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    /**
+     * Legacy signatures are validated here. For HMAC-SHA256 only the headers are checked
+     * and a digest is returned for the body to stream through.
+     */
+    private MessageDigest validateSignature(HttpServletRequest request) {
+        long timestamp = this.getTimestamp(request);
+        String nonce = request.getHeader(SignatureProvider.HEADER_NONCE);
+        String signature = request.getHeader(SignatureProvider.HEADER_SIGNATURE);
+
+        if (!this.signatureProvider.isEnabled()) {
+            return null;
+        }
+        if (SignatureProvider.isHmacSha256(request.getHeader(SignatureProvider.HEADER_ALGORITHM))) {
+            this.signatureProvider.checkHeaders(timestamp, nonce, signature);
+            return SignatureProvider.newBodyDigest();
+        }
+        this.signatureProvider.validate(timestamp, nonce, signature);
+        return null;
+    }
+
+    private void validateBodySignature(HttpServletRequest request, MessageDigest bodyDigest) {
+        long timestamp = this.getTimestamp(request);
+        String nonce = request.getHeader(SignatureProvider.HEADER_NONCE);
+        String signature = request.getHeader(SignatureProvider.HEADER_SIGNATURE);
+
+        this.signatureProvider.validate(request.getMethod(), request.getRequestURI(), timestamp, nonce, bodyDigest, signature);
+    }
+
+    private Token validateAuthorization(HttpServletRequest request, ApiDefinition.Authorization authorization) {
+        Token token = null;
+        String accessToken = this.getAccessToken(request);
+        if (StringUtils.hasText(accessToken)) {
+            token = this.tokenProvider.verifyToken(accessToken);
+        }
+
+        if (token == null || token.principal() == null) {
+            throw new ApiException(HttpStatus.UNAUTHORIZED);
+        }
+
+        if (token.type() == null || token.type().equals(Token.Type.REFRESH)) {
+            throw new ApiException(HttpStatus.FORBIDDEN);
+        }
+
+        Token.Principal principal = token.principal();
+        if (!authorization.type().equals(principal.type())) {
+            throw new ApiException(HttpStatus.FORBIDDEN);
+        }
+
+        if (StringUtils.hasText(authorization.actorType())) {
+            Token.Principal actor = token.actor();
+            if (actor == null || !authorization.actorType().equals(actor.type())) {
+                throw new ApiException(HttpStatus.FORBIDDEN);
+            }
+        }
+
+        if (!authorization.allowsScopes(principal.scopes())) {
+            throw new ApiException(HttpStatus.FORBIDDEN);
+        }
+        return token;
+    }
+
+    private void validateParameter(HttpServletRequest request, ApiHandler apiHandler, MessageDigest bodyDigest) throws Exception {
+        ServletServerHttpRequest inputMessage = new ServletServerHttpRequest(request);
+
+        byte[] requestBody;
+        if (bodyDigest == null) {
+            requestBody = inputMessage.getBody().readAllBytes();
+        } else {
+            //Hash the raw bytes as they are read and check the signature before parsing.
+            try (DigestInputStream digestInputStream = new DigestInputStream(inputMessage.getBody(), bodyDigest)) {
+                requestBody = digestInputStream.readAllBytes();
+            }
+            this.validateBodySignature(request, bodyDigest);
+        }
+        MediaType contentType = inputMessage.getHeaders().getContentType();
+        if (contentType != null && contentType.equalsTypeAndSubtype(MediaType.APPLICATION_FORM_URLENCODED)) {
+            String requestBodyText = new String(requestBody, StandardCharsets.UTF_8);
+            log.warn("error path:{}", apiHandler.apiDefinition().paths());
+            log.warn("error Content-Type:{}", MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+            log.warn("error requestBody:{}", requestBodyText);
+            requestBodyText = URLDecoder.decode(requestBodyText, StandardCharsets.UTF_8);
+            log.warn("error decode requestBody:{}", requestBodyText);
+            //Compatible with application/x-www-form-urlencoded.
+            if (requestBodyText.endsWith("=")) {
+                //{}=
+                requestBodyText = requestBodyText.substring(0, requestBodyText.length() - 1);
+            }
+            requestBody = requestBodyText.getBytes(StandardCharsets.UTF_8);
+        }
+        //Parse, validate and buffer in one pass; the argument resolver binds the tokens.
+        TokenBuffer requestBodyTokens;
+        try {
+            requestBodyTokens = RequestValidator.readBody(apiHandler.requestValidator(), requestBody);
+        } catch (ApiException ex) {
+            log.debug("request error:{},{}", ex.getCode(), ex.getMessage());
+            log.debug("request error content type:{}", request.getContentType());
+            log.debug("request error body:{}", new String(requestBody, StandardCharsets.UTF_8));
+            throw ex;
+        }
+
+        request.setAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY, requestBody);
+        request.setAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_TOKENS, requestBodyTokens);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        DispatcherType dispatcherType = request.getDispatcherType();
+        if (dispatcherType == DispatcherType.ASYNC) {
+            //If the type is ASYNC, the current validation will be skipped.
+            return true;
+        }
+
+        if (!(handler instanceof HandlerMethod)) {
+            //If it is not an API call, the current validation will be skipped.
+            return true;
+        }
+
+        ApiHandler apiHandler = this.aipHandlerManager.resolveApiHandler(request.getRequestURI());
+        if (apiHandler == null) {
+            return true;
+        }
+        request.setAttribute(ApiConstants.ATTRIBUTE_API_HANDLER, apiHandler);
+
+        //Shed load before any other work, the permit is returned in afterCompletion.
+        long admitted = this.apiAdmission.admit(apiHandler);
+        CachedResponse cachedResponse;
+        try {
+            this.validate(request, apiHandler);
+            cachedResponse = this.getCachedResponse(request, apiHandler);
+        } catch (Exception ex) {
+            this.apiAdmission.cancel(apiHandler);
+            throw ex;
+        }
+        if (cachedResponse != null) {
+            //The api is not invoked, so the hit is not a latency sample.
+            this.apiAdmission.cancel(apiHandler);
+            ApiReturnValueHandler.writeCachedResponse(request, response, cachedResponse);
+            return false;
+        }
+        request.setAttribute(ApiConstants.ATTRIBUTE_ADMITTED, admitted);
+        return true;
+    }
+
+    private CachedResponse getCachedResponse(HttpServletRequest request, ApiHandler apiHandler) {
+        ApiResponseCache responseCache = apiHandler.responseCache();
+        if (responseCache == null) {
+            return null;
+        }
+        Token token = (Token) request.getAttribute(ApiConstants.ATTRIBUTE_TOKEN);
+        TokenBuffer requestBodyTokens = (TokenBuffer) request.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_TOKENS);
+        ApiResponseCache.Key key = responseCache.createKey(ApiProfiles.getApiPath(request.getRequestURI()), token, requestBodyTokens);
+        CachedResponse cachedResponse = responseCache.get(key);
+        if (cachedResponse == null) {
+            //The return value handler stores the response under this key.
+            request.setAttribute(ApiConstants.ATTRIBUTE_RESPONSE_CACHE_KEY, key);
+        }
+        return cachedResponse;
+    }
+
+    private void validate(HttpServletRequest request, ApiHandler apiHandler) throws Exception {
+        ApiDefinition apiDefinition = apiHandler.apiDefinition();
+        MessageDigest bodyDigest = null;
+        if (apiDefinition.signature()) {
+            bodyDigest = this.validateSignature(request);
+        }
+
+        ApiDefinition.Authorization authorization = apiDefinition.authorization();
+        if (authorization != null) {
+            Token token = this.validateAuthorization(request, authorization);
+            request.setAttribute(ApiConstants.ATTRIBUTE_TOKEN, token);
+        }
+
+        this.validateParameter(request, apiHandler, bodyDigest);
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        //Async requests complete on the ASYNC dispatch, the attributes are still there.
+        if (request.getAttribute(ApiConstants.ATTRIBUTE_ADMITTED) instanceof Long admitted
+                && request.getAttribute(ApiConstants.ATTRIBUTE_API_HANDLER) instanceof ApiHandler apiHandler) {
+            request.removeAttribute(ApiConstants.ATTRIBUTE_ADMITTED);
+            this.apiAdmission.release(apiHandler, admitted);
+        }
+    }
+}
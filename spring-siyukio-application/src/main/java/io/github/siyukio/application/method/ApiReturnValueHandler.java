@@ -2,8 +2,10 @@ package io.github.siyukio.application.method;
 
 import io.github.siyukio.tools.api.AipHandlerManager;
 import io.github.siyukio.tools.api.ApiHandler;
-import io.github.siyukio.tools.api.ApiProfiles;
-import io.github.siyukio.tools.util.XDataUtils;
+import io.github.siyukio.tools.api.cache.ApiResponseCache;
+import io.github.siyukio.tools.api.cache.CachedResponse;
+import io.github.siyukio.tools.api.constants.ApiConstants;
+import io.github.siyukio.tools.api.dto.RawJson;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.json.JSONObject;
@@ -16,6 +18,8 @@ import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
 import org.springframework.web.method.support.ModelAndViewContainer;
 import org.springframework.web.servlet.HandlerMapping;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
@@ -27,6 +31,8 @@ import java.util.Set;
  */
 public final class ApiReturnValueHandler implements HandlerMethodReturnValueHandler {
 
+    private final static byte[] EMPTY_JSON = "{}".getBytes(StandardCharsets.UTF_8);
+
     private final AipHandlerManager aipHandlerManager;
 
     //RequestResponseBodyMethodProcessor
@@ -49,8 +55,35 @@ public final class ApiReturnValueHandler implements HandlerMethodReturnValueHand
             this.handlerMethodReturnValueHandler.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
             return;
         }
-        String apiPath = ApiProfiles.getApiPath(httpServletRequest.getRequestURI());
-        ApiHandler apiHandler = this.aipHandlerManager.getApiHandler(apiPath);
+        if (httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_RESPONSE_CACHE_KEY) instanceof ApiResponseCache.Key key
+                && httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_API_HANDLER) instanceof ApiHandler cachedApiHandler
+                && cachedApiHandler.apiDefinition().realReturnType() != String.class) {
+            //Serialize once into the cache, hits are written by the interceptor.
+            HttpServletResponse httpServletResponse = webRequest.getNativeResponse(HttpServletResponse.class);
+            assert httpServletResponse != null;
+            mavContainer.setRequestHandled(true);
+            byte[] body = this.toBytes(returnValue, cachedApiHandler);
+            CachedResponse cachedResponse = cachedApiHandler.responseCache().put(key, body);
+            writeCachedResponse(httpServletRequest, httpServletResponse, cachedResponse);
+            return;
+        }
+        if (returnValue instanceof RawJson<?> rawJson) {
+            // already rendered and limited to the response schema, write the bytes as they are
+            HttpServletResponse httpServletResponse = webRequest.getNativeResponse(HttpServletResponse.class);
+            assert httpServletResponse != null;
+            mavContainer.setRequestHandled(true);
+            httpServletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            httpServletResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            httpServletResponse.setContentLength(rawJson.body().length);
+            httpServletResponse.getOutputStream().write(rawJson.body());
+            return;
+        }
+        ApiHandler apiHandler;
+        if (httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_API_HANDLER) instanceof ApiHandler resolvedApiHandler) {
+            apiHandler = resolvedApiHandler;
+        } else {
+            apiHandler = this.aipHandlerManager.resolveApiHandler(httpServletRequest.getRequestURI());
+        }
         if (apiHandler == null) {
             if (returnValue instanceof JSONObject) {
                 MediaType mediaType = new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8);
@@ -98,10 +131,47 @@ public final class ApiReturnValueHandler implements HandlerMethodReturnValueHand
             return;
         }
 
-        JSONObject resultJson = XDataUtils.copy(returnValue, JSONObject.class);
+        if (returnValue == null) {
+            this.handlerMethodReturnValueHandler.handleReturnValue(new JSONObject(), returnType, mavContainer, webRequest);
+            return;
+        }
+
+        //Serialize only the declared properties into a buffer first, so a failing getter still gets an error response.
+        byte[] body = this.toBytes(returnValue, apiHandler);
+        HttpServletResponse httpServletResponse = webRequest.getNativeResponse(HttpServletResponse.class);
+        assert httpServletResponse != null;
+        mavContainer.setRequestHandled(true);
+        httpServletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        httpServletResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        httpServletResponse.setContentLength(body.length);
+        httpServletResponse.getOutputStream().write(body);
+    }
+
+    private byte[] toBytes(Object returnValue, ApiHandler apiHandler) throws IOException {
+        if (returnValue instanceof RawJson<?> rawJson) {
+            return rawJson.body();
+        }
+        if (returnValue == null || apiHandler.apiDefinition().returnType() == void.class || apiHandler.apiDefinition().realReturnType() == Void.class) {
+            return EMPTY_JSON;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        apiHandler.responseFilter().write(returnValue, outputStream);
+        return outputStream.toByteArray();
+    }
 
-        apiHandler.responseFilter().filter(resultJson);
-        this.handlerMethodReturnValueHandler.handleReturnValue(resultJson, returnType, mavContainer, webRequest);
+    /**
+     * Writes a cached response with its ETag, or 304 when the client already has it.
+     */
+    public static void writeCachedResponse(HttpServletRequest request, HttpServletResponse response, CachedResponse cachedResponse) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, cachedResponse.etag());
+        if (cachedResponse.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(cachedResponse.body().length);
+        response.getOutputStream().write(cachedResponse.body());
     }
 
 }
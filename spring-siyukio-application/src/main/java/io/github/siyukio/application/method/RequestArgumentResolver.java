@@ -2,6 +2,8 @@ package io.github.siyukio.application.method;
 
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.siyukio.tools.api.ApiHandler;
 import io.github.siyukio.tools.api.ApiRequest;
 import io.github.siyukio.tools.api.constants.ApiConstants;
 import io.github.siyukio.tools.api.definition.ApiDefinitionManager;
@@ -21,6 +23,7 @@ import org.springframework.web.method.support.ModelAndViewContainer;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -61,7 +64,7 @@ public final class RequestArgumentResolver implements HandlerMethodArgumentResol
             headerMap.put(headerName, httpServletRequest.getHeader(headerName));
         }
 
-        String body = String.valueOf(httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY));
+        String body = this.getRequestBodyText(httpServletRequest);
         String ip = httpServletRequest.getHeader("X-FORWARDED-FOR");
         if (!StringUtils.hasText(ip)) {
             ip = httpServletRequest.getRemoteAddr();
@@ -81,11 +84,19 @@ public final class RequestArgumentResolver implements HandlerMethodArgumentResol
         return new ApiRequest(headerMap, simpleParameterMap, ip, body, userAgent);
     }
 
+    private String getRequestBodyText(HttpServletRequest httpServletRequest) {
+        Object obj = httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY);
+        if (obj instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return String.valueOf(obj);
+    }
+
     private String getRequestBody(HttpServletRequest httpServletRequest) throws IOException {
         Object obj = httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY);
         String requestBody = null;
         if (obj != null) {
-            requestBody = String.valueOf(obj);
+            requestBody = this.getRequestBodyText(httpServletRequest);
         }
         if (!StringUtils.hasText(requestBody)) {
             ServletServerHttpRequest inputMessage = new ServletServerHttpRequest(httpServletRequest);
@@ -96,6 +107,11 @@ public final class RequestArgumentResolver implements HandlerMethodArgumentResol
 
     private JSONObject getJSONObject(HttpServletRequest httpServletRequest) throws IOException {
         Object obj = httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_JSON);
+        if (obj == null && httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_TOKENS) instanceof TokenBuffer tokenBuffer) {
+            //Only built for handlers that take the body as a JSONObject.
+            obj = XDataUtils.read(tokenBuffer, JSONObject.class);
+            httpServletRequest.setAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_JSON, obj);
+        }
         if (obj != null) {
             if (obj instanceof JSONObject jsonObject) {
                 return jsonObject;
@@ -112,10 +128,22 @@ public final class RequestArgumentResolver implements HandlerMethodArgumentResol
         }
     }
 
+    private JavaType getBodyType(MethodParameter parameter, HttpServletRequest httpServletRequest) {
+        if (httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_API_HANDLER) instanceof ApiHandler apiHandler
+                && apiHandler.apiInvoker().getMethod().equals(parameter.getMethod())) {
+            //Resolved once when the api was registered.
+            return apiHandler.apiInvoker().getBodyType(parameter.getParameterIndex());
+        }
+        Type type = parameter.getGenericParameterType();
+        return TypeFactory.defaultInstance().constructType(type);
+    }
+
     private Object getRequestBodyObject(MethodParameter parameter, HttpServletRequest httpServletRequest) throws IOException {
+        JavaType javaType = this.getBodyType(parameter, httpServletRequest);
+        if (httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_TOKENS) instanceof TokenBuffer tokenBuffer) {
+            return XDataUtils.read(tokenBuffer, javaType);
+        }
         JSONObject requestBodyJson = this.getJSONObject(httpServletRequest);
-        Type type = parameter.getGenericParameterType();
-        JavaType javaType = TypeFactory.defaultInstance().constructType(type);
         return XDataUtils.copy(requestBodyJson, javaType);
     }
 
@@ -131,9 +159,11 @@ public final class RequestArgumentResolver implements HandlerMethodArgumentResol
         } else if (parameter.hasParameterAnnotation(RequestBody.class)) {
             return this.getRequestBodyObject(parameter, httpServletRequest);
         } else {
+            JavaType javaType = this.getBodyType(parameter, httpServletRequest);
+            if (httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_TOKENS) instanceof TokenBuffer tokenBuffer) {
+                return XDataUtils.read(tokenBuffer, javaType);
+            }
             Object requestBodyJson = httpServletRequest.getAttribute(ApiConstants.ATTRIBUTE_REQUEST_BODY_JSON);
-            Type type = parameter.getGenericParameterType();
-            JavaType javaType = TypeFactory.defaultInstance().constructType(type);
             return XDataUtils.copy(requestBodyJson, javaType);
         }
     }
@@ -0,0 +1,84 @@
+package io.github.siyukio.application.metrics;
+
+import io.github.siyukio.tools.api.AipHandlerManager;
+import io.github.siyukio.tools.api.ApiHandler;
+import io.github.siyukio.tools.api.limit.ApiAdmission;
+import io.github.siyukio.tools.api.limit.ApiLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Exports admission metrics of the global and per-api limiters.
+ * <p>
+ * Apis are registered after the controllers are scanned, so meters are bound once all singletons exist.
+ * Rejected requests are not queued, so in-flight requests are the queue depth.
+ *
+ * @author Buddy
+ */
+@Slf4j
+public class ApiAdmissionMetrics implements SmartInitializingSingleton {
+
+    private final static String TAG_API = "api";
+
+    private final static String GLOBAL = "global";
+
+    private final ApiAdmission apiAdmission;
+
+    private final AipHandlerManager aipHandlerManager;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    public ApiAdmissionMetrics(ApiAdmission apiAdmission, AipHandlerManager aipHandlerManager, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.apiAdmission = apiAdmission;
+        this.aipHandlerManager = aipHandlerManager;
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        MeterRegistry meterRegistry = this.meterRegistryProvider.getIfAvailable();
+        if (meterRegistry == null) {
+            return;
+        }
+        if (this.apiAdmission.getGlobalLimiter() != null) {
+            this.bind(meterRegistry, GLOBAL, this.apiAdmission.getGlobalLimiter());
+        }
+        //An api with several paths shares one limiter.
+        Map<ApiLimiter, Boolean> boundMap = new IdentityHashMap<>();
+        for (ApiHandler apiHandler : this.aipHandlerManager.getApiHandlerMap().values()) {
+            ApiLimiter apiLimiter = apiHandler.apiLimiter();
+            if (apiLimiter != null && boundMap.put(apiLimiter, true) == null) {
+                this.bind(meterRegistry, apiLimiter.getName(), apiLimiter);
+            }
+        }
+        log.info("Init ApiAdmissionMetrics, limiters:{}", boundMap.size() + (this.apiAdmission.getGlobalLimiter() == null ? 0 : 1));
+    }
+
+    private void bind(MeterRegistry meterRegistry, String api, ApiLimiter apiLimiter) {
+        FunctionCounter.builder("siyukio.api.rejected", apiLimiter, ApiLimiter::getRateRejected)
+                .description("Requests rejected by the rate limit")
+                .tags(TAG_API, api, "reason", "rate")
+                .register(meterRegistry);
+        FunctionCounter.builder("siyukio.api.rejected", apiLimiter, ApiLimiter::getConcurrencyRejected)
+                .description("Requests rejected by the concurrency limit")
+                .tags(TAG_API, api, "reason", "concurrency")
+                .register(meterRegistry);
+        if (apiLimiter.hasConcurrencyLimit()) {
+            Gauge.builder("siyukio.api.inflight", apiLimiter, ApiLimiter::getInflight)
+                    .description("Admitted requests in flight")
+                    .tags(TAG_API, api)
+                    .register(meterRegistry);
+            Gauge.builder("siyukio.api.concurrency.limit", apiLimiter, ApiLimiter::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tags(TAG_API, api)
+                    .register(meterRegistry);
+        }
+    }
+}
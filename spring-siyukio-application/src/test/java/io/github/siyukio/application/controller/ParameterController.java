@@ -67,5 +67,12 @@ public class ParameterController {
                 .total(1).build();
     }
 
+    @ApiMapping(path = "/getter/test")
+    public GetterResponse testGetter(StringRequest stringRequest) {
+        return GetterResponse.builder()
+                .name(stringRequest.required())
+                .secret("secret")
+                .build();
+    }
 
 }
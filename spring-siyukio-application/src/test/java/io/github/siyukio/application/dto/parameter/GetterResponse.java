@@ -0,0 +1,28 @@
+package io.github.siyukio.application.dto.parameter;
+
+import io.github.siyukio.tools.api.annotation.ApiParameter;
+import lombok.Builder;
+
+/**
+ * Response whose secret getter fails on demand, to test partially serialized responses.
+ *
+ * @author Buddy
+ */
+@Builder
+public record GetterResponse(
+
+        @ApiParameter
+        String name,
+
+        @ApiParameter
+        String secret
+) {
+
+    @Override
+    public String secret() {
+        if ("fail".equals(this.name)) {
+            throw new IllegalStateException("secret getter failed");
+        }
+        return this.secret;
+    }
+}
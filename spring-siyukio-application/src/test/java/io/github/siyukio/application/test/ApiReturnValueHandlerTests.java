@@ -0,0 +1,81 @@
+package io.github.siyukio.application.test;
+
+import io.github.siyukio.application.dto.parameter.GetterResponse;
+import io.github.siyukio.application.method.ApiReturnValueHandler;
+import io.github.siyukio.tools.api.AipHandlerManager;
+import io.github.siyukio.tools.api.ApiHandler;
+import io.github.siyukio.tools.api.cache.CachedResponse;
+import io.github.siyukio.tools.api.constants.ApiConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+class ApiReturnValueHandlerTests {
+
+    @Autowired
+    private AipHandlerManager aipHandlerManager;
+
+    private void handle(Object returnValue, MockHttpServletResponse response) throws Exception {
+        ApiHandler apiHandler = this.aipHandlerManager.resolveApiHandler("/getter/test");
+        assertNotNull(apiHandler);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/getter/test");
+        request.setAttribute(ApiConstants.ATTRIBUTE_API_HANDLER, apiHandler);
+        ApiReturnValueHandler apiReturnValueHandler = new ApiReturnValueHandler(this.aipHandlerManager, null);
+        apiReturnValueHandler.handleReturnValue(returnValue, null, new ModelAndViewContainer(),
+                new ServletWebRequest(request, response));
+    }
+
+    @Test
+    void testWriteFilteredResponse() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.handle(GetterResponse.builder().name("ok").secret("s").build(), response);
+
+        JSONObject resultJson = new JSONObject(response.getContentAsString());
+        log.info("{}", resultJson);
+        assertEquals("ok", resultJson.getString("name"));
+        assertEquals("s", resultJson.getString("secret"));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+    }
+
+    @Test
+    void testFailingGetterWritesNothing() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThrows(Exception.class, () -> this.handle(GetterResponse.builder().name("fail").secret("s").build(), response));
+
+        // nothing was written, so the error handler can still send a proper error response
+        assertFalse(response.isCommitted());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testWriteCachedResponse() throws Exception {
+        CachedResponse cachedResponse = new CachedResponse("{\"name\":\"ok\"}".getBytes(StandardCharsets.UTF_8), "\"abc\"");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/getter/test");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ApiReturnValueHandler.writeCachedResponse(request, response, cachedResponse);
+        assertEquals(200, response.getStatus());
+        assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+        assertEquals("{\"name\":\"ok\"}", response.getContentAsString());
+
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc\"");
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        ApiReturnValueHandler.writeCachedResponse(request, notModified, cachedResponse);
+        assertEquals(304, notModified.getStatus());
+        assertEquals("\"abc\"", notModified.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, notModified.getContentAsByteArray().length);
+    }
+}
@@ -14,6 +14,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import java.time.Duration;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 @Slf4j
 @SpringBootTest
 class AuthorizationControllerTests {
@@ -75,6 +77,19 @@ class AuthorizationControllerTests {
         log.info("{}", token);
     }
 
+    @Test
+    void testRevokeToken() {
+        Token token = new Token(new Token.UserPrincipal("123", "Bugee"));
+        String auth = this.tokenProvider.createAuthorization(token);
+        Token verifiedToken = this.tokenProvider.verifyToken(auth);
+        assertNotNull(verifiedToken);
+        assertSame(verifiedToken, this.tokenProvider.verifyToken(auth));
+
+        this.tokenProvider.revoke(verifiedToken.jwtId());
+        assertNull(this.tokenProvider.verifyToken(auth));
+        log.info("revoked: {}", verifiedToken.jwtId());
+    }
+
     @Test
     void testCreateAuthorization() {
         CreateAuthorizationRequest createAuthorizationRequest = CreateAuthorizationRequest.builder()
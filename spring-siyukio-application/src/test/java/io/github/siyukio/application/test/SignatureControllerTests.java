@@ -1,6 +1,7 @@
 package io.github.siyukio.application.test;
 
 import io.github.siyukio.application.dto.signature.SignatureRequest;
+import io.github.siyukio.tools.api.ApiException;
 import io.github.siyukio.tools.api.ApiMock;
 import io.github.siyukio.tools.api.signature.SignatureProvider;
 import io.github.siyukio.tools.util.XDataUtils;
@@ -10,8 +11,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 @Slf4j
 @SpringBootTest
 class SignatureControllerTests {
@@ -41,4 +46,25 @@ class SignatureControllerTests {
         log.info("{}", resultJson);
     }
 
+    @Test
+    void testHmacSignature() {
+        byte[] body = "{\"bool\":true,\"num\":6,\"text\":\"hello\"}".getBytes(StandardCharsets.UTF_8);
+        long timestamp = System.currentTimeMillis();
+        String nonce = UUID.randomUUID().toString();
+        String signature = this.signatureProvider.createSignature("POST", "/signature/test", timestamp, nonce,
+                SignatureProvider.newBodyDigest().digest(body));
+
+        MessageDigest tamperedDigest = SignatureProvider.newBodyDigest();
+        tamperedDigest.update("{\"bool\":false}".getBytes(StandardCharsets.UTF_8));
+        assertThrows(ApiException.class, () -> this.signatureProvider.validate("POST", "/signature/test", timestamp, nonce, tamperedDigest, signature));
+
+        MessageDigest bodyDigest = SignatureProvider.newBodyDigest();
+        bodyDigest.update(body);
+        this.signatureProvider.validate("POST", "/signature/test", timestamp, nonce, bodyDigest, signature);
+
+        MessageDigest replayDigest = SignatureProvider.newBodyDigest();
+        replayDigest.update(body);
+        assertThrows(ApiException.class, () -> this.signatureProvider.validate("POST", "/signature/test", timestamp, nonce, replayDigest, signature));
+    }
+
 }
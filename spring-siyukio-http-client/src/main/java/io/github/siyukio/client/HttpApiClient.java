@@ -1,6 +1,7 @@
 package io.github.siyukio.client;
 
 import io.github.siyukio.tools.api.annotation.client.ApiClient;
+import io.github.siyukio.tools.api.signature.SignatureProvider;
 import org.json.JSONObject;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
@@ -9,6 +10,7 @@ import org.springframework.web.service.annotation.GetExchange;
 import org.springframework.web.service.annotation.PostExchange;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -24,4 +26,13 @@ public interface HttpApiClient {
 
     @PostExchange
     JSONObject post(URI uri, @RequestHeader Map<String, String> headerMap, @RequestBody JSONObject requestBody);
+
+    /**
+     * Post with an HMAC-SHA256 signature over the body as sent, signed with the application signature salt.
+     */
+    default JSONObject signedPost(URI uri, Map<String, String> headerMap, JSONObject requestBody) {
+        Map<String, String> signedHeaderMap = new HashMap<>(headerMap);
+        signedHeaderMap.put(SignatureProvider.HEADER_ALGORITHM, SignatureProvider.ALGORITHM_HMAC_SHA256);
+        return this.post(uri, signedHeaderMap, requestBody);
+    }
 }
@@ -5,6 +5,7 @@ import io.github.siyukio.tools.api.ApiException;
 import io.github.siyukio.tools.api.ApiHandler;
 import io.github.siyukio.tools.api.ApiRequest;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.dto.RawJson;
 import io.github.siyukio.tools.api.token.Token;
 import io.github.siyukio.tools.api.token.TokenProvider;
 import io.github.siyukio.tools.util.XDataUtils;
@@ -122,6 +123,8 @@ public class LocalBeforeRequestInterceptor implements ClientHttpRequestIntercept
         String result;
         if (returnType == void.class || returnType == Void.class) {
             result = "{}";
+        } else if (resultValue instanceof RawJson<?> rawJson) {
+            result = rawJson.asString();
         } else {
             result = XDataUtils.toJSONString(resultValue);
         }
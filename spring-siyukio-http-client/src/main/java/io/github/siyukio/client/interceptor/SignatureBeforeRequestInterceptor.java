@@ -0,0 +1,51 @@
+package io.github.siyukio.client.interceptor;
+
+import io.github.siyukio.tools.api.signature.SignatureProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Request interceptor that signs requests with HMAC-SHA256 over the method, path, timestamp, nonce
+ * and the exact body bytes being sent.
+ * <p>
+ * Every request is signed when the client enables signatures. Otherwise only requests that set the
+ * signature-algorithm header and carry no signature yet are signed, so callers of a generic client can opt in per call.
+ *
+ * @author Bugee
+ */
+public class SignatureBeforeRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final SignatureProvider signatureProvider;
+
+    private final boolean signAll;
+
+    public SignatureBeforeRequestInterceptor(SignatureProvider signatureProvider, boolean signAll) {
+        this.signatureProvider = signatureProvider;
+        this.signAll = signAll;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        boolean requested = SignatureProvider.isHmacSha256(headers.getFirst(SignatureProvider.HEADER_ALGORITHM));
+        if ((this.signAll || requested) && !StringUtils.hasText(headers.getFirst(SignatureProvider.HEADER_SIGNATURE))) {
+            long timestamp = System.currentTimeMillis();
+            String nonce = UUID.randomUUID().toString();
+            byte[] bodyDigest = SignatureProvider.newBodyDigest().digest(body);
+            String signature = this.signatureProvider.createSignature(request.getMethod().name(), request.getURI().getRawPath(),
+                    timestamp, nonce, bodyDigest);
+            headers.set(SignatureProvider.HEADER_ALGORITHM, SignatureProvider.ALGORITHM_HMAC_SHA256);
+            headers.set(SignatureProvider.HEADER_TIMESTAMP, String.valueOf(timestamp));
+            headers.set(SignatureProvider.HEADER_NONCE, nonce);
+            headers.set(SignatureProvider.HEADER_SIGNATURE, signature);
+        }
+        return execution.execute(request, body);
+    }
+}
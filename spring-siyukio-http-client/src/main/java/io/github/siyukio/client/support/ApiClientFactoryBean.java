@@ -4,6 +4,7 @@ import com.github.benmanes.caffeine.cache.Cache;
 import io.github.siyukio.client.interceptor.*;
 import io.github.siyukio.tools.api.AipHandlerManager;
 import io.github.siyukio.tools.api.annotation.client.ApiClient;
+import io.github.siyukio.tools.api.signature.SignatureProvider;
 import io.github.siyukio.tools.api.token.TokenProvider;
 import io.github.siyukio.tools.cache.annotation.CacheConfig;
 import io.github.siyukio.tools.cache.definition.CacheDefinition;
@@ -53,6 +54,8 @@ public class ApiClientFactoryBean implements FactoryBean<Object>, InitializingBe
 
     private TokenProvider tokenProvider;
 
+    private SignatureProvider signatureProvider;
+
     @Setter
     @Getter
     private boolean lazyInit = false;
@@ -118,14 +121,19 @@ public class ApiClientFactoryBean implements FactoryBean<Object>, InitializingBe
 
         Cache<String, String> cache = null;
         CacheConfig cacheConfig = apiClient.cacheConfig();
-        if (cacheConfig.maximumSize() > 0) {
+        if (cacheConfig.maximumSize() > 0 || cacheConfig.maximumWeight() > 0) {
             CacheDefinition cacheDefinition = new CacheDefinition(
                     cacheConfig.maximumSize(),
+                    cacheConfig.maximumWeight(),
                     cacheConfig.softValues(),
                     cacheConfig.expireUnit(),
                     cacheConfig.expireAfterAccess(),
-                    cacheConfig.expireAfterWrite());
-            cache = CacheUtils.createCache(cacheDefinition);
+                    cacheConfig.expireAfterWrite(),
+                    0,
+                    cacheConfig.compact(),
+                    0,
+                    "");
+            cache = CacheUtils.createCache(cacheDefinition, (key, value) -> CacheUtils.sizeOf(key) + CacheUtils.sizeOf(value));
         }
 
         if (cache != null) {
@@ -140,6 +148,12 @@ public class ApiClientFactoryBean implements FactoryBean<Object>, InitializingBe
             restClientBuilder.requestInterceptor(new CacheBeforeRequestInterceptor(cache));
         }
 
+        if (this.signatureProvider != null && this.signatureProvider.isEnabled()) {
+            restClientBuilder.requestInterceptor(new SignatureBeforeRequestInterceptor(this.signatureProvider, apiClient.signature()));
+        } else if (apiClient.signature()) {
+            log.warn("Api client signature is enabled but no signature salt is configured: {}", beanClass.getSimpleName());
+        }
+
         if (apiClient.loadBalance()) {
             restClientBuilder.requestInterceptor(new LoadBalanceBeforeRequestInterceptor());
         }
@@ -177,5 +191,7 @@ public class ApiClientFactoryBean implements FactoryBean<Object>, InitializingBe
         this.aipHandlerManager = aipHandlerManagerProvider.getIfAvailable();
         ObjectProvider<TokenProvider> tokenProviderProvider = applicationContext.getBeanProvider(TokenProvider.class);
         this.tokenProvider = tokenProviderProvider.getIfAvailable();
+        ObjectProvider<SignatureProvider> signatureProviderProvider = applicationContext.getBeanProvider(SignatureProvider.class);
+        this.signatureProvider = signatureProviderProvider.getIfAvailable();
     }
 }
@@ -1,22 +1,48 @@
 package io.github.siyukio.postgresql.support;
 
+import io.github.siyukio.postgresql.registrar.PostgresqlEntityRegistrar;
+import io.github.siyukio.tools.api.dto.ListResponse;
+import io.github.siyukio.tools.api.dto.RawJson;
 import io.github.siyukio.tools.entity.ColumnType;
 import io.github.siyukio.tools.entity.EntityConstants;
 import io.github.siyukio.tools.entity.EntityExecutor;
 import io.github.siyukio.tools.entity.definition.ColumnDefinition;
 import io.github.siyukio.tools.entity.definition.EntityDefinition;
 import io.github.siyukio.tools.entity.definition.KeyDefinition;
+import io.github.siyukio.tools.entity.executor.ShardedEntityExecutor;
 import io.github.siyukio.tools.entity.page.Page;
+import io.github.siyukio.tools.entity.postgresql.EntityChange;
+import io.github.siyukio.tools.entity.postgresql.ExportFormat;
+import io.github.siyukio.tools.entity.postgresql.MultiQuery;
 import io.github.siyukio.tools.entity.postgresql.PgEntityDao;
+import io.github.siyukio.tools.entity.query.BoolQueryBuilder;
 import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.query.QueryBuilders;
+import io.github.siyukio.tools.entity.query.RangeQueryBuilder;
+import io.github.siyukio.tools.entity.query.TermsQueryBuilder;
+import io.github.siyukio.tools.entity.sort.FieldSortBuilder;
 import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilders;
+import io.github.siyukio.tools.entity.sort.SortOrder;
+import io.github.siyukio.tools.util.AsyncUtils;
+import io.github.siyukio.tools.util.EntityUtils;
 import io.github.siyukio.tools.util.IdUtils;
 import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
-
-import java.util.Collection;
-import java.util.List;
+import reactor.core.publisher.Flux;
+
+import java.io.*;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  *
@@ -24,13 +50,34 @@ import java.util.List;
  */
 public abstract class AbstractPgEntityDao<T> implements PgEntityDao<T> {
 
+    private final static int WATCH_BATCH_SIZE = 256;
+
+    private final static Duration WATCH_BATCH_INTERVAL = Duration.ofMillis(50);
+
+    private final static Map<Class<?>, List<String>> ITEM_FIELD_NAMES_MAP = new ConcurrentHashMap<>();
+
+    private final static int EXPORT_PAGE_SIZE = 1000;
+
     protected final Class<T> entityClass;
 
     protected final EntityExecutor entityExecutor;
 
-    protected AbstractPgEntityDao(Class<T> entityClass, EntityExecutor entityExecutor) {
+    /**
+     * The innermost executor of the chain, used to combine reads in {@link PgMultiQuery}.
+     */
+    protected final PgEntityExecutor pgEntityExecutor;
+
+    protected AbstractPgEntityDao(Class<T> entityClass, EntityExecutor entityExecutor, PgEntityExecutor pgEntityExecutor) {
         this.entityClass = entityClass;
         this.entityExecutor = entityExecutor;
+        this.pgEntityExecutor = pgEntityExecutor;
+    }
+
+    /**
+     * The sort applied when a query does not specify one.
+     */
+    protected SortBuilder defaultSort(SortBuilder sort) {
+        return sort;
     }
 
     private void setDefaultField(JSONObject entityJson) {
@@ -135,6 +182,124 @@ public abstract class AbstractPgEntityDao<T> implements PgEntityDao<T> {
         return this.entityExecutor.updateBatch(entityJsonList);
     }
 
+    @Override
+    public final void increment(Object id, String fieldName, long delta) {
+        EntityDefinition entityDefinition = this.entityExecutor.getEntityDefinition();
+        boolean counter = false;
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            if (columnDefinition.fieldName().equals(fieldName)) {
+                counter = !columnDefinition.encrypted() && (columnDefinition.type() == ColumnType.INT ||
+                        columnDefinition.type() == ColumnType.BIGINT || columnDefinition.type() == ColumnType.DOUBLE);
+                break;
+            }
+        }
+        Assert.isTrue(counter, String.format(EntityConstants.ERROR_COUNTER_FIELD_UNSUPPORTED_FORMAT, this.entityClass.getSimpleName(), fieldName));
+        this.entityExecutor.increment(fieldName, Map.of(String.valueOf(id), delta));
+    }
+
+    @Override
+    public final List<T> claimBatch(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long leaseDuration) {
+        EntityDefinition entityDefinition = this.entityExecutor.getEntityDefinition();
+        boolean lease = false;
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            if (columnDefinition.fieldName().equals(leaseField)) {
+                lease = !columnDefinition.encrypted() && columnDefinition.type() == ColumnType.BIGINT;
+                break;
+            }
+        }
+        Assert.isTrue(lease, String.format(EntityConstants.ERROR_LEASE_FIELD_UNSUPPORTED_FORMAT, this.entityClass.getSimpleName(), leaseField));
+        if (size <= 0) {
+            size = 1;
+        }
+        long now = System.currentTimeMillis();
+        List<JSONObject> entityJsonList = this.entityExecutor.claim(queryBuilder, sort, size, leaseField, now, now + leaseDuration);
+        return XDataUtils.copy(entityJsonList, List.class, this.entityClass);
+    }
+
+    @Override
+    public final boolean awaitWork(long timeout, TimeUnit unit) throws InterruptedException {
+        EntityDefinition entityDefinition = this.entityExecutor.getEntityDefinition();
+        if (!entityDefinition.workQueue()) {
+            // no insert trigger notifies this entity, so the wait could only time out
+            throw new IllegalStateException(String.format(EntityConstants.ERROR_WORK_QUEUE_DISABLED_FORMAT, this.entityClass.getSimpleName()));
+        }
+        PgDataProvider dataProvider = PostgresqlEntityRegistrar.getPgDataProvider(entityDefinition.dbName());
+        return dataProvider.awaitInsert(entityDefinition, timeout, unit);
+    }
+
+    @Override
+    public final Flux<EntityChange<T>> watch() {
+        return this.watchNotifications()
+                .map(notification -> new EntityChange<>(EntityChange.Operation.valueOf(notification.operation()),
+                        notification.id(), null));
+    }
+
+    @Override
+    public final Flux<EntityChange<T>> watch(QueryBuilder queryBuilder) {
+        return this.watchNotifications()
+                .bufferTimeout(WATCH_BATCH_SIZE, WATCH_BATCH_INTERVAL)
+                // fetch on virtual threads so the shared LISTEN poll is never blocked
+                .publishOn(AsyncUtils.VIRTUAL_SCHEDULER)
+                .concatMapIterable(notifications -> this.fetchChanges(queryBuilder, notifications));
+    }
+
+    private Flux<PgDataProvider.Notification> watchNotifications() {
+        EntityDefinition entityDefinition = this.entityExecutor.getEntityDefinition();
+        if (entityDefinition.shardDefinition() == null) {
+            return PostgresqlEntityRegistrar.getPgDataProvider(entityDefinition.dbName()).watch(entityDefinition);
+        }
+        // every shard database notifies its own changes, under the schema resolved for that shard
+        List<Flux<PgDataProvider.Notification>> fluxList = new ArrayList<>();
+        ShardedEntityExecutor shardedEntityExecutor = (ShardedEntityExecutor) this.entityExecutor;
+        for (EntityDefinition shardEntityDefinition : shardedEntityExecutor.getShardEntityDefinitions()) {
+            fluxList.add(PostgresqlEntityRegistrar.getPgDataProvider(shardEntityDefinition.dbName()).watch(shardEntityDefinition));
+        }
+        return Flux.merge(fluxList);
+    }
+
+    private List<EntityChange<T>> fetchChanges(QueryBuilder queryBuilder, List<PgDataProvider.Notification> notifications) {
+        // keep the last operation per id, in notification order
+        Map<String, EntityChange.Operation> operationMap = new LinkedHashMap<>();
+        for (PgDataProvider.Notification notification : notifications) {
+            operationMap.remove(notification.id());
+            operationMap.put(notification.id(), EntityChange.Operation.valueOf(notification.operation()));
+        }
+
+        String keyField = this.entityExecutor.getEntityDefinition().keyDefinition().fieldName();
+        TermsQueryBuilder idQuery = QueryBuilders.termsQuery(keyField);
+        operationMap.forEach((id, operation) -> {
+            if (operation != EntityChange.Operation.DELETE) {
+                idQuery.add(id);
+            }
+        });
+        Map<String, T> entityMap = new HashMap<>();
+        if (!idQuery.getValueSet().isEmpty()) {
+            BoolQueryBuilder changedQuery = QueryBuilders.boolQuery().must(idQuery);
+            if (queryBuilder != null) {
+                changedQuery.must(queryBuilder);
+            }
+            List<JSONObject> entityJsonList = this.entityExecutor.query(changedQuery, null, 0, idQuery.getValueSet().size());
+            for (JSONObject entityJson : entityJsonList) {
+                entityMap.put(entityJson.optString(keyField), XDataUtils.copy(entityJson, this.entityClass));
+            }
+        }
+
+        List<EntityChange<T>> changes = new ArrayList<>(operationMap.size());
+        T entity;
+        for (Map.Entry<String, EntityChange.Operation> entry : operationMap.entrySet()) {
+            if (entry.getValue() == EntityChange.Operation.DELETE) {
+                changes.add(new EntityChange<>(entry.getValue(), entry.getKey(), null));
+                continue;
+            }
+            // missing rows no longer match the query or were deleted meanwhile
+            entity = entityMap.get(entry.getKey());
+            if (entity != null) {
+                changes.add(new EntityChange<>(entry.getValue(), entry.getKey(), entity));
+            }
+        }
+        return changes;
+    }
+
     @Override
     public final int deleteById(Object id) {
         return this.entityExecutor.delete(id);
@@ -161,11 +326,217 @@ public abstract class AbstractPgEntityDao<T> implements PgEntityDao<T> {
 
     @Override
     public final T queryById(Object id) {
-        JSONObject entityJson = this.entityExecutor.queryById(id);
-        if (entityJson == null) {
-            return null;
+        return this.entityExecutor.queryById(id, this.entityClass);
+    }
+
+    @Override
+    public final Map<String, T> queryByIds(Collection<?> ids) {
+        Set<String> idSet = new LinkedHashSet<>();
+        for (Object id : ids) {
+            if (id != null) {
+                idSet.add(String.valueOf(id));
+            }
         }
-        return XDataUtils.copy(entityJson, this.entityClass);
+        Map<String, T> resultMap = new LinkedHashMap<>();
+        if (idSet.isEmpty()) {
+            return resultMap;
+        }
+        String keyField = this.entityExecutor.getEntityDefinition().keyDefinition().fieldName();
+        List<JSONObject> entityJsonList = this.entityExecutor.queryByIds(idSet);
+        Map<String, JSONObject> entityJsonMap = new HashMap<>();
+        for (JSONObject entityJson : entityJsonList) {
+            entityJsonMap.put(entityJson.optString(keyField), entityJson);
+        }
+        // keep the order of the requested ids
+        JSONObject entityJson;
+        for (String id : idSet) {
+            entityJson = entityJsonMap.get(id);
+            if (entityJson != null) {
+                resultMap.put(id, XDataUtils.copy(entityJson, this.entityClass));
+            }
+        }
+        return resultMap;
+    }
+
+    @Override
+    public final <P> List<P> attachTo(Collection<P> parents, Function<P, ?> foreignKey, BiFunction<P, T, P> attacher) {
+        List<Object> ids = new ArrayList<>(parents.size());
+        for (P parent : parents) {
+            ids.add(foreignKey.apply(parent));
+        }
+        Map<String, T> entityMap = this.queryByIds(ids);
+        List<P> results = new ArrayList<>(parents.size());
+        Object id;
+        T entity;
+        for (P parent : parents) {
+            id = foreignKey.apply(parent);
+            entity = id == null ? null : entityMap.get(String.valueOf(id));
+            results.add(entity == null ? parent : attacher.apply(parent, entity));
+        }
+        return results;
+    }
+
+    @Override
+    public final <R> RawJson<ListResponse<R>> queryListJson(QueryBuilder queryBuilder, SortBuilder sort, int from, int size, Class<R> itemClass) {
+        EntityDefinition entityDefinition = this.entityExecutor.getEntityDefinition();
+        Assert.isTrue(!entityDefinition.encrypted(), String.format(EntityConstants.ERROR_RAW_JSON_ENCRYPTED_FORMAT, this.entityClass.getSimpleName()));
+        List<String> fieldNames = ITEM_FIELD_NAMES_MAP.computeIfAbsent(itemClass, k -> {
+            RecordComponent[] recordComponents = k.getRecordComponents();
+            Assert.notNull(recordComponents, k.getName() + " is not a record");
+            return Arrays.stream(recordComponents).map(RecordComponent::getName).toList();
+        });
+        if (from < 0) {
+            from = 0;
+        }
+        if (size <= 0) {
+            size = 100;
+        }
+        if (this.pgEntityExecutor == null) {
+            // sharded entities are merged here, so the page is rendered from the merged rows
+            // in the same shape as the database: unknown and BYTES fields skipped, missing values null
+            Set<String> itemFieldNames = new LinkedHashSet<>(fieldNames);
+            itemFieldNames.retainAll(this.getJsonFieldNames(entityDefinition));
+            JSONArray items = new JSONArray();
+            Object value;
+            for (JSONObject entityJson : this.entityExecutor.query(queryBuilder, this.defaultSort(sort), from, size)) {
+                JSONObject itemJson = new JSONObject();
+                for (String fieldName : itemFieldNames) {
+                    value = entityJson.opt(fieldName);
+                    itemJson.put(fieldName, value == null ? JSONObject.NULL : value);
+                }
+                items.put(itemJson);
+            }
+            return RawJson.of(new JSONObject().put("items", items).toString().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] body = this.pgEntityExecutor.queryJson(queryBuilder, this.defaultSort(sort), from, size, fieldNames);
+        return RawJson.of(body);
+    }
+
+    private Set<String> getJsonFieldNames(EntityDefinition entityDefinition) {
+        Set<String> jsonFieldNames = new HashSet<>();
+        jsonFieldNames.add(entityDefinition.keyDefinition().fieldName());
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            if (columnDefinition.type() != ColumnType.BYTES) {
+                jsonFieldNames.add(columnDefinition.fieldName());
+            }
+        }
+        return jsonFieldNames;
+    }
+
+    @Override
+    public final long export(QueryBuilder queryBuilder, SortBuilder sort, ExportFormat format, OutputStream outputStream) {
+        EntityDefinition entityDefinition = this.entityExecutor.getEntityDefinition();
+        KeyDefinition keyDefinition = entityDefinition.keyDefinition();
+        // blind-index companions are internal columns, BYTES columns such as the packed payload are skipped as well
+        Set<String> internalFieldNames = new HashSet<>();
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            if (columnDefinition.blindIndex()) {
+                internalFieldNames.add(EntityUtils.getBlindIndexFieldName(columnDefinition.columnName()));
+            }
+        }
+        List<String> fieldNames = new ArrayList<>();
+        fieldNames.add(keyDefinition.fieldName());
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            if (columnDefinition.type() != ColumnType.BYTES && !internalFieldNames.contains(columnDefinition.fieldName())) {
+                fieldNames.add(columnDefinition.fieldName());
+            }
+        }
+        sort = this.defaultSort(sort);
+        if (!entityDefinition.encrypted() && this.pgEntityExecutor != null) {
+            return this.pgEntityExecutor.copyOut(queryBuilder, sort, format, fieldNames, outputStream);
+        }
+        // encrypted columns can only be decrypted here, sharded rows can only be merged here
+        if (sort == null) {
+            sort = SortBuilders.fieldSort(keyDefinition.fieldName()).order(SortOrder.ASC);
+        }
+        // page by key when the rows are ordered by key, other orders can only be paged by offset
+        SortOrder keyOrder = null;
+        if (sort instanceof FieldSortBuilder fieldSortBuilder && fieldSortBuilder.getFieldName().equals(keyDefinition.fieldName())) {
+            keyOrder = fieldSortBuilder.getOrder();
+        }
+        long rows = 0;
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (format == ExportFormat.CSV) {
+                writer.write(String.join(",", fieldNames));
+                writer.write('\n');
+            }
+            List<JSONObject> entityJsonList;
+            QueryBuilder pageQueryBuilder = queryBuilder;
+            int from = 0;
+            do {
+                entityJsonList = this.entityExecutor.query(pageQueryBuilder, sort, from, EXPORT_PAGE_SIZE);
+                for (JSONObject entityJson : entityJsonList) {
+                    if (format == ExportFormat.CSV) {
+                        this.writeCsvLine(writer, fieldNames, entityJson);
+                    } else {
+                        JSONObject lineJson = new JSONObject();
+                        for (String fieldName : fieldNames) {
+                            lineJson.put(fieldName, entityJson.opt(fieldName));
+                        }
+                        writer.write(lineJson.toString());
+                        writer.write('\n');
+                    }
+                }
+                rows += entityJsonList.size();
+                if (keyOrder == null) {
+                    from += EXPORT_PAGE_SIZE;
+                } else if (!entityJsonList.isEmpty()) {
+                    Object lastKey = entityJsonList.getLast().get(keyDefinition.fieldName());
+                    pageQueryBuilder = this.afterKeyQuery(queryBuilder, keyDefinition, keyOrder, lastKey);
+                }
+            } while (entityJsonList.size() == EXPORT_PAGE_SIZE);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private QueryBuilder afterKeyQuery(QueryBuilder queryBuilder, KeyDefinition keyDefinition, SortOrder keyOrder, Object lastKey) {
+        RangeQueryBuilder rangeQueryBuilder = QueryBuilders.rangeQuery(keyDefinition.fieldName());
+        if (lastKey instanceof Number number) {
+            if (keyOrder == SortOrder.ASC) {
+                rangeQueryBuilder.gt(number);
+            } else {
+                rangeQueryBuilder.lt(number);
+            }
+        } else {
+            if (keyOrder == SortOrder.ASC) {
+                rangeQueryBuilder.gt(lastKey.toString());
+            } else {
+                rangeQueryBuilder.lt(lastKey.toString());
+            }
+        }
+        if (queryBuilder == null) {
+            return rangeQueryBuilder;
+        }
+        return QueryBuilders.boolQuery().must(queryBuilder).must(rangeQueryBuilder);
+    }
+
+    private void writeCsvLine(Writer writer, List<String> fieldNames, JSONObject entityJson) throws IOException {
+        Object value;
+        String text;
+        for (int i = 0; i < fieldNames.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            value = entityJson.opt(fieldNames.get(i));
+            if (value == null || JSONObject.NULL.equals(value)) {
+                continue;
+            }
+            text = value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                text = '"' + text.replace("\"", "\"\"") + '"';
+            }
+            writer.write(text);
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public final MultiQuery multiQuery() {
+        return new PgMultiQuery();
     }
 
     @Override
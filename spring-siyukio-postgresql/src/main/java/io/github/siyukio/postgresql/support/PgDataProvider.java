@@ -1,23 +1,30 @@
 package io.github.siyukio.postgresql.support;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.executor.CachedEntity;
+import io.github.siyukio.tools.entity.executor.CounterEntityExecutor;
+import io.github.siyukio.tools.entity.executor.WriteBehindEntityExecutor;
 import io.github.siyukio.tools.util.*;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONObject;
 import org.postgresql.PGConnection;
 import org.postgresql.PGNotification;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Cache manager for managing all Caffeine caches within a single data source.
@@ -28,6 +35,11 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class PgDataProvider {
 
+    /**
+     * Notifications buffered per change subscriber before it is failed with an overflow error.
+     */
+    private final static int WATCH_BUFFER_SIZE = 10_000;
+
     private final String suffix = IdUtils.getUniqueId();
 
     private final Set<String> testSchemaSet = new HashSet<>();
@@ -37,7 +49,15 @@ public class PgDataProvider {
 
     private final MultiJdbcTemplate multiJdbcTemplate;
     // Map of schema.table to cache instance
-    private final Map<String, Cache<String, JSONObject>> cacheMap = new ConcurrentHashMap<>();
+    private final Map<String, Cache<String, CachedEntity>> cacheMap = new ConcurrentHashMap<>();
+    private final List<WriteBehindEntityExecutor> writeBehindExecutors = new CopyOnWriteArrayList<>();
+    private final List<CounterEntityExecutor> counterExecutors = new CopyOnWriteArrayList<>();
+    // Map of schema.table to the phaser advanced on every insert notification
+    private final Map<String, Phaser> insertPhaserMap = new ConcurrentHashMap<>();
+    // Map of schema.table to the sink shared by all change subscribers
+    private final Map<String, Sinks.Many<Notification>> watchSinkMap = new ConcurrentHashMap<>();
+    @Getter
+    private final AtomicLong droppedNotifications = new AtomicLong();
     private volatile Connection listenConnection;
 
     public PgDataProvider(MultiJdbcTemplate multiJdbcTemplate) {
@@ -71,7 +91,19 @@ public class PgDataProvider {
                 try {
                     Notification notification = XDataUtils.parse(
                             pgNotification.getParameter(), Notification.class);
-                    Cache<String, JSONObject> cache = cacheMap.get(notification.schema() + "." + notification.table());
+                    String key = notification.schema() + "." + notification.table();
+                    Sinks.Many<Notification> sink = watchSinkMap.get(key);
+                    if (sink != null && sink.currentSubscriberCount() > 0) {
+                        sink.tryEmitNext(notification);
+                    }
+                    if ("INSERT".equals(notification.operation())) {
+                        Phaser phaser = insertPhaserMap.get(key);
+                        if (phaser != null) {
+                            phaser.arrive();
+                        }
+                        return;
+                    }
+                    Cache<String, CachedEntity> cache = cacheMap.get(key);
                     if (cache != null) {
                         cache.invalidate(notification.id());
                         log.debug("Invalidated cache for {},{},{},{}", notification.operation, notification.schema(), notification.table(), notification.id());
@@ -105,7 +137,31 @@ public class PgDataProvider {
         });
     }
 
+    private void flushWriteBehind() {
+        writeBehindExecutors.forEach(writeBehindExecutor -> {
+            try {
+                writeBehindExecutor.destroy();
+                log.info("Flushed PostgreSQL write-behind: {}", writeBehindExecutor.getEntityDefinition().table());
+            } catch (Exception e) {
+                log.error("Error flushing PostgreSQL write-behind: {}", writeBehindExecutor.getEntityDefinition().table(), e);
+            }
+        });
+    }
+
+    private void flushCounters() {
+        counterExecutors.forEach(counterExecutor -> {
+            try {
+                counterExecutor.destroy();
+                log.info("Flushed PostgreSQL counters: {}", counterExecutor.getEntityDefinition().table());
+            } catch (Exception e) {
+                log.error("Error flushing PostgreSQL counters: {}", counterExecutor.getEntityDefinition().table(), e);
+            }
+        });
+    }
+
     public void destroy() {
+        flushCounters();
+        flushWriteBehind();
         closeConnection();
         dropTestSchemas();
     }
@@ -138,13 +194,84 @@ public class PgDataProvider {
      * Register a cache for an entity.
      *
      * @param entityDefinition the entity definition
+     * @param loader           reloads entries for refreshAfterWrite
      */
-    public Cache<String, JSONObject> registerCache(EntityDefinition entityDefinition) {
-        Cache<String, JSONObject> cache = CacheUtils.createCache(entityDefinition.cacheDefinition());
+    public Cache<String, CachedEntity> registerCache(EntityDefinition entityDefinition, CacheLoader<String, CachedEntity> loader) {
+        Cache<String, CachedEntity> cache = CacheUtils.createCache(entityDefinition.cacheDefinition(), CachedEntity::weigh, loader);
         cacheMap.put(entityDefinition.schema() + "." + entityDefinition.table(), cache);
         return cache;
     }
 
+    /**
+     * Estimated memory of every registered entity cache.
+     *
+     * @return map of schema.table to the footprint in bytes
+     */
+    public Map<String, Long> getCacheFootprints() {
+        Map<String, Long> footprintMap = new TreeMap<>();
+        cacheMap.forEach((key, cache) -> footprintMap.put(key, CacheUtils.getWeightedSize(cache, CachedEntity::weigh)));
+        return footprintMap;
+    }
+
+    /**
+     * Register a write-behind executor so queued rows are flushed on shutdown.
+     *
+     * @param writeBehindExecutor the write-behind executor
+     */
+    public void registerWriteBehind(WriteBehindEntityExecutor writeBehindExecutor) {
+        writeBehindExecutors.add(writeBehindExecutor);
+    }
+
+    /**
+     * Register a counter executor so pending increments are flushed on shutdown.
+     *
+     * @param counterExecutor the counter executor
+     */
+    public void registerCounter(CounterEntityExecutor counterExecutor) {
+        counterExecutors.add(counterExecutor);
+    }
+
+    /**
+     * Wait for the next insert notification of a work queue entity.
+     *
+     * @param entityDefinition the entity definition
+     * @param timeout          maximum time to wait
+     * @param unit             unit of the timeout
+     * @return true if an insert was notified, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitInsert(EntityDefinition entityDefinition, long timeout, TimeUnit unit) throws InterruptedException {
+        Phaser phaser = insertPhaserMap.computeIfAbsent(entityDefinition.schema() + "." + entityDefinition.table(),
+                k -> new Phaser(1));
+        try {
+            phaser.awaitAdvanceInterruptibly(phaser.getPhase(), timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Subscribe to the change notifications of an entity.
+     * <p>
+     * A subscriber that falls more than {@value #WATCH_BUFFER_SIZE} notifications behind is terminated
+     * with an overflow error instead of silently missing changes, and should resubscribe and resync.
+     *
+     * @param entityDefinition the entity definition
+     * @return a hot stream of notifications shared by all subscribers of the entity
+     */
+    public Flux<Notification> watch(EntityDefinition entityDefinition) {
+        String key = entityDefinition.schema() + "." + entityDefinition.table();
+        Sinks.Many<Notification> sink = watchSinkMap.computeIfAbsent(key, k -> Sinks.many().multicast().directBestEffort());
+        // each subscriber gets its own bounded buffer, so the shared sink never drops for a slow one
+        return sink.asFlux()
+                .onBackpressureBuffer(WATCH_BUFFER_SIZE, dropped -> {
+                    long count = droppedNotifications.incrementAndGet();
+                    log.warn("Change subscriber of {} overflowed after {} notifications, dropped total: {}",
+                            key, WATCH_BUFFER_SIZE, count);
+                }, BufferOverflowStrategy.ERROR);
+    }
+
     public record Notification(
             String schema,
             String table,
@@ -17,8 +17,8 @@ import java.util.List;
 @Slf4j
 public class PgEntityDaoImpl<T> extends AbstractPgEntityDao<T> implements PgEntityDao<T> {
 
-    public PgEntityDaoImpl(Class<T> entityClass, EntityExecutor entityExecutor) {
-        super(entityClass, entityExecutor);
+    public PgEntityDaoImpl(Class<T> entityClass, EntityExecutor entityExecutor, PgEntityExecutor pgEntityExecutor) {
+        super(entityClass, entityExecutor, pgEntityExecutor);
     }
 
     @Override
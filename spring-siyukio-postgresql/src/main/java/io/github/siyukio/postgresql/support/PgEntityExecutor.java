@@ -8,14 +8,23 @@ import io.github.siyukio.tools.entity.definition.KeyDefinition;
 import io.github.siyukio.tools.entity.query.QueryBuilder;
 import io.github.siyukio.tools.entity.sort.SortBuilder;
 import io.github.siyukio.tools.util.EntityUtils;
+import io.github.siyukio.tools.util.XDataUtils;
+import io.github.siyukio.tools.entity.postgresql.ExportFormat;
 import org.json.JSONObject;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +34,13 @@ import java.util.Map;
  */
 public class PgEntityExecutor implements EntityExecutor {
 
+    /**
+     * PostgreSQL accepts at most 65535 bind parameters per statement.
+     */
+    private final static int MAX_BIND_PARAMETERS = 65535;
+
+    private final static int MAX_INSERT_ROWS = 1000;
+
     private final EntityDefinition entityDefinition;
 
     private final MultiJdbcTemplate multiJdbcTemplate;
@@ -33,6 +49,10 @@ public class PgEntityExecutor implements EntityExecutor {
 
     private final String insertSql;
 
+    private final int insertRows;
+
+    private final String insertRowsSql;
+
     private final String updateByIdSql;
 
     private final String upsertSql;
@@ -43,6 +63,8 @@ public class PgEntityExecutor implements EntityExecutor {
 
     private final String queryByIdSql;
 
+    private final String queryByIdsSql;
+
     private final Map<String, String> fieldToColumnMap = new HashMap<>();
 
     private final Map<String, String> columnToFieldMap = new HashMap<>();
@@ -58,10 +80,14 @@ public class PgEntityExecutor implements EntityExecutor {
         } else {
             this.insertSql = PgSqlUtils.insertSql(this.entityDefinition);
         }
+        int rowParameters = entityDefinition.columnDefinitions().size() + (this.generatedId ? 0 : 1);
+        this.insertRows = Math.max(1, Math.min(MAX_INSERT_ROWS, MAX_BIND_PARAMETERS / rowParameters));
+        this.insertRowsSql = PgSqlUtils.insertRowsSql(this.entityDefinition, !this.generatedId, this.insertRows);
         this.updateByIdSql = PgSqlUtils.updateByIdSql(this.entityDefinition);
         this.deleteByIdSql = PgSqlUtils.deleteByIdSql(this.entityDefinition);
         this.upsertSql = PgSqlUtils.upsertSql(this.entityDefinition);
         this.queryByIdSql = PgSqlUtils.queryByIdSql(this.entityDefinition);
+        this.queryByIdsSql = PgSqlUtils.queryByIdsSql(this.entityDefinition);
         this.countSql = PgSqlUtils.countSql(this.entityDefinition);
 
         this.fieldToColumnMap.put(keyDefinition.fieldName(), keyDefinition.columnName());
@@ -71,6 +97,58 @@ public class PgEntityExecutor implements EntityExecutor {
         }
     }
 
+    MultiJdbcTemplate getMultiJdbcTemplate() {
+        return this.multiJdbcTemplate;
+    }
+
+    /**
+     * Build the statement {@link #query} would send, for {@link PgMultiQuery}.
+     */
+    PgMultiQuery.Statement prepareQuery(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
+        String querySql = PgSqlUtils.querySql(this.entityDefinition, queryBuilder, sort, this.fieldToColumnMap);
+        List<Object> allValues = new ArrayList<>(PgSqlUtils.toQueryValues(queryBuilder));
+        allValues.add(size);
+        allValues.add(from);
+        return new PgMultiQuery.Statement(querySql, allValues);
+    }
+
+    /**
+     * Build the statement {@link #countByQuery} would send, for {@link PgMultiQuery}.
+     */
+    PgMultiQuery.Statement prepareCount(QueryBuilder queryBuilder) {
+        String countByQuerySql = PgSqlUtils.countByQuerySql(this.entityDefinition, queryBuilder, this.fieldToColumnMap);
+        return new PgMultiQuery.Statement(countByQuerySql, PgSqlUtils.toQueryValues(queryBuilder));
+    }
+
+    /**
+     * Render a page of rows as a JSON list response in the database.
+     */
+    byte[] queryJson(QueryBuilder queryBuilder, SortBuilder sort, int from, int size, Collection<String> fieldNames) {
+        String queryJsonSql = PgSqlUtils.queryJsonSql(this.entityDefinition, queryBuilder, sort, fieldNames, this.fieldToColumnMap);
+        List<Object> allValues = new ArrayList<>(PgSqlUtils.toQueryValues(queryBuilder));
+        allValues.add(size);
+        allValues.add(from);
+        // json is sent as text, so the column bytes are already the UTF-8 body
+        return this.multiJdbcTemplate.getRandomSlave().queryForObject(queryJsonSql, (rs, rowNum) -> rs.getBytes(1), allValues.toArray());
+    }
+
+    /**
+     * Stream the matching rows with COPY TO STDOUT, without materializing them.
+     */
+    long copyOut(QueryBuilder queryBuilder, SortBuilder sort, ExportFormat format, Collection<String> fieldNames, OutputStream outputStream) {
+        String copyOutSql = PgSqlUtils.copyOutSql(this.entityDefinition, queryBuilder, sort, format == ExportFormat.JSON, fieldNames, this.fieldToColumnMap);
+        String literalSql = PgSqlUtils.toLiteralSql(copyOutSql, PgSqlUtils.toQueryValues(queryBuilder));
+        Long rows = this.multiJdbcTemplate.getRandomSlave().execute((ConnectionCallback<Long>) connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                return copyManager.copyOut(literalSql, outputStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
     @Override
     public String getMasterKey() {
         return this.multiJdbcTemplate.getMasterKey();
@@ -100,19 +178,29 @@ public class PgEntityExecutor implements EntityExecutor {
 
     @Override
     public int insertBatch(List<JSONObject> entityJsons) {
-        int[][] result = this.multiJdbcTemplate.getMaster().batchUpdate(this.insertSql, entityJsons, entityJsons.size(),
-                (ps, entityJson) -> {
-                    List<Object> values;
-                    if (this.generatedId) {
-                        values = PgSqlUtils.insertAndReturnIdValues(this.entityDefinition, entityJson);
-                    } else {
-                        values = PgSqlUtils.insertValues(this.entityDefinition, entityJson);
-                    }
-                    for (int i = 0; i < values.size(); i++) {
-                        ps.setObject(i + 1, values.get(i));
-                    }
-                });
-        return result.length;
+        // one multi-row statement per chunk instead of one statement per row
+        int num = 0;
+        List<JSONObject> rows;
+        List<Object> values = new ArrayList<>();
+        String sql;
+        for (int from = 0; from < entityJsons.size(); from += this.insertRows) {
+            rows = entityJsons.subList(from, Math.min(entityJsons.size(), from + this.insertRows));
+            values.clear();
+            for (JSONObject entityJson : rows) {
+                if (this.generatedId) {
+                    values.addAll(PgSqlUtils.insertAndReturnIdValues(this.entityDefinition, entityJson));
+                } else {
+                    values.addAll(PgSqlUtils.insertValues(this.entityDefinition, entityJson));
+                }
+            }
+            if (rows.size() == this.insertRows) {
+                sql = this.insertRowsSql;
+            } else {
+                sql = PgSqlUtils.insertRowsSql(this.entityDefinition, !this.generatedId, rows.size());
+            }
+            num += this.multiJdbcTemplate.getMaster().update(sql, values.toArray());
+        }
+        return num;
     }
 
     @Override
@@ -141,6 +229,27 @@ public class PgEntityExecutor implements EntityExecutor {
         return entityJson;
     }
 
+    @Override
+    public int increment(String fieldName, Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        String columnName = this.fieldToColumnMap.get(fieldName);
+        ColumnType keyType = this.entityDefinition.keyDefinition().type();
+        Object[] ids = switch (keyType) {
+            case ColumnType.INT -> deltas.keySet().stream().map(Integer::valueOf).toArray(Integer[]::new);
+            case ColumnType.BIGINT -> deltas.keySet().stream().map(Long::valueOf).toArray(Long[]::new);
+            default -> deltas.keySet().toArray(new String[0]);
+        };
+        Long[] values = new Long[ids.length];
+        int index = 0;
+        for (String id : deltas.keySet()) {
+            values[index++] = deltas.get(id);
+        }
+        String incrementSql = PgSqlUtils.incrementSql(this.entityDefinition, columnName);
+        return this.multiJdbcTemplate.getMaster().update(incrementSql, new Object[]{ids, values});
+    }
+
     @Override
     public int delete(Object id) {
         return this.multiJdbcTemplate.getMaster().update(this.deleteByIdSql, id);
@@ -177,7 +286,7 @@ public class PgEntityExecutor implements EntityExecutor {
         return this.multiJdbcTemplate.getRandomSlave().queryForObject(countByQuerySql, Integer.class, queryValues.toArray());
     }
 
-    private JSONObject resultToEntityJson(ResultSet rs) throws SQLException {
+    JSONObject resultToEntityJson(ResultSet rs) throws SQLException {
         ResultSetMetaData resultSetMetaData = rs.getMetaData();
         int columnCount = resultSetMetaData.getColumnCount();
         JSONObject entityJson = new JSONObject();
@@ -208,6 +317,24 @@ public class PgEntityExecutor implements EntityExecutor {
         }
     }
 
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        JSONObject entityJson = this.queryById(id);
+        if (entityJson == null) {
+            return null;
+        }
+        return XDataUtils.copy(entityJson, entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return this.multiJdbcTemplate.getRandomSlave().query(this.queryByIdsSql, (rs, rowNum) -> this.resultToEntityJson(rs),
+                new Object[]{ids.toArray(new String[0])});
+    }
+
     @Override
     public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
         String querySql = PgSqlUtils.querySql(this.entityDefinition, queryBuilder, sort, this.fieldToColumnMap);
@@ -217,4 +344,16 @@ public class PgEntityExecutor implements EntityExecutor {
         allValues.add(from);
         return this.multiJdbcTemplate.getRandomSlave().query(querySql, (rs, rowNum) -> this.resultToEntityJson(rs), allValues.toArray());
     }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        String leaseColumn = this.fieldToColumnMap.get(leaseField);
+        String claimSql = PgSqlUtils.claimSql(this.entityDefinition, queryBuilder, sort, leaseColumn, this.fieldToColumnMap);
+        List<Object> queryValues = PgSqlUtils.toQueryValues(queryBuilder);
+        List<Object> allValues = new ArrayList<>(queryValues);
+        allValues.add(now);
+        allValues.add(size);
+        allValues.add(leaseUntil);
+        return this.multiJdbcTemplate.getMaster().query(claimSql, (rs, rowNum) -> this.resultToEntityJson(rs), allValues.toArray());
+    }
 }
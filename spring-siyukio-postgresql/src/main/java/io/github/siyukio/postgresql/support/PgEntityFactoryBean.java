@@ -2,6 +2,7 @@ package io.github.siyukio.postgresql.support;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import io.github.siyukio.postgresql.registrar.PostgresqlEntityRegistrar;
+import io.github.siyukio.tools.api.AipHandlerManager;
 import io.github.siyukio.tools.cache.annotation.CacheConfig;
 import io.github.siyukio.tools.cache.definition.CacheDefinition;
 import io.github.siyukio.tools.entity.ColumnType;
@@ -11,13 +12,21 @@ import io.github.siyukio.tools.entity.definition.ColumnDefinition;
 import io.github.siyukio.tools.entity.definition.EntityDefinition;
 import io.github.siyukio.tools.entity.definition.IndexDefinition;
 import io.github.siyukio.tools.entity.definition.KeyDefinition;
+import io.github.siyukio.tools.entity.definition.ShardDefinition;
+import io.github.siyukio.tools.entity.definition.WriteBehindDefinition;
 import io.github.siyukio.tools.entity.executor.CacheEntityExecutor;
+import io.github.siyukio.tools.entity.executor.CachedEntity;
+import io.github.siyukio.tools.entity.executor.CounterEntityExecutor;
 import io.github.siyukio.tools.entity.executor.CryptoEntityExecutor;
+import io.github.siyukio.tools.entity.executor.ShardedEntityExecutor;
+import io.github.siyukio.tools.entity.executor.WriteBehindEntityExecutor;
 import io.github.siyukio.tools.entity.postgresql.PgEntityDao;
 import io.github.siyukio.tools.entity.postgresql.annotation.PgColumn;
 import io.github.siyukio.tools.entity.postgresql.annotation.PgEntity;
 import io.github.siyukio.tools.entity.postgresql.annotation.PgIndex;
 import io.github.siyukio.tools.entity.postgresql.annotation.PgKey;
+import io.github.siyukio.tools.entity.postgresql.annotation.ShardConfig;
+import io.github.siyukio.tools.entity.postgresql.annotation.WriteBehindConfig;
 import io.github.siyukio.tools.util.AsyncUtils;
 import io.github.siyukio.tools.util.EntityUtils;
 import io.github.siyukio.tools.util.XDataUtils;
@@ -123,6 +132,7 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
                 case ColumnType.JSON_OBJECT -> isInterface || isRecord ? null : new JSONObject();
                 case ColumnType.TEXT -> recordComponent.getType().isEnum() ? null : "";
                 case ColumnType.DATETIME -> "";
+                case ColumnType.BYTES -> null;
             };
         } else {
             boolean isNull = defaultValueStr.equalsIgnoreCase("null");
@@ -137,6 +147,7 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
                         isInterface || isNull ? null : XDataUtils.parse(defaultValueStr, JSONObject.class);
                 case ColumnType.TEXT -> isNull ? null : defaultValueStr;
                 case ColumnType.DATETIME -> isNull ? null : XDataUtils.parse(defaultValueStr);
+                case ColumnType.BYTES -> null;
             };
         }
         boolean encrypted = pgColumn.encrypted();
@@ -145,9 +156,23 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
             defaultValue = "";
             encrypted = false;
         }
+        boolean blindIndex = encrypted && pgColumn.blindIndex();
 
         return new ColumnDefinition(fieldName, columnName, columnType, defaultValue,
-                encrypted, pgColumn.comment());
+                encrypted, blindIndex, pgColumn.comment());
+    }
+
+    private ColumnDefinition getBlindIndexColumnDefinition(ColumnDefinition columnDefinition) {
+        String columnName = EntityUtils.getBlindIndexColumnName(columnDefinition.columnName());
+        EntityUtils.isSafe(columnName);
+        return new ColumnDefinition(EntityUtils.getBlindIndexFieldName(columnDefinition.columnName()), columnName,
+                ColumnType.TEXT, "", false, false, "Blind index of " + columnDefinition.columnName());
+    }
+
+    private ColumnDefinition getPackedPayloadColumnDefinition() {
+        String fieldName = EntityConstants.PACKED_PAYLOAD_FIELD;
+        return new ColumnDefinition(fieldName, EntityUtils.camelToSnake(fieldName),
+                ColumnType.BYTES, null, false, false, "Packed encrypted payload");
     }
 
     private KeyDefinition getKeyDefinition(RecordComponent recordComponent) {
@@ -223,6 +248,7 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
         KeyDefinition keyDefinition = null;
         List<ColumnDefinition> columnDefinitions = new ArrayList<>();
         RecordComponent[] recordComponents = this.entityClass.getRecordComponents();
+        List<ColumnDefinition> blindIndexColumnDefinitions = new ArrayList<>();
         boolean encrypted = false;
         ColumnDefinition columnDefinition;
         for (RecordComponent recordComponent : recordComponents) {
@@ -234,9 +260,21 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
                 if (columnDefinition.encrypted()) {
                     encrypted = true;
                 }
+                if (columnDefinition.blindIndex()) {
+                    blindIndexColumnDefinitions.add(this.getBlindIndexColumnDefinition(columnDefinition));
+                }
                 columnDefinitions.add(columnDefinition);
             }
         }
+        // hidden companion columns are appended after the record components
+        columnDefinitions.addAll(blindIndexColumnDefinitions);
+
+        PgEntity pgEntity = this.entityClass.getAnnotation(PgEntity.class);
+
+        boolean packedEncryption = encrypted && pgEntity.packedEncryption();
+        if (packedEncryption) {
+            columnDefinitions.add(this.getPackedPayloadColumnDefinition());
+        }
 
         if (encrypted) {
             List<ColumnDefinition> items = columnDefinitions.stream()
@@ -248,8 +286,6 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
         Assert.notNull(keyDefinition, String.format(EntityConstants.ERROR_KEY_IS_NULL_FORMAT, this.entityClass.getSimpleName()));
         Assert.notEmpty(columnDefinitions, String.format(EntityConstants.ERROR_COLUMNS_IS_EMPTY_FORMAT, this.entityClass.getSimpleName()));
 
-        PgEntity pgEntity = this.entityClass.getAnnotation(PgEntity.class);
-
         PropertySourcesPlaceholdersResolver propertySourcesPlaceholdersResolver = new PropertySourcesPlaceholdersResolver(this.applicationContext.getEnvironment());
 
         String dbName = pgEntity.dbName();
@@ -257,16 +293,25 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
             dbName = propertySourcesPlaceholdersResolver.resolvePlaceholders(dbName).toString();
         }
 
-        String schema = pgEntity.schema();
-        if (StringUtils.hasText(schema)) {
-            schema = propertySourcesPlaceholdersResolver.resolvePlaceholders(schema).toString();
-            EntityUtils.isSafe(schema);
-        } else {
-            schema = PgSqlUtils.DEFAULT_SCHEMA;
+        ShardDefinition shardDefinition = null;
+        ShardConfig shardConfig = pgEntity.shardConfig();
+        if (shardConfig.dbNames().length > 0) {
+            List<String> shardDbNames = new ArrayList<>();
+            for (String shardDbName : shardConfig.dbNames()) {
+                shardDbNames.add(propertySourcesPlaceholdersResolver.resolvePlaceholders(shardDbName).toString());
+            }
+            String shardField = StringUtils.hasText(shardConfig.field()) ? shardConfig.field() : keyDefinition.fieldName();
+            boolean generatedId = keyDefinition.generated() &&
+                    (keyDefinition.type() == ColumnType.BIGINT || keyDefinition.type() == ColumnType.INT);
+            boolean shardFieldValid = shardField.equals(keyDefinition.fieldName()) ? !generatedId : columnDefinitions.stream()
+                    .anyMatch(item -> item.fieldName().equals(shardField) && !item.encrypted());
+            Assert.isTrue(shardFieldValid, String.format(EntityConstants.ERROR_SHARD_FIELD_UNSUPPORTED_FORMAT, this.entityClass.getSimpleName(), shardField));
+            Assert.isTrue(!pgEntity.workQueue(), String.format(EntityConstants.ERROR_SHARD_WORK_QUEUE_FORMAT, this.entityClass.getSimpleName()));
+            shardDefinition = new ShardDefinition(List.copyOf(shardDbNames), shardField, Math.max(1, shardConfig.virtualNodes()));
+            dbName = shardDbNames.getFirst();
         }
 
-        PgDataProvider dataProvider = PostgresqlEntityRegistrar.getPgDataProvider(dbName);
-        schema = dataProvider.registerTestSchema(schema);
+        String schema = this.resolveSchema(pgEntity, dbName);
 
         String table = pgEntity.table();
         if (table.isEmpty()) {
@@ -286,23 +331,78 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
             indexDefinitions = this.getIndexDefinitions(table, pgEntity.indexes());
             // Only normal tables support caching
             CacheConfig cacheConfig = pgEntity.cacheConfig();
-            if (cacheConfig.maximumSize() > 0) {
+            if (cacheConfig.maximumSize() > 0 || cacheConfig.maximumWeight() > 0) {
+                String warmUpSortField = cacheConfig.warmUpSortField();
+                if (!StringUtils.hasText(warmUpSortField)) {
+                    boolean hasUpdatedAtTs = columnDefinitions.stream()
+                            .anyMatch(item -> item.fieldName().equals(EntityConstants.UPDATED_AT_TS_FIELD));
+                    warmUpSortField = hasUpdatedAtTs ? EntityConstants.UPDATED_AT_TS_FIELD : keyDefinition.fieldName();
+                }
+                String sortField = warmUpSortField;
+                boolean sortFieldValid = sortField.equals(keyDefinition.fieldName()) || columnDefinitions.stream()
+                        .anyMatch(item -> item.fieldName().equals(sortField) && !item.encrypted());
+                Assert.isTrue(sortFieldValid, String.format(EntityConstants.ERROR_WARM_UP_SORT_FIELD_UNSUPPORTED_FORMAT, this.entityClass.getSimpleName(), sortField));
                 cacheDefinition = new CacheDefinition(
                         cacheConfig.maximumSize(),
+                        cacheConfig.maximumWeight(),
                         cacheConfig.softValues(),
                         cacheConfig.expireUnit(),
                         cacheConfig.expireAfterAccess(),
-                        cacheConfig.expireAfterWrite());
+                        cacheConfig.expireAfterWrite(),
+                        cacheConfig.refreshAfterWrite(),
+                        cacheConfig.compact(),
+                        cacheConfig.warmUpSize(),
+                        warmUpSortField);
             }
         } else {
             indexDefinitions = this.getPartitionedIndexDefinitions(table, keyDefinition, pgEntity.indexes());
         }
 
+        if (!blindIndexColumnDefinitions.isEmpty()) {
+            indexDefinitions = new ArrayList<>(indexDefinitions);
+            String[] columns;
+            String indexName;
+            for (ColumnDefinition blindIndexColumnDefinition : blindIndexColumnDefinitions) {
+                columns = new String[]{blindIndexColumnDefinition.fieldName()};
+                indexName = this.getIndexName(table, columns, false);
+                EntityUtils.isSafe(indexName);
+                indexDefinitions.add(new IndexDefinition(indexName, columns, false));
+            }
+        }
+
+        WriteBehindDefinition writeBehindDefinition = null;
+        WriteBehindConfig writeBehindConfig = pgEntity.writeBehindConfig();
+        if (writeBehindConfig.batchSize() > 0) {
+            boolean generatedId = keyDefinition.generated() &&
+                    (keyDefinition.type() == ColumnType.BIGINT || keyDefinition.type() == ColumnType.INT);
+            Assert.isTrue(!generatedId, String.format(EntityConstants.ERROR_WRITE_BEHIND_GENERATED_KEY_FORMAT, this.entityClass.getSimpleName()));
+            writeBehindDefinition = new WriteBehindDefinition(
+                    writeBehindConfig.batchSize(),
+                    writeBehindConfig.flushInterval(),
+                    writeBehindConfig.capacity(),
+                    writeBehindConfig.awaitFlush());
+        }
+
         return new EntityDefinition(dbName, schema, table, pgEntity.comment(),
                 pgEntity.createTableAuto(), pgEntity.addColumnAuto(), pgEntity.createIndexAuto(),
-                encrypted, keyInfo, pgEntity.partition(),
+                encrypted, packedEncryption, keyInfo, pgEntity.partition(),
                 keyDefinition, columnDefinitions, indexDefinitions,
-                cacheDefinition);
+                cacheDefinition, writeBehindDefinition, pgEntity.counterFlushInterval(), pgEntity.workQueue(),
+                pgEntity.changeFeed(), shardDefinition);
+    }
+
+    private String resolveSchema(PgEntity pgEntity, String dbName) {
+        String schema = pgEntity.schema();
+        if (StringUtils.hasText(schema)) {
+            PropertySourcesPlaceholdersResolver propertySourcesPlaceholdersResolver = new PropertySourcesPlaceholdersResolver(this.applicationContext.getEnvironment());
+            schema = propertySourcesPlaceholdersResolver.resolvePlaceholders(schema).toString();
+            EntityUtils.isSafe(schema);
+        } else {
+            schema = PgSqlUtils.DEFAULT_SCHEMA;
+        }
+
+        PgDataProvider dataProvider = PostgresqlEntityRegistrar.getPgDataProvider(dbName);
+        return dataProvider.registerTestSchema(schema);
     }
 
     private Map<String, InformationIndex> queryIndexes(EntityDefinition entityDefinition, JdbcTemplate jdbcTemplate) {
@@ -329,11 +429,16 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
     }
 
     private void checkTrigger(EntityDefinition entityDefinition, JdbcTemplate jdbcTemplate) {
-        if (entityDefinition.cacheDefinition() != null) {
+        if (entityDefinition.cacheDefinition() != null || entityDefinition.changeFeed()) {
             log.info("Create cache trigger: {}, {}", entityDefinition.schema(), entityDefinition.table());
             String sql = PgSqlUtils.createCacheInvalidationTriggerSql(entityDefinition);
             jdbcTemplate.execute(sql);
         }
+        if (entityDefinition.workQueue() || entityDefinition.changeFeed()) {
+            log.info("Create insert trigger: {}, {}", entityDefinition.schema(), entityDefinition.table());
+            String sql = PgSqlUtils.createInsertNotifyTriggerSql(entityDefinition);
+            jdbcTemplate.execute(sql);
+        }
     }
 
     private void checkIndex(EntityDefinition entityDefinition, JdbcTemplate jdbcTemplate) {
@@ -395,6 +500,7 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
                 case ColumnType.DOUBLE -> udtName.equalsIgnoreCase("float8");
                 case ColumnType.DATETIME -> udtName.equalsIgnoreCase("text");
                 case ColumnType.JSON_ARRAY, ColumnType.JSON_OBJECT -> udtName.equalsIgnoreCase("json");
+                case ColumnType.BYTES -> udtName.equalsIgnoreCase("bytea");
                 default -> columnDefinition.type().name().equalsIgnoreCase(informationColumn.udtName());
             };
 
@@ -561,25 +667,89 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
     }
 
     private PgEntityDao<?> newInstance() {
-        this.tableSqlList.clear();
         EntityDefinition entityDefinition = this.getEntityDefinition();
         log.info("PgEntity: {}", entityDefinition.table());
-        MultiJdbcTemplate multiJdbcTemplate = PostgresqlEntityRegistrar.getMultiJdbcTemplate(entityDefinition.dbName());
+
+        EntityExecutor entityExecutor;
+        PgEntityExecutor pgEntityExecutor = null;
+        ShardDefinition shardDefinition = entityDefinition.shardDefinition();
+        if (shardDefinition == null) {
+            MultiJdbcTemplate multiJdbcTemplate = PostgresqlEntityRegistrar.getMultiJdbcTemplate(entityDefinition.dbName());
+            pgEntityExecutor = new PgEntityExecutor(entityDefinition, multiJdbcTemplate);
+            entityExecutor = this.newEntityExecutor(entityDefinition, pgEntityExecutor);
+        } else {
+            // every shard gets its own table, executor chain and partition maintenance
+            PgEntity pgEntity = this.entityClass.getAnnotation(PgEntity.class);
+            List<EntityExecutor> shardExecutors = new ArrayList<>();
+            for (String dbName : shardDefinition.dbNames()) {
+                EntityDefinition shardEntityDefinition = entityDefinition.withShard(dbName, this.resolveSchema(pgEntity, dbName));
+                MultiJdbcTemplate multiJdbcTemplate = PostgresqlEntityRegistrar.getMultiJdbcTemplate(dbName);
+                shardExecutors.add(this.newEntityExecutor(shardEntityDefinition, new PgEntityExecutor(shardEntityDefinition, multiJdbcTemplate)));
+            }
+            entityExecutor = new ShardedEntityExecutor(entityDefinition, shardExecutors);
+        }
+
+        PgEntityDao<?> pgEntityDao;
+        if (entityDefinition.partition() != EntityDefinition.Partition.NONE) {
+            pgEntityDao = new PgPartitionedEntityDaoImpl<>(this.entityClass, entityExecutor, pgEntityExecutor);
+        } else {
+            pgEntityDao = new PgEntityDaoImpl<>(this.entityClass, entityExecutor, pgEntityExecutor);
+        }
+        this.watchResponseCache(entityDefinition, pgEntityDao);
+        return pgEntityDao;
+    }
+
+    private void watchResponseCache(EntityDefinition entityDefinition, PgEntityDao<?> pgEntityDao) {
+        if (!entityDefinition.changeFeed()) {
+            return;
+        }
+        AipHandlerManager aipHandlerManager = this.applicationContext.getBeanProvider(AipHandlerManager.class).getIfAvailable();
+        if (aipHandlerManager == null) {
+            return;
+        }
+        // apis are registered later, so the caches to drop are looked up on every change
+        pgEntityDao.watch()
+                .doOnError(error -> {
+                    // changes may have been missed, so nothing cached can be trusted
+                    log.error("PgEntity response cache watch error: {}, {}", entityDefinition.table(), error.getMessage());
+                    aipHandlerManager.invalidateResponseCache(this.entityClass);
+                })
+                .retry()
+                .subscribe(change -> aipHandlerManager.invalidateResponseCache(this.entityClass));
+    }
+
+    private EntityExecutor newEntityExecutor(EntityDefinition entityDefinition, PgEntityExecutor pgEntityExecutor) {
+        this.tableSqlList.clear();
+        MultiJdbcTemplate multiJdbcTemplate = pgEntityExecutor.getMultiJdbcTemplate();
 
         this.checkTableSchema(entityDefinition, multiJdbcTemplate.getMaster());
 
-        EntityExecutor entityExecutor = new PgEntityExecutor(entityDefinition, multiJdbcTemplate);
+        EntityExecutor entityExecutor = pgEntityExecutor;
+        if (entityDefinition.writeBehindDefinition() != null) {
+            // buffer rows after encryption so the flusher only writes
+            WriteBehindEntityExecutor writeBehindExecutor = new WriteBehindEntityExecutor(entityExecutor, entityDefinition.writeBehindDefinition());
+            PostgresqlEntityRegistrar.getPgDataProvider(entityDefinition.dbName()).registerWriteBehind(writeBehindExecutor);
+            entityExecutor = writeBehindExecutor;
+        }
         if (entityDefinition.encrypted()) {
             entityExecutor = new CryptoEntityExecutor(entityExecutor);
         }
 
+        CacheEntityExecutor cacheExecutor = null;
         if (entityDefinition.cacheDefinition() != null) {
             PgDataProvider dataProvider = PostgresqlEntityRegistrar.getPgDataProvider(entityDefinition.dbName());
-            Cache<String, JSONObject> cache = dataProvider.registerCache(entityDefinition);
-            entityExecutor = new CacheEntityExecutor(entityExecutor, cache);
+            Cache<String, CachedEntity> cache = dataProvider.registerCache(entityDefinition, CacheEntityExecutor.newLoader(entityExecutor));
+            cacheExecutor = new CacheEntityExecutor(entityExecutor, cache);
+            entityExecutor = cacheExecutor;
+        }
+
+        if (entityDefinition.counterFlushInterval() > 0) {
+            // outermost, so reads served from the cache still include pending increments
+            CounterEntityExecutor counterExecutor = new CounterEntityExecutor(entityExecutor, entityDefinition.counterFlushInterval());
+            PostgresqlEntityRegistrar.getPgDataProvider(entityDefinition.dbName()).registerCounter(counterExecutor);
+            entityExecutor = counterExecutor;
         }
 
-        PgEntityDao<?> entityDao;
         if (entityDefinition.partition() != EntityDefinition.Partition.NONE) {
             // partitioned table
             this.checkPartitionedTable(entityDefinition, multiJdbcTemplate.getMaster());
@@ -597,14 +767,17 @@ public class PgEntityFactoryBean implements FactoryBean<PgEntityDao<?>>, Initial
                     this.checkPartition(entityDefinition, nextPartitionTable, multiJdbcTemplate.getMaster());
                 }
             }, initialDelay, 6L * 60L, TimeUnit.SECONDS);
-            entityDao = new PgPartitionedEntityDaoImpl<>(this.entityClass, entityExecutor);
         } else {
             // common table
             this.checkTable(entityDefinition, multiJdbcTemplate.getMaster());
-            entityDao = new PgEntityDaoImpl<>(this.entityClass, entityExecutor);
         }
 
         this.insertTableSqlScript(entityDefinition, multiJdbcTemplate.getMaster());
-        return entityDao;
+
+        if (cacheExecutor != null) {
+            // runs while the bean is created, so before the application reports ready
+            cacheExecutor.warmUp();
+        }
+        return entityExecutor;
     }
 }
@@ -0,0 +1,183 @@
+package io.github.siyukio.postgresql.support;
+
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.postgresql.MultiQuery;
+import io.github.siyukio.tools.entity.postgresql.PgEntityDao;
+import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.util.XDataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.util.Assert;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Sends the queries of one database as a single multi-statement prepared statement
+ * and reads the result sets back in order.
+ * <p>
+ * Encrypted and counter-coalesced entities post-process rows in their executor chain,
+ * so their queries run on their own through the dao.
+ *
+ * @author Bugee
+ */
+@Slf4j
+public class PgMultiQuery implements MultiQuery {
+
+    private final List<Part<?>> parts = new ArrayList<>();
+
+    private boolean executed = false;
+
+    private static <T> AbstractPgEntityDao<T> toAbstractDao(PgEntityDao<T> entityDao) {
+        Assert.isInstanceOf(AbstractPgEntityDao.class, entityDao, "MultiQuery requires a PostgreSQL entity dao");
+        return (AbstractPgEntityDao<T>) entityDao;
+    }
+
+    private static boolean isCombinable(AbstractPgEntityDao<?> entityDao) {
+        if (entityDao.pgEntityExecutor == null) {
+            // sharded entities scatter across databases
+            return false;
+        }
+        EntityDefinition entityDefinition = entityDao.pgEntityExecutor.getEntityDefinition();
+        return !entityDefinition.encrypted() && entityDefinition.counterFlushInterval() <= 0;
+    }
+
+    @Override
+    public <T> Supplier<List<T>> queryList(PgEntityDao<T> entityDao, QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
+        Assert.state(!this.executed, "MultiQuery already executed");
+        AbstractPgEntityDao<T> dao = toAbstractDao(entityDao);
+        int queryFrom = Math.max(from, 0);
+        int querySize = size <= 0 ? 100 : size;
+        SortBuilder querySort = dao.defaultSort(sort);
+        PgEntityExecutor pgEntityExecutor = dao.pgEntityExecutor;
+        boolean combinable = isCombinable(dao);
+        Part<List<T>> part = new Part<>(
+                combinable ? pgEntityExecutor.getMultiJdbcTemplate() : null,
+                combinable ? pgEntityExecutor.prepareQuery(queryBuilder, querySort, queryFrom, querySize) : null,
+                rs -> {
+                    List<JSONObject> entityJsonList = new ArrayList<>();
+                    while (rs.next()) {
+                        entityJsonList.add(pgEntityExecutor.resultToEntityJson(rs));
+                    }
+                    return XDataUtils.copy(entityJsonList, List.class, dao.entityClass);
+                },
+                () -> dao.queryList(queryBuilder, querySort, queryFrom, querySize));
+        this.parts.add(part);
+        return part;
+    }
+
+    @Override
+    public Supplier<Integer> queryCount(PgEntityDao<?> entityDao, QueryBuilder queryBuilder) {
+        Assert.state(!this.executed, "MultiQuery already executed");
+        AbstractPgEntityDao<?> dao = toAbstractDao(entityDao);
+        PgEntityExecutor pgEntityExecutor = dao.pgEntityExecutor;
+        boolean combinable = isCombinable(dao);
+        Part<Integer> part = new Part<>(
+                combinable ? pgEntityExecutor.getMultiJdbcTemplate() : null,
+                combinable ? pgEntityExecutor.prepareCount(queryBuilder) : null,
+                rs -> rs.next() ? rs.getInt(1) : 0,
+                () -> dao.queryCount(queryBuilder));
+        this.parts.add(part);
+        return part;
+    }
+
+    @Override
+    public void execute() {
+        Assert.state(!this.executed, "MultiQuery already executed");
+        this.executed = true;
+        Map<MultiJdbcTemplate, List<Part<?>>> groupMap = new LinkedHashMap<>();
+        for (Part<?> part : this.parts) {
+            if (part.statement() == null) {
+                part.runAlone();
+            } else {
+                groupMap.computeIfAbsent(part.multiJdbcTemplate(), k -> new ArrayList<>()).add(part);
+            }
+        }
+        groupMap.forEach((multiJdbcTemplate, group) -> {
+            if (group.size() == 1) {
+                group.getFirst().runAlone();
+            } else {
+                this.execute(multiJdbcTemplate, group);
+            }
+        });
+    }
+
+    private void execute(MultiJdbcTemplate multiJdbcTemplate, List<Part<?>> group) {
+        StringBuilder sql = new StringBuilder();
+        List<Object> values = new ArrayList<>();
+        for (Part<?> part : group) {
+            sql.append(part.statement().sql());
+            values.addAll(part.statement().values());
+        }
+        log.debug("MultiQuery: {}, {} statements", multiJdbcTemplate.getDbName(), group.size());
+        multiJdbcTemplate.getRandomSlave().execute(sql.toString(), (PreparedStatementCallback<Void>) ps -> {
+            new ArgumentPreparedStatementSetter(values.toArray()).setValues(ps);
+            ps.execute();
+            for (Part<?> part : group) {
+                try (ResultSet rs = ps.getResultSet()) {
+                    part.complete(rs);
+                }
+                ps.getMoreResults();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * SQL and bind values of one query.
+     */
+    record Statement(String sql, List<Object> values) {
+    }
+
+    private static final class Part<R> implements Supplier<R> {
+
+        private final MultiJdbcTemplate multiJdbcTemplate;
+
+        private final Statement statement;
+
+        private final ResultSetExtractor<R> extractor;
+
+        private final Supplier<R> fallback;
+
+        private R result;
+
+        private boolean done = false;
+
+        private Part(MultiJdbcTemplate multiJdbcTemplate, Statement statement, ResultSetExtractor<R> extractor, Supplier<R> fallback) {
+            this.multiJdbcTemplate = multiJdbcTemplate;
+            this.statement = statement;
+            this.extractor = extractor;
+            this.fallback = fallback;
+        }
+
+        private MultiJdbcTemplate multiJdbcTemplate() {
+            return this.multiJdbcTemplate;
+        }
+
+        private Statement statement() {
+            return this.statement;
+        }
+
+        private void complete(ResultSet rs) throws SQLException {
+            this.result = this.extractor.extractData(rs);
+            this.done = true;
+        }
+
+        private void runAlone() {
+            this.result = this.fallback.get();
+            this.done = true;
+        }
+
+        @Override
+        public R get() {
+            Assert.state(this.done, "MultiQuery not executed");
+            return this.result;
+        }
+    }
+}
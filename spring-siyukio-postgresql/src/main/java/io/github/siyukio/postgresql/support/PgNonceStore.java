@@ -0,0 +1,215 @@
+package io.github.siyukio.postgresql.support;
+
+import io.github.siyukio.tools.api.ApiProperties;
+import io.github.siyukio.tools.api.signature.NonceStore;
+import io.github.siyukio.tools.api.signature.RotatingNonceStore;
+import io.github.siyukio.tools.util.AsyncUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Nonce store shared by all nodes through an UNLOGGED PostgreSQL table.
+ * <p>
+ * A local {@link RotatingNonceStore} rejects replays on the same node without a round trip.
+ * Remaining checks are queued and a single flusher sends whatever has queued up as one
+ * insert-on-conflict statement, so concurrent requests share one round trip.
+ * Rows are bucketed by the signed timestamp and whole buckets are deleted once they leave the window.
+ * When the database cannot be reached the local result is used: a failed check switches the store to local-only
+ * mode for {@link #DEGRADED_MILLIS}, so an outage costs at most one short wait instead of one per request.
+ * <p>
+ * The window should match {@code spring.siyukio.signature.window}; the {@link ApiProperties} constructor reads it from there.
+ *
+ * @author Bugee
+ */
+@Slf4j
+public class PgNonceStore implements NonceStore, DisposableBean {
+
+    private final static String TABLE_NAME = "siyukio_nonce";
+
+    private final static int BATCH_SIZE = 512;
+
+    private final static long WAIT_TIMEOUT_MILLIS = 500;
+
+    private final static long DEGRADED_MILLIS = 30_000;
+
+    private final static String CREATE_TABLE_SQL = "CREATE UNLOGGED TABLE IF NOT EXISTS " + TABLE_NAME
+            + " (bucket BIGINT NOT NULL, nonce TEXT NOT NULL, PRIMARY KEY (bucket, nonce))";
+
+    private final static String INSERT_SQL = "INSERT INTO " + TABLE_NAME + " (bucket, nonce)"
+            + " SELECT * FROM unnest(?::BIGINT[], ?::TEXT[]) ON CONFLICT DO NOTHING RETURNING bucket, nonce";
+
+    private final static String PURGE_SQL = "DELETE FROM " + TABLE_NAME + " WHERE bucket < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long windowMillis;
+
+    private final long bucketMillis;
+
+    private final RotatingNonceStore localStore;
+
+    private final BlockingQueue<PendingNonce> queue = new LinkedBlockingQueue<>();
+
+    private final Thread flushThread;
+
+    private final ScheduledFuture<?> purgeFuture;
+
+    private volatile boolean running = true;
+
+    private final AtomicBoolean degraded = new AtomicBoolean(false);
+
+    private volatile long degradedUntil = 0;
+
+    public PgNonceStore(DataSource dataSource, ApiProperties apiProperties) {
+        this(dataSource, Duration.parse(apiProperties.getSignature().getWindow()));
+    }
+
+    public PgNonceStore(DataSource dataSource, Duration window) {
+        this(dataSource, window, Duration.ofMinutes(1));
+    }
+
+    public PgNonceStore(DataSource dataSource, Duration window, Duration bucket) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.windowMillis = window.toMillis();
+        this.bucketMillis = bucket.toMillis();
+        this.localStore = new RotatingNonceStore(window, bucket);
+        this.jdbcTemplate.execute(CREATE_TABLE_SQL);
+        this.flushThread = Thread.ofVirtual()
+                .name("siyukio-nonce-store")
+                .start(this::flushLoop);
+        this.purgeFuture = AsyncUtils.scheduleWithFixedDelay(this::purge, this.bucketMillis, this.bucketMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean tryUse(String nonce, long timestamp) {
+        if (!this.localStore.tryUse(nonce, timestamp)) {
+            return false;
+        }
+        PendingNonce pendingNonce = new PendingNonce(Math.floorDiv(timestamp, this.bucketMillis), nonce, new CompletableFuture<>());
+        if (!this.running || System.currentTimeMillis() < this.degradedUntil || !this.queue.offer(pendingNonce)) {
+            return true;
+        }
+        try {
+            return pendingNonce.future().get(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            this.degrade(e);
+            return true;
+        }
+    }
+
+    /**
+     * Skip the database for a while, logging only when the store turns degraded.
+     */
+    private void degrade(Exception e) {
+        this.degradedUntil = System.currentTimeMillis() + DEGRADED_MILLIS;
+        if (this.degraded.compareAndSet(false, true)) {
+            log.warn("PgNonceStore unavailable, use local nonces only and retry every {}ms: {}", DEGRADED_MILLIS, e.getMessage());
+        }
+    }
+
+    private void recover() {
+        if (this.degraded.compareAndSet(true, false)) {
+            log.info("PgNonceStore available again");
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingNonce> batch = new ArrayList<>(BATCH_SIZE);
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                PendingNonce pendingNonce = this.queue.poll(1, TimeUnit.SECONDS);
+                if (pendingNonce == null) {
+                    continue;
+                }
+                batch.add(pendingNonce);
+                // no linger, whatever queued up during the last round trip goes together
+                this.queue.drainTo(batch, BATCH_SIZE - 1);
+            } catch (InterruptedException e) {
+                this.running = false;
+            }
+            this.flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingNonce> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            Set<String> inserted = this.insert(batch);
+            this.recover();
+            for (PendingNonce pendingNonce : batch) {
+                // a key queued twice in one batch is inserted once, the first caller wins
+                pendingNonce.future().complete(inserted.remove(pendingNonce.key()));
+            }
+        } catch (Exception e) {
+            this.degrade(e);
+            for (PendingNonce pendingNonce : batch) {
+                pendingNonce.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private Set<String> insert(List<PendingNonce> batch) {
+        Long[] buckets = new Long[batch.size()];
+        String[] nonces = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            buckets[i] = batch.get(i).bucket();
+            nonces[i] = batch.get(i).nonce();
+        }
+        return this.jdbcTemplate.execute(INSERT_SQL, (PreparedStatement preparedStatement) -> {
+            Array bucketArray = preparedStatement.getConnection().createArrayOf("bigint", buckets);
+            Array nonceArray = preparedStatement.getConnection().createArrayOf("text", nonces);
+            preparedStatement.setArray(1, bucketArray);
+            preparedStatement.setArray(2, nonceArray);
+            Set<String> inserted = new HashSet<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    inserted.add(resultSet.getLong(1) + ":" + resultSet.getString(2));
+                }
+            } finally {
+                bucketArray.free();
+                nonceArray.free();
+            }
+            return inserted;
+        });
+    }
+
+    private void purge() {
+        long oldest = Math.floorDiv(System.currentTimeMillis() - this.windowMillis, this.bucketMillis);
+        try {
+            int num = this.jdbcTemplate.update(PURGE_SQL, oldest);
+            log.debug("PgNonceStore purged {} nonces", num);
+        } catch (Exception e) {
+            log.warn("PgNonceStore purge error: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        this.running = false;
+        this.purgeFuture.cancel(false);
+        this.flushThread.join(Duration.ofSeconds(5));
+    }
+
+    private record PendingNonce(long bucket, String nonce, CompletableFuture<Boolean> future) {
+
+        private String key() {
+            return this.bucket + ":" + this.nonce;
+        }
+    }
+}
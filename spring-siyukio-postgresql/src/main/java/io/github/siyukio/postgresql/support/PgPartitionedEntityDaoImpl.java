@@ -20,8 +20,8 @@ import java.util.List;
 @Slf4j
 public class PgPartitionedEntityDaoImpl<T> extends AbstractPgEntityDao<T> implements PgEntityDao<T> {
 
-    public PgPartitionedEntityDaoImpl(Class<T> entityClass, EntityExecutor entityExecutor) {
-        super(entityClass, entityExecutor);
+    public PgPartitionedEntityDaoImpl(Class<T> entityClass, EntityExecutor entityExecutor, PgEntityExecutor pgEntityExecutor) {
+        super(entityClass, entityExecutor, pgEntityExecutor);
     }
 
     @Override
@@ -29,6 +29,14 @@ public class PgPartitionedEntityDaoImpl<T> extends AbstractPgEntityDao<T> implem
         throw new UnsupportedOperationException("upsert not supported");
     }
 
+    @Override
+    protected SortBuilder defaultSort(SortBuilder sort) {
+        if (sort == null) {
+            sort = SortBuilders.fieldSort(EntityConstants.CREATED_AT_TS_FIELD).order(SortOrder.ASC);
+        }
+        return sort;
+    }
+
     @Override
     public List<T> queryList(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
         if (from < 0) {
@@ -37,9 +45,7 @@ public class PgPartitionedEntityDaoImpl<T> extends AbstractPgEntityDao<T> implem
         if (size <= 0) {
             size = 100;
         }
-        if (sort == null) {
-            sort = SortBuilders.fieldSort(EntityConstants.CREATED_AT_TS_FIELD).order(SortOrder.ASC);
-        }
+        sort = this.defaultSort(sort);
         List<JSONObject> entityJsonList = this.entityExecutor.query(queryBuilder, sort, from, size);
         return XDataUtils.copy(entityJsonList, List.class, this.entityClass);
     }
@@ -48,9 +54,7 @@ public class PgPartitionedEntityDaoImpl<T> extends AbstractPgEntityDao<T> implem
     public Page<T> queryPage(QueryBuilder queryBuilder, SortBuilder sort, int page, int size) {
         int total = this.queryCount(queryBuilder);
         int from = (page - 1) * size;
-        if (sort == null) {
-            sort = SortBuilders.fieldSort(EntityConstants.CREATED_AT_TS_FIELD).order(SortOrder.ASC);
-        }
+        sort = this.defaultSort(sort);
         List<T> items = this.queryList(queryBuilder, sort, from, size);
         return new Page<>(total, items);
     }
@@ -14,6 +14,7 @@ import io.github.siyukio.tools.util.XDataUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.postgresql.util.PGobject;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 import java.sql.SQLException;
@@ -90,6 +91,9 @@ public abstract class PgSqlUtils {
             ) VALUES (?, ?, ?, ?, ?);
             """;
 
+    private final static String CREATE_INSERT_NOTIFY_TRIGGER_TEMPLATE =
+            "CREATE OR REPLACE TRIGGER %s AFTER INSERT ON %s.%s FOR EACH ROW " +
+                    "EXECUTE FUNCTION public.notify_entity_cache_invalidation();";
     private final static String CREATE_CACHE_INVALIDATION_TRIGGER_TEMPLATE =
             "CREATE OR REPLACE TRIGGER %s AFTER UPDATE OR DELETE ON %s.%s FOR EACH ROW " +
                     "EXECUTE FUNCTION public.notify_entity_cache_invalidation();";
@@ -123,6 +127,10 @@ public abstract class PgSqlUtils {
             INSERT INTO %s.%s ( %s )
             VALUES ( %s );
             """;
+    private final static String INSERT_ROWS_TEMPLATE = """
+            INSERT INTO %s.%s ( %s )
+            VALUES %s;
+            """;
     private final static String INSERT_AND_RETURN_ID_TEMPLATE = """
             INSERT INTO %s.%s ( %s )
             VALUES ( %s )
@@ -133,6 +141,12 @@ public abstract class PgSqlUtils {
             SET %s
             WHERE %s;
             """;
+    private final static String INCREMENT_TEMPLATE = """
+            UPDATE %s.%s AS t
+            SET %s = t.%s + v.delta
+            FROM unnest(?::%s[], ?::bigint[]) AS v(id, delta)
+            WHERE t.%s = v.id;
+            """;
     private final static String UPSERT_TEMPLATE = """
             INSERT INTO %s.%s ( %s )
             VALUES ( %s )
@@ -161,6 +175,47 @@ public abstract class PgSqlUtils {
             %s
             LIMIT ? OFFSET ?;
             """;
+    private final static String QUERY_JSON_TEMPLATE = """
+            SELECT json_build_object('items', COALESCE(json_agg(t.item ORDER BY t.ord), '[]'::json))
+            FROM (
+                SELECT (SELECT to_json(r) FROM (SELECT %s) AS r) AS item, row_number() OVER (%s) AS ord
+                FROM %s.%s
+                WHERE %s
+                %s
+                LIMIT ? OFFSET ?
+            ) AS t;
+            """;
+    private final static String COPY_CSV_TEMPLATE = """
+            COPY (
+                SELECT %s FROM %s.%s
+                WHERE %s
+                %s
+            ) TO STDOUT WITH (FORMAT csv, HEADER true)
+            """;
+    // csv with control characters as quote and delimiter, so the json text is written unescaped
+    private final static String COPY_JSON_TEMPLATE = """
+            COPY (
+                SELECT row_to_json(t) FROM (
+                    SELECT %s FROM %s.%s
+                    WHERE %s
+                    %s
+                ) AS t
+            ) TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')
+            """;
+    private final static String CLAIM_TEMPLATE = """
+            WITH claimed AS (
+                SELECT %s FROM %s.%s
+                WHERE ( %s ) AND ( %s IS NULL OR %s <= ? )
+                %s
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE %s.%s AS t
+            SET %s = ?
+            FROM claimed
+            WHERE t.%s = claimed.%s
+            RETURNING t.*;
+            """;
     private final static String QUERY_BY_ID_TEMPLATE = """
             SELECT * FROM %s.%s
             WHERE %s;
@@ -173,6 +228,13 @@ public abstract class PgSqlUtils {
         return String.format(CREATE_CACHE_INVALIDATION_TRIGGER_TEMPLATE, triggerName, schema, table);
     }
 
+    public static String createInsertNotifyTriggerSql(EntityDefinition entityDefinition) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+        String triggerName = "trg_" + table + "_ins";
+        return String.format(CREATE_INSERT_NOTIFY_TRIGGER_TEMPLATE, triggerName, schema, table);
+    }
+
     public static String createSchemaIfNotExistsSql(String schemaName) {
         return "CREATE SCHEMA IF NOT EXISTS " + schemaName;
     }
@@ -208,6 +270,7 @@ public abstract class PgSqlUtils {
             case ColumnType.DOUBLE -> "DOUBLE PRECISION";
             case ColumnType.BOOLEAN -> "BOOLEAN";
             case ColumnType.JSON_OBJECT, ColumnType.JSON_ARRAY -> "JSON";
+            case ColumnType.BYTES -> "BYTEA";
             default -> "TEXT";
         };
     }
@@ -377,6 +440,34 @@ public abstract class PgSqlUtils {
         return sqlList;
     }
 
+    /**
+     * Build a multi-row insert with one value group per row.
+     *
+     * @param entityDefinition the entity definition
+     * @param withKey          whether the key column is written (false for database generated keys)
+     * @param rowCount         number of rows
+     * @return the insert sql
+     */
+    public static String insertRowsSql(EntityDefinition entityDefinition, boolean withKey, int rowCount) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+        List<String> columns = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        if (withKey) {
+            columns.add(entityDefinition.keyDefinition().columnName());
+            values.add("?");
+        }
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            columns.add(columnDefinition.columnName());
+            values.add("?");
+        }
+        String row = "( " + String.join(",", values) + " )";
+        String rows = String.join(",", Collections.nCopies(rowCount, row));
+
+        return String.format(INSERT_ROWS_TEMPLATE, schema, table, String.join(",", columns), rows);
+    }
+
     public static String insertAndReturnIdSql(EntityDefinition entityDefinition) {
         String schema = entityDefinition.schema();
         String table = entityDefinition.table();
@@ -502,6 +593,22 @@ public abstract class PgSqlUtils {
         return values;
     }
 
+    public static String incrementSql(EntityDefinition entityDefinition, String columnName) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+        KeyDefinition keyDefinition = entityDefinition.keyDefinition();
+        String keyType = getKeyArrayType(keyDefinition);
+        return String.format(INCREMENT_TEMPLATE, schema, table, columnName, columnName, keyType, keyDefinition.columnName());
+    }
+
+    private static String getKeyArrayType(KeyDefinition keyDefinition) {
+        return switch (keyDefinition.type()) {
+            case ColumnType.INT -> "int";
+            case ColumnType.BIGINT -> "bigint";
+            default -> "text";
+        };
+    }
+
     public static String deleteByIdSql(EntityDefinition entityDefinition) {
         String schema = entityDefinition.schema();
         String table = entityDefinition.table();
@@ -522,6 +629,17 @@ public abstract class PgSqlUtils {
         return String.format(QUERY_BY_ID_TEMPLATE, schema, table, where);
     }
 
+    public static String queryByIdsSql(EntityDefinition entityDefinition) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+
+        KeyDefinition keyDefinition = entityDefinition.keyDefinition();
+        // ids are bound as text[] and cast, so numeric keys keep their index
+        String where = keyDefinition.columnName() + " = ANY(?::" + getKeyArrayType(keyDefinition) + "[])";
+
+        return String.format(QUERY_BY_ID_TEMPLATE, schema, table, where);
+    }
+
     private static String escape(String keyword) {
         if (keyword == null) {
             return null;
@@ -793,6 +911,138 @@ public abstract class PgSqlUtils {
         return String.format(QUERY_TEMPLATE, schema, table, conditionSql, sortSql);
     }
 
+    /**
+     * Render a page as {@code {"items":[...]}} in the database, with one property per field.
+     * <p>
+     * json_agg does not keep the order of its input, so each row is numbered with the page sort
+     * and aggregated in that order. Unknown and BYTES fields are skipped, NULL values are rendered as null.
+     * Values: query values, size, from.
+     */
+    public static String queryJsonSql(EntityDefinition entityDefinition, QueryBuilder queryBuilder, SortBuilder sortBuilder,
+                                      Collection<String> fieldNames, Map<String, String> dictionaryMap) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+        String selectSql = toSelectSql(entityDefinition, fieldNames, dictionaryMap);
+        String conditionSql = toQuerySql(queryBuilder, dictionaryMap);
+        String sortSql = toSortSql(sortBuilder, dictionaryMap);
+        return String.format(QUERY_JSON_TEMPLATE, selectSql, sortSql, schema, table, conditionSql, sortSql);
+    }
+
+    /**
+     * Select the fields aliased to their names, skipping unknown and BYTES fields.
+     */
+    private static String toSelectSql(EntityDefinition entityDefinition, Collection<String> fieldNames, Map<String, String> dictionaryMap) {
+        Set<String> skipFieldSet = new HashSet<>();
+        for (ColumnDefinition columnDefinition : entityDefinition.columnDefinitions()) {
+            if (columnDefinition.type() == ColumnType.BYTES) {
+                skipFieldSet.add(columnDefinition.fieldName());
+            }
+        }
+        List<String> selectList = new ArrayList<>(fieldNames.size());
+        String columnName;
+        for (String fieldName : fieldNames) {
+            columnName = dictionaryMap.get(fieldName);
+            if (columnName == null || skipFieldSet.contains(fieldName)) {
+                continue;
+            }
+            selectList.add(columnName + " AS \"" + fieldName + "\"");
+        }
+        return String.join(", ", selectList);
+    }
+
+    /**
+     * COPY the matching rows TO STDOUT as CSV or one JSON object per line.
+     * <p>
+     * COPY takes no bind parameters, render the values with {@link #toLiteralSql}.
+     */
+    public static String copyOutSql(EntityDefinition entityDefinition, QueryBuilder queryBuilder, SortBuilder sortBuilder,
+                                    boolean json, Collection<String> fieldNames, Map<String, String> dictionaryMap) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+        String selectSql = toSelectSql(entityDefinition, fieldNames, dictionaryMap);
+        String conditionSql = toQuerySql(queryBuilder, dictionaryMap);
+        String sortSql = toSortSql(sortBuilder, dictionaryMap);
+        return String.format(json ? COPY_JSON_TEMPLATE : COPY_CSV_TEMPLATE, selectSql, schema, table, conditionSql, sortSql);
+    }
+
+    /**
+     * Replace the {@code ?} placeholders outside string literals with SQL literals of the values.
+     * <p>
+     * Strings are written as escape string constants {@code E'...'}, which read the same whether
+     * standard_conforming_strings is on or off.
+     */
+    public static String toLiteralSql(String sql, List<Object> values) {
+        StringBuilder result = new StringBuilder(sql.length() + values.size() * 16);
+        boolean quoted = false;
+        int index = 0;
+        char c;
+        for (int i = 0; i < sql.length(); i++) {
+            c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                Assert.isTrue(index < values.size(), "Missing value for placeholder " + index);
+                appendLiteral(result, values.get(index++));
+            } else {
+                result.append(c);
+            }
+        }
+        Assert.isTrue(index == values.size(), "Unused values: " + (values.size() - index));
+        return result.toString();
+    }
+
+    private static void appendLiteral(StringBuilder result, Object value) {
+        switch (value) {
+            case null -> result.append("NULL");
+            case Number number -> result.append(number);
+            case Boolean bool -> result.append(bool ? "TRUE" : "FALSE");
+            case Object[] array -> {
+                result.append("ARRAY[");
+                for (int i = 0; i < array.length; i++) {
+                    if (i > 0) {
+                        result.append(", ");
+                    }
+                    appendLiteral(result, array[i]);
+                }
+                result.append("]::text[]");
+            }
+            default -> appendStringLiteral(result, String.valueOf(value));
+        }
+    }
+
+    private static void appendStringLiteral(StringBuilder result, String value) {
+        result.append("E'");
+        char c;
+        for (int i = 0; i < value.length(); i++) {
+            c = value.charAt(i);
+            if (c == '\0') {
+                throw new IllegalArgumentException("Zero bytes may not occur in string literals");
+            }
+            if (c == '\'' || c == '\\') {
+                result.append(c);
+            }
+            result.append(c);
+        }
+        result.append('\'');
+    }
+
+    /**
+     * Select claimable rows with FOR UPDATE SKIP LOCKED and extend their lease in the same statement.
+     * <p>
+     * Values: query values, now, size, lease until.
+     */
+    public static String claimSql(EntityDefinition entityDefinition, QueryBuilder queryBuilder, SortBuilder sortBuilder,
+                                  String leaseColumn, Map<String, String> dictionaryMap) {
+        String schema = entityDefinition.schema();
+        String table = entityDefinition.table();
+        String keyColumn = entityDefinition.keyDefinition().columnName();
+        String conditionSql = toQuerySql(queryBuilder, dictionaryMap);
+        String sortSql = toSortSql(sortBuilder, dictionaryMap);
+        return String.format(CLAIM_TEMPLATE, keyColumn, schema, table, conditionSql, leaseColumn, leaseColumn, sortSql,
+                schema, table, leaseColumn, keyColumn, keyColumn);
+    }
+
     private static Object field2RowValue(JSONObject entityJson, ColumnDefinition columnDefinition) {
         Object value = entityJson.opt(columnDefinition.fieldName());
         if (columnDefinition.type() == ColumnType.JSON_ARRAY || columnDefinition.type() == ColumnType.JSON_OBJECT) {
@@ -1,6 +1,8 @@
 package io.github.siyukio.postgresql;
 
 import io.github.siyukio.postgresql.entity.PartitionedEntity;
+import io.github.siyukio.tools.api.dto.ListResponse;
+import io.github.siyukio.tools.api.dto.RawJson;
 import io.github.siyukio.tools.entity.EntityConstants;
 import io.github.siyukio.tools.entity.page.Page;
 import io.github.siyukio.tools.entity.postgresql.PgEntityDao;
@@ -12,12 +14,17 @@ import io.github.siyukio.tools.entity.sort.SortOrder;
 import io.github.siyukio.tools.util.IdUtils;
 import io.github.siyukio.tools.util.XDataUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * @author Bugee
@@ -26,6 +33,9 @@ import java.util.List;
 @SpringBootTest
 public class PartitionedEntityTests {
 
+    public record MessageItem(String id, String type, String message, long createdAtTs) {
+    }
+
     @Autowired
     private PgEntityDao<PartitionedEntity> partitionedPgEntityDao;
 
@@ -198,4 +208,34 @@ public class PartitionedEntityTests {
         Page<PartitionedEntity> page = this.partitionedPgEntityDao.queryPage(queryBuilder, sortBuilder, 0, 2);
         log.info("{}", XDataUtils.toPrettyJSONString(page));
     }
+
+    @Test
+    public void testQueryListJson() {
+        String message = "queryListJson-" + IdUtils.getUniqueId();
+        long now = System.currentTimeMillis();
+        List<String> ids = new ArrayList<>();
+        for (int i = 3; i > 0; i--) {
+            PartitionedEntity partitionedEntity = this.partitionedPgEntityDao.insert(PartitionedEntity.builder()
+                    .message(message)
+                    .createdAtTs(now - i * 1000L)
+                    .build());
+            ids.addFirst(partitionedEntity.id());
+        }
+
+        QueryBuilder queryBuilder = QueryBuilders.termQuery("message", message);
+        SortBuilder sortBuilder = SortBuilders.fieldSort(EntityConstants.CREATED_AT_TS_FIELD).order(SortOrder.DESC);
+        RawJson<ListResponse<MessageItem>> rawJson = this.partitionedPgEntityDao.queryListJson(queryBuilder, sortBuilder, 0, 10, MessageItem.class);
+        log.info("{}", rawJson.asString());
+
+        JSONArray items = new JSONObject(rawJson.asString()).getJSONArray("items");
+        assertEquals(ids.size(), items.length());
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject itemJson = items.getJSONObject(i);
+            // null values are rendered, not dropped
+            assertEquals(Set.of("id", "type", "message", "createdAtTs"), itemJson.keySet());
+            assertEquals(JSONObject.NULL, itemJson.get("type"));
+            assertEquals(ids.get(i), itemJson.getString("id"));
+            assertEquals(now - (i + 1) * 1000L, itemJson.getLong("createdAtTs"));
+        }
+    }
 }
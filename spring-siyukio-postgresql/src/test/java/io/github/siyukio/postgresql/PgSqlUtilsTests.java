@@ -0,0 +1,56 @@
+package io.github.siyukio.postgresql;
+
+import io.github.siyukio.postgresql.registrar.PostgresqlEntityRegistrar;
+import io.github.siyukio.postgresql.support.PgSqlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Bugee
+ */
+@Slf4j
+@SpringBootTest
+public class PgSqlUtilsTests {
+
+    private final static String TRICKY_VALUE = "it's a \\' trap \\\\ ' OR 1=1 --";
+
+    @Test
+    public void testToLiteralSql() {
+        List<Object> values = new ArrayList<>();
+        values.add(TRICKY_VALUE);
+        values.add(null);
+        values.add(3);
+        values.add(new Object[]{"a'b", "c\\d"});
+        String sql = PgSqlUtils.toLiteralSql("SELECT ?, ?, ?, ? WHERE 'x?' = 'x?'", values);
+        log.info("{}", sql);
+        assertEquals("SELECT E'it''s a \\\\'' trap \\\\\\\\ '' OR 1=1 --', NULL, 3, ARRAY[E'a''b', E'c\\\\d']::text[] WHERE 'x?' = 'x?'", sql);
+
+        assertThrows(IllegalArgumentException.class, () -> PgSqlUtils.toLiteralSql("SELECT ?", List.of("a\0b")));
+    }
+
+    @Test
+    public void testLiteralRoundTrip() throws Exception {
+        String sql = PgSqlUtils.toLiteralSql("SELECT ?", List.of(TRICKY_VALUE));
+        try (Connection connection = PostgresqlEntityRegistrar.getMultiJdbcTemplate("").getMasterDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String setting : List.of("on", "off")) {
+                statement.execute("SET standard_conforming_strings = " + setting);
+                try (ResultSet resultSet = statement.executeQuery(sql)) {
+                    resultSet.next();
+                    assertEquals(TRICKY_VALUE, resultSet.getString(1), "standard_conforming_strings = " + setting);
+                }
+            }
+            statement.execute("RESET standard_conforming_strings");
+        }
+    }
+}
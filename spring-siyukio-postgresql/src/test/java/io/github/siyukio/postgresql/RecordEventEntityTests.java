@@ -2,6 +2,8 @@ package io.github.siyukio.postgresql;
 
 import io.github.siyukio.postgresql.entity.RecordEventEntity;
 import io.github.siyukio.tools.entity.page.Page;
+import io.github.siyukio.tools.entity.postgresql.ExportFormat;
+import io.github.siyukio.tools.entity.postgresql.MultiQuery;
 import io.github.siyukio.tools.entity.postgresql.PgEntityDao;
 import io.github.siyukio.tools.entity.query.BoolQueryBuilder;
 import io.github.siyukio.tools.entity.query.QueryBuilder;
@@ -18,12 +20,18 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 /**
  * @author Bugee
  */
@@ -54,6 +62,7 @@ public class RecordEventEntityTests {
                 .error(false)
                 .costMs(1000)
                 .content("test")
+                .email("test@siyukio.io")
                 .type("user")
                 .rating(0.3)
                 .metadata(metadataJson)
@@ -94,6 +103,13 @@ public class RecordEventEntityTests {
         log.info("{}", XDataUtils.toPrettyJSONString(recordEventEntity));
     }
 
+    @Test
+    public void testQueryWithIdCached() {
+        RecordEventEntity first = this.recordEventPgEntityDao.queryById(this.id);
+        RecordEventEntity second = this.recordEventPgEntityDao.queryById(this.id);
+        log.info("{}", first == second);
+    }
+
     @Test
     public void testQueryAndUpdate() {
         RecordEventEntity recordEventEntity = this.recordEventPgEntityDao.queryById(this.id);
@@ -204,6 +220,61 @@ public class RecordEventEntityTests {
         log.info("{}", XDataUtils.toPrettyJSONString(recordEventEntities));
     }
 
+    @Test
+    public void testQueryByBlindIndex() {
+        QueryBuilder queryBuilder = QueryBuilders.termQuery("email", " Test@Siyukio.io");
+        List<RecordEventEntity> recordEventEntities = this.recordEventPgEntityDao.queryList(queryBuilder, 0, 10);
+        log.info("{}", XDataUtils.toPrettyJSONString(recordEventEntities));
+    }
+
+    @Test
+    public void testIncrement() {
+        for (int i = 0; i < 100; i++) {
+            this.recordEventPgEntityDao.increment(this.id, "total", 1);
+        }
+        RecordEventEntity recordEventEntity = this.recordEventPgEntityDao.queryById(this.id);
+        log.info("{}", XDataUtils.toPrettyJSONString(recordEventEntity));
+    }
+
+    @Test
+    public void testQueryByIds() {
+        List<RecordEventEntity> recordEventEntities = this.recordEventPgEntityDao.queryList(0, 10);
+        List<String> ids = recordEventEntities.stream().map(RecordEventEntity::id).collect(Collectors.toList());
+        ids.add(IdUtils.getUniqueId());
+        Map<String, RecordEventEntity> recordEventEntityMap = this.recordEventPgEntityDao.queryByIds(ids);
+        log.info("{}, {}", ids.size(), recordEventEntityMap.size());
+    }
+
+    @Test
+    public void testMultiQuery() {
+        QueryBuilder queryBuilder = QueryBuilders.termQuery("teamId", "aH8Hr9eALDDxJMX1thF5J");
+        SortBuilder sortBuilder = SortBuilders.fieldSort("createdAtTs").order(SortOrder.DESC);
+        MultiQuery multiQuery = this.recordEventPgEntityDao.multiQuery();
+        Supplier<List<RecordEventEntity>> items = multiQuery.queryList(this.recordEventPgEntityDao, queryBuilder, sortBuilder, 0, 10);
+        Supplier<Integer> total = multiQuery.queryCount(this.recordEventPgEntityDao, queryBuilder);
+        multiQuery.execute();
+        log.info("{}, {}", total.get(), items.get().size());
+    }
+
+    @Test
+    public void testQueryListJson() {
+        QueryBuilder queryBuilder = QueryBuilders.termQuery("teamId", "aH8Hr9eALDDxJMX1thF5J");
+        SortBuilder sortBuilder = SortBuilders.fieldSort("createdAtTs").order(SortOrder.DESC);
+        // encrypted columns can only be decrypted in the application
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> this.recordEventPgEntityDao.queryListJson(queryBuilder, sortBuilder, 0, 10, RecordEventEntity.class));
+        log.info("{}", ex.getMessage());
+    }
+
+    @Test
+    public void testExport() {
+        QueryBuilder queryBuilder = QueryBuilders.termQuery("teamId", "aH8Hr9eALDDxJMX1thF5J");
+        SortBuilder sortBuilder = SortBuilders.fieldSort("createdAtTs").order(SortOrder.DESC);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long rows = this.recordEventPgEntityDao.export(queryBuilder, sortBuilder, ExportFormat.JSON, outputStream);
+        log.info("{}: {}", rows, outputStream.toString(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testQueryPage() {
         Date maxDate = new Date();
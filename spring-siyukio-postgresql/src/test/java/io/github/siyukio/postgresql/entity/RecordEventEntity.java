@@ -23,7 +23,7 @@ import java.util.List;
         @PgIndex(columns = {"type"}),
         @PgIndex(columns = {"error", "rating"}),
         @PgIndex(columns = {"teamId", "userId"}, unique = true)
-}, cacheConfig = @CacheConfig(maximumSize = 10000))
+}, cacheConfig = @CacheConfig(maximumSize = 10000, refreshAfterWrite = 5, warmUpSize = 1000))
 @Builder
 @With
 public record RecordEventEntity(
@@ -40,6 +40,9 @@ public record RecordEventEntity(
         @PgColumn(encrypted = true)
         String encryptContent,
 
+        @PgColumn(encrypted = true, blindIndex = true)
+        String email,
+
         @PgColumn
         String salt,
 
@@ -1,14 +1,16 @@
 package io.github.siyukio.tools.api;
 
+import io.github.siyukio.tools.api.cache.ApiResponseCache;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.limit.ApiLimiter;
 import io.github.siyukio.tools.api.parameter.request.RequestValidator;
 import io.github.siyukio.tools.api.parameter.response.ResponseFilter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.Method;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author Buddy
@@ -18,23 +20,36 @@ public class AipHandlerManager {
 
     private final Map<String, ApiHandler> apiHandlerMap = new HashMap<>();
 
+    private final Map<Class<?>, List<ApiResponseCache>> entityResponseCacheMap = new ConcurrentHashMap<>();
+
     public void addApiHandler(ApiDefinition apiDefinition, Object bean, Method method) {
         RequestValidator requestValidator = RequestValidator.createRequestValidator(apiDefinition);
         ResponseFilter responseFilter = ResponseFilter.createResponseFilter(apiDefinition);
         ApiInvoker apiInvoker = new ApiInvoker(bean, method);
+        ApiLimiter apiLimiter = ApiLimiter.createApiLimiter(apiDefinition.id(), apiDefinition.limit());
+        ApiResponseCache responseCache = ApiResponseCache.createApiResponseCache(apiDefinition.responseCache());
+        if (responseCache != null) {
+            for (Class<?> entityClass : apiDefinition.responseCache().entities()) {
+                this.entityResponseCacheMap.computeIfAbsent(entityClass, key -> new CopyOnWriteArrayList<>()).add(responseCache);
+            }
+        }
         ApiHandler apiHandler = ApiHandler.builder()
                 .apiDefinition(apiDefinition)
                 .responseFilter(responseFilter)
                 .requestValidator(requestValidator)
                 .apiInvoker(apiInvoker)
+                .apiLimiter(apiLimiter)
+                .responseCache(responseCache)
                 .build();
 
         for (String path : apiDefinition.paths()) {
             this.apiHandlerMap.put(path, apiHandler);
-            log.info("Find api:{}, authorization:{}, signature:{}, acpAvailable:{}", path,
+            log.info("Find api:{}, authorization:{}, signature:{}, acpAvailable:{}, limit:{}, responseCache:{}", path,
                     apiDefinition.authorization(),
                     apiDefinition.signature(),
-                    apiDefinition.acpAvailable());
+                    apiDefinition.acpAvailable(),
+                    apiDefinition.limit(),
+                    responseCache != null);
         }
     }
 
@@ -42,6 +57,23 @@ public class AipHandlerManager {
         return this.apiHandlerMap.get(path);
     }
 
+    /**
+     * Resolve the handler for a request URI, which still carries the context path.
+     */
+    public ApiHandler resolveApiHandler(String requestUri) {
+        return this.apiHandlerMap.get(ApiProfiles.getApiPath(requestUri));
+    }
+
+    /**
+     * Drop the cached responses of every api built from the entity.
+     */
+    public void invalidateResponseCache(Class<?> entityClass) {
+        List<ApiResponseCache> responseCaches = this.entityResponseCacheMap.get(entityClass);
+        if (responseCaches != null) {
+            responseCaches.forEach(ApiResponseCache::invalidateAll);
+        }
+    }
+
     public Map<String, ApiHandler> getApiHandlerMap() {
         return Collections.unmodifiableMap(this.apiHandlerMap);
     }
@@ -1,6 +1,8 @@
 package io.github.siyukio.tools.api;
 
+import io.github.siyukio.tools.api.cache.ApiResponseCache;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.limit.ApiLimiter;
 import io.github.siyukio.tools.api.parameter.request.RequestValidator;
 import io.github.siyukio.tools.api.parameter.response.ResponseFilter;
 import lombok.Builder;
@@ -14,6 +16,8 @@ public record ApiHandler(
         ApiDefinition apiDefinition,
         RequestValidator requestValidator,
         ResponseFilter responseFilter,
-        ApiInvoker apiInvoker
+        ApiInvoker apiInvoker,
+        ApiLimiter apiLimiter,
+        ApiResponseCache responseCache
 ) {
 }
@@ -5,67 +5,102 @@ import io.github.siyukio.tools.util.XDataUtils;
 import lombok.ToString;
 import org.json.JSONObject;
 
-import java.lang.reflect.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
 
 /**
+ * Invokes an api method through a {@link MethodHandle}.
+ * <p>
+ * Parameter types and the request body types are resolved once when the api is registered,
+ * so each call only matches the extra arguments and binds the body.
+ *
  * @author Buddy
  */
-@ToString
+@ToString(of = "method")
 public class ApiInvoker {
 
-    private final Object bean;
-
     private final Method method;
 
+    private final MethodHandle methodHandle;
+
+    private final Class<?>[] parameterTypes;
+
+    private final Class<?>[] boxedTypes;
+
+    private final JavaType[] bodyTypes;
+
     public ApiInvoker(Object bean, Method method) {
-        this.bean = bean;
         this.method = method;
+        Parameter[] parameters = method.getParameters();
+        this.parameterTypes = new Class<?>[parameters.length];
+        this.boxedTypes = new Class<?>[parameters.length];
+        this.bodyTypes = new JavaType[parameters.length];
+        for (int index = 0; index < parameters.length; index++) {
+            this.parameterTypes[index] = parameters[index].getType();
+            this.boxedTypes[index] = MethodType.methodType(this.parameterTypes[index]).wrap().returnType();
+            this.bodyTypes[index] = XDataUtils.OBJECT_MAPPER.getTypeFactory().constructType(parameters[index].getParameterizedType());
+        }
+        try {
+            if (!method.canAccess(Modifier.isStatic(method.getModifiers()) ? null : bean)) {
+                method.setAccessible(true);
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                handle = handle.bindTo(bean);
+            }
+            this.methodHandle = handle.asSpreader(Object[].class, parameters.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException("Cannot access api method: " + method, ex);
+        }
     }
 
-    private int supportsParameter(Parameter parameter, Object... objects) {
-        Object obj;
-        for (int i = 0; i < objects.length; i++) {
-            obj = objects[i];
-            if (parameter.getType().equals(obj.getClass()) || parameter.getType().isInstance(obj)) {
-                return i;
+    public Method getMethod() {
+        return this.method;
+    }
+
+    /**
+     * The type the request body is bound to for the parameter at the index.
+     */
+    public JavaType getBodyType(int index) {
+        return this.bodyTypes[index];
+    }
+
+    private Object bind(int index, JSONObject requestBody, Object... objects) {
+        Class<?> boxedType = this.boxedTypes[index];
+        for (Object obj : objects) {
+            if (boxedType.isInstance(obj)) {
+                return obj;
             }
         }
-        return -1;
+        Object value = requestBody == null ? null : XDataUtils.copy(requestBody, this.bodyTypes[index]);
+        //Checked here, so the handle's own argument conversion can never fail inside invokeExact.
+        if (value == null ? this.parameterTypes[index].isPrimitive() : !boxedType.isInstance(value)) {
+            throw new IllegalArgumentException("Cannot bind parameter " + index + " of api method: " + this.method);
+        }
+        return value;
     }
 
     public Object invoke(JSONObject requestBody, Object... objects) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-        Parameter[] parameters = this.method.getParameters();
-        Object[] args = new Object[parameters.length];
-        Parameter parameter;
-        Object obj;
-        int objIndex;
-        for (int index = 0; index < parameters.length; index++) {
-            parameter = parameters[index];
-            objIndex = this.supportsParameter(parameter, objects);
-            if (objIndex >= 0) {
-                obj = objects[objIndex];
-            } else if (requestBody != null) {
-                Class<?> subType = null;
-                if (parameter.getParameterizedType() instanceof ParameterizedType parameterizedType) {
-                    Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
-                    Type actualType = actualTypeArguments[0];
-                    if (!(actualType instanceof TypeVariable)) {
-                        subType = (Class<?>) actualType;
-                    }
-                }
-                if (subType == null) {
-                    obj = XDataUtils.copy(requestBody, parameter.getType());
-                } else {
-                    JavaType javaType = XDataUtils.OBJECT_MAPPER.getTypeFactory().constructParametricType(parameter.getType(), subType);
-                    obj = XDataUtils.copy(requestBody, javaType);
-                }
-            } else {
-                obj = null;
-            }
-            args[index] = obj;
+        Object[] args = new Object[this.parameterTypes.length];
+        for (int index = 0; index < args.length; index++) {
+            args[index] = this.bind(index, requestBody, objects);
+        }
+        try {
+            return (Object) this.methodHandle.invokeExact(args);
+        } catch (WrongMethodTypeException ex) {
+            throw new IllegalArgumentException("Cannot invoke api method: " + this.method, ex);
+        } catch (Error error) {
+            throw error;
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
         }
-
-        return this.method.invoke(bean, args);
     }
 
 }
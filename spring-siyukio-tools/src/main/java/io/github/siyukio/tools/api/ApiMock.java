@@ -2,6 +2,8 @@ package io.github.siyukio.tools.api;
 
 import com.fasterxml.jackson.databind.JavaType;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.dto.RawJson;
+import io.github.siyukio.tools.api.limit.ApiAdmission;
 import io.github.siyukio.tools.api.signature.SignatureProvider;
 import io.github.siyukio.tools.api.token.Token;
 import io.github.siyukio.tools.api.token.TokenProvider;
@@ -11,14 +13,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 
 @Slf4j
@@ -36,18 +35,14 @@ public class ApiMock {
     @Autowired
     private TokenProvider tokenProvider;
 
+    @Autowired
+    private ApiAdmission apiAdmission;
+
     public void setAuthorization(String authorization) {
         this.token = this.tokenProvider.verifyToken(authorization);
     }
 
-    public JSONObject perform(String path, Object request) {
-        JSONObject requestJson = XDataUtils.copy(request, JSONObject.class);
-
-        ApiHandler apiHandler = this.aipHandlerManager.getApiHandler(path);
-        if (apiHandler == null) {
-            throw new ApiException(HttpStatus.NOT_FOUND);
-        }
-
+    private JSONObject validate(ApiHandler apiHandler, JSONObject requestJson) {
         if (apiHandler.apiDefinition().signature()) {
             long timestamp = requestJson.optLong("timestamp", 0);
             String nonce = requestJson.optString("nonce");
@@ -77,19 +72,30 @@ public class ApiMock {
                 }
             }
 
-            if (!CollectionUtils.isEmpty(authorization.scopes())) {
-                Set<String> scopeSet = new HashSet<>(authorization.scopes());
-                if (!CollectionUtils.isEmpty(principal.scopes())) {
-                    scopeSet.retainAll(principal.scopes());
-                }
-
-                if (scopeSet.isEmpty()) {
-                    throw new ApiException(HttpStatus.FORBIDDEN);
-                }
+            if (!authorization.allowsScopes(principal.scopes())) {
+                throw new ApiException(HttpStatus.FORBIDDEN);
             }
         }
 
-        requestJson = apiHandler.requestValidator().validate(requestJson);
+        return apiHandler.requestValidator().validate(requestJson);
+    }
+
+    public JSONObject perform(String path, Object request) {
+        JSONObject requestJson = XDataUtils.copy(request, JSONObject.class);
+
+        ApiHandler apiHandler = this.aipHandlerManager.getApiHandler(path);
+        if (apiHandler == null) {
+            throw new ApiException(HttpStatus.NOT_FOUND);
+        }
+
+        //Admitted like the interceptor does, a call rejected before the invocation returns its permit without a sample.
+        long admitted = this.apiAdmission.admit(apiHandler);
+        try {
+            requestJson = this.validate(apiHandler, requestJson);
+        } catch (RuntimeException ex) {
+            this.apiAdmission.cancel(apiHandler);
+            throw ex;
+        }
 
         List<Object> paramList = new ArrayList<>();
         if (token != null) {
@@ -105,6 +111,8 @@ public class ApiMock {
         } catch (InvocationTargetException ex) {
             Throwable throwable = ex.getTargetException();
             throw ApiException.getUnknownApiException(throwable);
+        } finally {
+            this.apiAdmission.release(apiHandler, admitted);
         }
 
         Class<?> returnType = apiHandler.apiDefinition().realReturnType();
@@ -113,10 +121,11 @@ public class ApiMock {
             return new JSONObject();
         }
 
-        JSONObject resultJson = XDataUtils.copy(resultValue, JSONObject.class);
+        if (resultValue instanceof RawJson<?> rawJson) {
+            return rawJson.toJSONObject();
+        }
 
-        apiHandler.responseFilter().filter(resultJson);
-        return resultJson;
+        return apiHandler.responseFilter().toJSONObject(resultValue);
     }
 
     public <T> T perform(String path, Object request, Class<T> responseClass) {
@@ -18,8 +18,8 @@ public abstract class ApiProfiles {
     public static int PORT = -1;
 
     public static String getApiPath(String path) {
-        if (!CONTEXT_PATH.isEmpty()) {
-            path = path.replaceFirst(CONTEXT_PATH, "");
+        if (!CONTEXT_PATH.isEmpty() && path.startsWith(CONTEXT_PATH)) {
+            path = path.substring(CONTEXT_PATH.length());
         }
         return path;
     }
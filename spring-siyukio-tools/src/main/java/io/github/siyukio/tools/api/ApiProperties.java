@@ -2,6 +2,9 @@ package io.github.siyukio.tools.api;
 
 import org.springframework.util.Assert;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class ApiProperties {
 
     public static final String CONFIG_PREFIX = "spring.siyukio";
@@ -16,6 +19,11 @@ public class ApiProperties {
      */
     private Signature signature = new Signature();
 
+    /**
+     * Global admission limits shared by all APIs.
+     */
+    private Limit limit = new Limit();
+
     /**
      * Profile and environment configuration.
      */
@@ -39,6 +47,15 @@ public class ApiProperties {
         this.signature = signature;
     }
 
+    public Limit getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Limit limit) {
+        Assert.notNull(limit, "Limit configuration must not be null");
+        this.limit = limit;
+    }
+
     public Profiles getProfiles() {
         return profiles;
     }
@@ -67,6 +84,20 @@ public class ApiProperties {
          */
         private String privateKey = "";
 
+        /**
+         * Key id of the configured key pair.
+         * <p>
+         * Written as kid into new tokens so verification can pick the key directly during rotation.
+         */
+        private String keyId = "";
+
+        /**
+         * Additional public keys by key id, usually the keys being rotated out.
+         * <p>
+         * Tokens signed with any of them stay valid until they expire.
+         */
+        private Map<String, String> publicKeyRing = new HashMap<>();
+
         /**
          * JWT password for additional token security.
          * <p>
@@ -106,6 +137,23 @@ public class ApiProperties {
             this.privateKey = privateKey;
         }
 
+        public String getKeyId() {
+            return keyId;
+        }
+
+        public void setKeyId(String keyId) {
+            this.keyId = keyId;
+        }
+
+        public Map<String, String> getPublicKeyRing() {
+            return publicKeyRing;
+        }
+
+        public void setPublicKeyRing(Map<String, String> publicKeyRing) {
+            Assert.notNull(publicKeyRing, "Public key ring must not be null");
+            this.publicKeyRing = publicKeyRing;
+        }
+
         public String getPassword() {
             return password;
         }
@@ -145,6 +193,22 @@ public class ApiProperties {
          */
         private String salt = "siyukio";
 
+        /**
+         * How far back a signed timestamp is accepted.
+         * <p>
+         * Used nonces are kept for this long, so memory grows with signed request rate times window.
+         * Default value is P1D (1 day) in ISO-8601 duration format.
+         */
+        private String window = "P1D";
+
+        /**
+         * Flag to keep accepting the legacy md5 signature.
+         * <p>
+         * The legacy scheme does not cover the method, path or body; disable it once all clients
+         * send HMAC-SHA256 signatures.
+         */
+        private Boolean legacyEnabled = true;
+
         public String getSalt() {
             return salt;
         }
@@ -153,6 +217,79 @@ public class ApiProperties {
             Assert.hasText(salt, "Signature salt must not be empty");
             this.salt = salt;
         }
+
+        public String getWindow() {
+            return window;
+        }
+
+        public void setWindow(String window) {
+            Assert.hasText(window, "Signature window must not be empty");
+            this.window = window;
+        }
+
+        public Boolean getLegacyEnabled() {
+            return legacyEnabled;
+        }
+
+        public void setLegacyEnabled(Boolean legacyEnabled) {
+            Assert.notNull(legacyEnabled, "Signature legacy enabled flag must not be null");
+            this.legacyEnabled = legacyEnabled;
+        }
+    }
+
+    /**
+     * Global admission limit properties.
+     */
+    public static class Limit {
+
+        /**
+         * Requests per second admitted across all APIs.
+         * <p>
+         * Default value is 0, no rate limit.
+         */
+        private Double rate = 0d;
+
+        /**
+         * Token bucket capacity of the rate limit.
+         * <p>
+         * Default value is 0, one second of the rate.
+         */
+        private Integer burst = 0;
+
+        /**
+         * Upper bound of the adaptive concurrency limit across all APIs.
+         * <p>
+         * The limit follows observed latency below this bound, requests beyond it are rejected with 503.
+         * Default value is 0, no concurrency limit.
+         */
+        private Integer maxConcurrency = 0;
+
+        public Double getRate() {
+            return rate;
+        }
+
+        public void setRate(Double rate) {
+            Assert.notNull(rate, "Limit rate must not be null");
+            this.rate = rate;
+        }
+
+        public Integer getBurst() {
+            return burst;
+        }
+
+        public void setBurst(Integer burst) {
+            Assert.notNull(burst, "Limit burst must not be null");
+            this.burst = burst;
+        }
+
+        public Integer getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(Integer maxConcurrency) {
+            Assert.notNull(maxConcurrency, "Limit max concurrency must not be null");
+            this.maxConcurrency = maxConcurrency;
+        }
     }
 
     /**
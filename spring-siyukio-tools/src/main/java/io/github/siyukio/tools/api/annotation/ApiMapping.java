@@ -58,4 +58,14 @@ public @interface ApiMapping {
      * Whether available for ACP protocol calls.
      */
     boolean acpAvailable() default false;
+
+    /**
+     * Admission limits, checked before the request body is read.
+     */
+    Limit limit() default @Limit;
+
+    /**
+     * Server-side cache of serialized responses, disabled by default.
+     */
+    ResponseCache responseCache() default @ResponseCache;
 }
@@ -0,0 +1,31 @@
+package io.github.siyukio.tools.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Admission limits of an api.
+ *
+ * @author Buddy
+ */
+@Target({ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Limit {
+
+    /**
+     * Requests per second admitted by the token bucket, 0 disables the rate limit.
+     */
+    double rate() default 0;
+
+    /**
+     * Token bucket capacity, 0 uses one second of the rate.
+     */
+    int burst() default 0;
+
+    /**
+     * Upper bound of the adaptive concurrency limit, 0 disables the concurrency limit.
+     */
+    int maxConcurrency() default 0;
+}
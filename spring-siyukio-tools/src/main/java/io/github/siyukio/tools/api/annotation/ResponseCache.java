@@ -0,0 +1,74 @@
+package io.github.siyukio.tools.api.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side cache of serialized api responses.
+ * <p>
+ * Only for apis that return the same result for the same validated request.
+ * <p>
+ * Headers and the query string are not part of the key, and a hit only replays the body with its ETag,
+ * so headers set by the api method are not sent. Apis taking {@code ApiRequest}, servlet or Spring web
+ * parameters are rejected when registered.
+ *
+ * @author Buddy
+ */
+@Target({ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ResponseCache {
+
+    /**
+     * Maximum number of cached responses.
+     * <p>
+     * Set to 0 to disable caching.
+     *
+     * @return the maximum size, defaults to 0 (disabled)
+     */
+    long maximumSize() default 0;
+
+    /**
+     * Maximum size of all cached responses in bytes.
+     * <p>
+     * When greater than 0 the cache is bounded by weight instead of maximumSize.
+     *
+     * @return the maximum weight in bytes, defaults to 0 (bounded by maximumSize)
+     */
+    long maximumWeight() default 0;
+
+    /**
+     * Time unit for expiration duration.
+     *
+     * @return the time unit, defaults to SECONDS
+     */
+    TimeUnit expireUnit() default TimeUnit.SECONDS;
+
+    /**
+     * Duration after which a cached response expires.
+     *
+     * @return the expiration duration, defaults to 60 seconds
+     */
+    long expireAfterWrite() default 60;
+
+    /**
+     * Whether responses are cached per principal.
+     * <p>
+     * Required when the result depends on the caller. Apis requiring authorization are always cached per principal.
+     *
+     * @return true to add the principal to the cache key, defaults to false
+     */
+    boolean principal() default false;
+
+    /**
+     * Entities the response is built from.
+     * <p>
+     * Every change of one of them drops all cached responses of the api.
+     * PostgreSQL entities need {@code @PgEntity(changeFeed = true)}.
+     *
+     * @return the entity classes
+     */
+    Class<?>[] entities() default {};
+}
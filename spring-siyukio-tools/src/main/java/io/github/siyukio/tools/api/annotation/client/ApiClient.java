@@ -51,6 +51,13 @@ public @interface ApiClient {
      */
     boolean loadBalance() default false;
 
+    /**
+     * Sign every request with HMAC-SHA256 using the application signature salt, default is false.
+     * <p>
+     * When false, a request is still signed if it sets the signature-algorithm header.
+     */
+    boolean signature() default false;
+
     /**
      * Cache configuration for the client request.
      *
@@ -0,0 +1,124 @@
+package io.github.siyukio.tools.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.github.siyukio.tools.api.ApiException;
+import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.token.Token;
+import io.github.siyukio.tools.util.CacheUtils;
+import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of serialized responses of one api.
+ * <p>
+ * The key is a digest of the api path, the principal and actor when configured or the api requires authorization,
+ * and the validated request written with sorted keys, so requests differing only in key order or omitted defaults
+ * share an entry. Headers and the query string are not part of the key.
+ * A response computed while the cache was invalidated is returned but not stored, so it cannot outlive the change.
+ *
+ * @author Buddy
+ */
+public final class ApiResponseCache {
+
+    private final static ObjectMapper CANONICAL_MAPPER = XDataUtils.OBJECT_MAPPER.copy()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final static HexFormat HEX_FORMAT = HexFormat.of();
+
+    private final boolean principal;
+
+    private final Cache<String, CachedResponse> cache;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private ApiResponseCache(ApiDefinition.ResponseCache responseCache) {
+        this.principal = responseCache.principal();
+        this.cache = CacheUtils.createCache(responseCache.cacheDefinition(),
+                (key, value) -> key.length() + value.body().length + value.etag().length());
+    }
+
+    /**
+     * @return null when the api does not cache responses
+     */
+    public static ApiResponseCache createApiResponseCache(ApiDefinition.ResponseCache responseCache) {
+        if (responseCache == null) {
+            return null;
+        }
+        return new ApiResponseCache(responseCache);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not found");
+        }
+    }
+
+    private static String canonicalize(TokenBuffer requestBodyTokens) throws IOException {
+        Object requestBody = CANONICAL_MAPPER.readValue(requestBodyTokens.asParser(), Object.class);
+        if (requestBody instanceof JSONObject requestJson) {
+            // validated bodies that were not streamed are buffered as one JSONObject
+            requestBody = requestJson.toMap();
+        }
+        return CANONICAL_MAPPER.writeValueAsString(requestBody);
+    }
+
+    public Key createKey(String path, Token token, TokenBuffer requestBodyTokens) {
+        long generation = this.generation.get();
+        StringBuilder keyBuilder = new StringBuilder(path).append('\n');
+        if (this.principal && token != null) {
+            keyBuilder.append(XDataUtils.toJSONString(token.principal()));
+            keyBuilder.append('\n');
+            if (token.actor() != null) {
+                keyBuilder.append(XDataUtils.toJSONString(token.actor()));
+            }
+        }
+        keyBuilder.append('\n');
+        try {
+            keyBuilder.append(canonicalize(requestBodyTokens));
+        } catch (IOException e) {
+            throw ApiException.getUnknownApiException(e);
+        }
+        String value = HEX_FORMAT.formatHex(sha256(keyBuilder.toString().getBytes(StandardCharsets.UTF_8)));
+        return new Key(value, generation);
+    }
+
+    public CachedResponse get(Key key) {
+        return this.cache.getIfPresent(key.value());
+    }
+
+    public CachedResponse put(Key key, byte[] body) {
+        String etag = "\"" + HEX_FORMAT.formatHex(Arrays.copyOf(sha256(body), 16)) + "\"";
+        CachedResponse cachedResponse = new CachedResponse(body, etag);
+        if (this.generation.get() == key.generation()) {
+            this.cache.put(key.value(), cachedResponse);
+        }
+        return cachedResponse;
+    }
+
+    public void invalidateAll() {
+        this.generation.incrementAndGet();
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * @param generation the invalidation count when the key was created
+     */
+    public record Key(
+            String value,
+            long generation
+    ) {
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.siyukio.tools.api.cache;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * A serialized api response and its entity tag.
+ *
+ * @author Buddy
+ */
+public record CachedResponse(
+        byte[] body,
+        String etag
+) {
+
+    /**
+     * Whether an If-None-Match header matches this response.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(this.etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
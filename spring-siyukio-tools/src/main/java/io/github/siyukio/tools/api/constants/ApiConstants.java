@@ -13,6 +13,14 @@ public interface ApiConstants {
 
     String ATTRIBUTE_REQUEST_BODY_JSON = "siyukio.requestBodyJson";
 
+    String ATTRIBUTE_REQUEST_BODY_TOKENS = "siyukio.requestBodyTokens";
+
+    String ATTRIBUTE_API_HANDLER = "siyukio.apiHandler";
+
+    String ATTRIBUTE_ADMITTED = "siyukio.admitted";
+
+    String ATTRIBUTE_RESPONSE_CACHE_KEY = "siyukio.responseCacheKey";
+
 
     //error message
 
@@ -38,6 +46,9 @@ public interface ApiConstants {
     String ERROR_PARAMETER_REQUIRED_OBJECT_FORMAT =
             "The parameter '%s' must be an object.";
 
+    String ERROR_PARAMETER_DUPLICATE_FORMAT =
+            "The parameter '%s' must not be repeated.";
+
 
     String ERROR_PARAMETER_REQUIRED_BOOLEAN_FORMAT =
             "The parameter '%s' must be a boolean value [true|false|1|0].";
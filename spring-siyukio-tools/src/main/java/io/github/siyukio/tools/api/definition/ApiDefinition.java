@@ -1,9 +1,11 @@
 package io.github.siyukio.tools.api.definition;
 
+import io.github.siyukio.tools.cache.definition.CacheDefinition;
 import lombok.Builder;
 import lombok.With;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Buddy
@@ -20,6 +22,8 @@ public record ApiDefinition(
         Authorization authorization,
         boolean signature,
         boolean acpAvailable,
+        Limit limit,
+        ResponseCache responseCache,
         ApiRequestParameter requestBodyParameter,
         ApiResponseParameter responseBodyParameter,
         Class<?> returnType,
@@ -30,9 +34,46 @@ public record ApiDefinition(
     @With
     public record Authorization(
             String type,
-            List<String> scopes,
+            Set<String> scopes,
             String actorType
     ) {
 
+        /**
+         * Whether a principal with these scopes may call the api.
+         * No required scopes, or a principal without scopes, is allowed; otherwise one scope must match.
+         */
+        public boolean allowsScopes(List<String> principalScopes) {
+            if (this.scopes == null || this.scopes.isEmpty() || principalScopes == null || principalScopes.isEmpty()) {
+                return true;
+            }
+            for (String scope : principalScopes) {
+                if (this.scopes.contains(scope)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Admission limits, null when the api is not limited.
+     */
+    @Builder
+    public record Limit(
+            double rate,
+            int burst,
+            int maxConcurrency
+    ) {
+    }
+
+    /**
+     * Response cache settings, null when responses are not cached.
+     */
+    @Builder
+    public record ResponseCache(
+            CacheDefinition cacheDefinition,
+            boolean principal,
+            Set<Class<?>> entities
+    ) {
     }
 }
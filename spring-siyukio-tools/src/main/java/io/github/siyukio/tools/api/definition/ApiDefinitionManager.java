@@ -4,6 +4,7 @@ import io.github.siyukio.tools.acp.sdk.agent.AcpSessionContext;
 import io.github.siyukio.tools.api.ApiRequest;
 import io.github.siyukio.tools.api.annotation.*;
 import io.github.siyukio.tools.api.token.Token;
+import io.github.siyukio.tools.cache.definition.CacheDefinition;
 import io.github.siyukio.tools.util.XDataUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StringUtils;
@@ -89,7 +90,12 @@ public final class ApiDefinitionManager {
                 ParameterizedType listGenericType = (ParameterizedType) generictype;
                 Type[] listActualTypeArguments = listGenericType.getActualTypeArguments();
                 if (listActualTypeArguments.length > 0) {
-                    returnValueType = (Class<?>) listActualTypeArguments[0];
+                    if (listActualTypeArguments[0] instanceof ParameterizedType parameterizedType) {
+                        // RawJson<PageResponse<T>>
+                        returnValueType = (Class<?>) parameterizedType.getRawType();
+                    } else {
+                        returnValueType = (Class<?>) listActualTypeArguments[0];
+                    }
                     break;
                 }
             }
@@ -97,6 +103,16 @@ public final class ApiDefinitionManager {
         return returnValueType;
     }
 
+    private Type getResponseGenericType(Method method) {
+        Type generictype = method.getGenericReturnType();
+        for (Class<?> clazz : alternativeSet) {
+            if (clazz.isAssignableFrom(method.getReturnType()) && generictype instanceof ParameterizedType parameterizedType) {
+                return parameterizedType.getActualTypeArguments()[0];
+            }
+        }
+        return generictype;
+    }
+
     private ApiDefinition parseMethod(Class<?> type, Method method, ApiController apiController, ApiMapping apiMapping) {
         // Create request parameter
         Map<String, ApiRequestParameter> requestBodyChildMap = new LinkedHashMap<>();
@@ -186,14 +202,14 @@ public final class ApiDefinitionManager {
         if (apiController.authorization().state().equals(Authorization.State.REQUIRED)) {
             authorization = new ApiDefinition.Authorization(
                     apiController.authorization().type(),
-                    List.of(apiController.authorization().scopes()),
+                    Set.copyOf(Arrays.asList(apiController.authorization().scopes())),
                     apiController.authorization().actorType());
         }
         switch (apiMapping.authorization().state()) {
             case REQUIRED:
                 authorization = new ApiDefinition.Authorization(
                         apiMapping.authorization().type(),
-                        List.of(apiMapping.authorization().scopes()),
+                        Set.copyOf(Arrays.asList(apiMapping.authorization().scopes())),
                         apiMapping.authorization().actorType());
                 break;
             case DISABLED:
@@ -213,6 +229,41 @@ public final class ApiDefinitionManager {
             acpAvailable = apiController.acpAvailable();
         }
 
+        ApiDefinition.Limit limit = null;
+        Limit apiLimit = apiMapping.limit();
+        if (apiLimit.rate() > 0 || apiLimit.maxConcurrency() > 0) {
+            limit = new ApiDefinition.Limit(apiLimit.rate(), apiLimit.burst(), apiLimit.maxConcurrency());
+        }
+
+        ApiDefinition.ResponseCache responseCache = null;
+        ResponseCache apiResponseCache = apiMapping.responseCache();
+        if (apiResponseCache.maximumSize() > 0 || apiResponseCache.maximumWeight() > 0) {
+            //The key only covers the path, the caller and the validated body, and a hit only replays the body,
+            //so apis reading headers or the query string, or writing headers, cannot be cached.
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                if (parameterType == ApiRequest.class || parameterType.getName().startsWith("jakarta.servlet.")
+                        || parameterType.getName().startsWith("org.springframework.http.")
+                        || parameterType.getName().startsWith("org.springframework.web.")) {
+                    throw new IllegalArgumentException(type.getName() + "." + method.getName() + " responseCache unsupported parameterType:" + parameterType.getSimpleName());
+                }
+            }
+            CacheDefinition cacheDefinition = new CacheDefinition(
+                    apiResponseCache.maximumSize(),
+                    apiResponseCache.maximumWeight(),
+                    false,
+                    apiResponseCache.expireUnit(),
+                    0,
+                    apiResponseCache.expireAfterWrite(),
+                    0,
+                    false,
+                    0,
+                    "");
+            //Authorized responses are always per caller, one caller's response must never reach another.
+            boolean principal = apiResponseCache.principal() || authorization != null;
+            responseCache = new ApiDefinition.ResponseCache(cacheDefinition, principal,
+                    Set.copyOf(Arrays.asList(apiResponseCache.entities())));
+        }
+
         ApiDefinition.ApiDefinitionBuilder builder = ApiDefinition.builder();
         builder.id(type.getSimpleName() + "_" + method.getName())
                 .paths(new ArrayList<>())
@@ -223,6 +274,8 @@ public final class ApiDefinitionManager {
                 .signature(signature)
                 .tags(List.of(apiController.tags()))
                 .acpAvailable(acpAvailable)
+                .limit(limit)
+                .responseCache(responseCache)
                 .returnType(method.getReturnType())
                 .realReturnType(returnValueType)
                 .requestBodyParameter(requestBodyParameter)
@@ -559,7 +612,7 @@ public final class ApiDefinitionManager {
         //Type = T
         Class<?> subType = null;
         //find in method
-        generictype = method.getGenericReturnType();
+        generictype = this.getResponseGenericType(method);
         if (generictype instanceof ParameterizedType parameterizedType) {
             Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
             subType = (Class<?>) actualTypeArguments[0];
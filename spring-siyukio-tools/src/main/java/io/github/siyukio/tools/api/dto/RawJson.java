@@ -0,0 +1,29 @@
+package io.github.siyukio.tools.api.dto;
+
+import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A JSON response body rendered outside the application, usually by the database.
+ * <p>
+ * The bytes are written to the client as they are, skipping object mapping and response filtering,
+ * so the body must already be limited to the documented fields. {@code T} only describes the response schema.
+ *
+ * @author Buddy
+ */
+public record RawJson<T>(byte[] body) {
+
+    public static <T> RawJson<T> of(byte[] body) {
+        return new RawJson<>(body);
+    }
+
+    public String asString() {
+        return new String(this.body, StandardCharsets.UTF_8);
+    }
+
+    public JSONObject toJSONObject() {
+        return XDataUtils.parse(this.asString(), JSONObject.class);
+    }
+}
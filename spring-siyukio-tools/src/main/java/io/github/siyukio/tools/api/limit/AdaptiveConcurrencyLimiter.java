@@ -0,0 +1,113 @@
+package io.github.siyukio.tools.api.limit;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limiter that adapts the limit to observed latency, in the style of the gradient limiter.
+ * <p>
+ * A long-term average latency serves as the baseline. While recent latency stays near it the limit grows by
+ * the square root of the limit per sample; when recent latency rises, the limit shrinks by their ratio,
+ * at most by half. Growth is skipped while less than half of the limit is in use, so idle periods do not
+ * inflate it. Requests beyond the limit are rejected instead of queued.
+ * <p>
+ * Releasing never blocks: a sample arriving while another one is being applied is dropped, so under contention
+ * only a fraction of requests adapt the limit.
+ *
+ * @author Buddy
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final static double SMOOTHING = 0.2;
+
+    private final static double TOLERANCE = 1.5;
+
+    private final static int SHORT_WINDOW = 10;
+
+    private final static int LONG_WINDOW = 600;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final AtomicBoolean sampling = new AtomicBoolean(false);
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double shortRtt;
+
+    private double longRtt;
+
+    private long samples;
+
+    public AdaptiveConcurrencyLimiter(int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.min(4, this.maxLimit);
+        this.estimatedLimit = Math.max(this.minLimit, this.maxLimit / 2);
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = this.inflight.get();
+            if (current >= this.limit) {
+                return false;
+            }
+            if (this.inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos latency of the finished request, 0 or less releases without a sample
+     */
+    public void release(long rttNanos) {
+        int current = this.inflight.getAndDecrement();
+        if (rttNanos > 0 && this.sampling.compareAndSet(false, true)) {
+            try {
+                this.onSample(rttNanos, current);
+            } finally {
+                this.sampling.set(false);
+            }
+        }
+    }
+
+    /**
+     * Only called by the thread holding {@link #sampling}, whose set and compare-and-set publish the fields.
+     */
+    private void onSample(long rttNanos, int inflight) {
+        this.samples++;
+        if (this.samples == 1) {
+            this.shortRtt = rttNanos;
+            this.longRtt = rttNanos;
+            return;
+        }
+        this.shortRtt += (rttNanos - this.shortRtt) * 2 / (Math.min(this.samples, SHORT_WINDOW) + 1);
+        this.longRtt += (rttNanos - this.longRtt) * 2 / (Math.min(this.samples, LONG_WINDOW) + 1);
+        if (this.longRtt / this.shortRtt > 2) {
+            // latency dropped well below the baseline, let the baseline follow quickly
+            this.longRtt *= 0.95;
+        }
+        if (inflight < this.estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * this.longRtt / this.shortRtt));
+        double newLimit = this.estimatedLimit * gradient + Math.sqrt(this.estimatedLimit);
+        newLimit = this.estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        this.estimatedLimit = Math.max(this.minLimit, Math.min(this.maxLimit, newLimit));
+        this.limit = (int) this.estimatedLimit;
+    }
+
+    public int getInflight() {
+        return this.inflight.get();
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.siyukio.tools.api.limit;
+
+import io.github.siyukio.tools.api.ApiHandler;
+
+/**
+ * Admits api calls through the global limiter and then the limiter of the api.
+ *
+ * @author Buddy
+ */
+public final class ApiAdmission {
+
+    private final ApiLimiter globalLimiter;
+
+    /**
+     * @param globalLimiter limiter shared by all apis, null for none
+     */
+    public ApiAdmission(ApiLimiter globalLimiter) {
+        this.globalLimiter = globalLimiter;
+    }
+
+    public ApiLimiter getGlobalLimiter() {
+        return this.globalLimiter;
+    }
+
+    /**
+     * Throws an {@link io.github.siyukio.tools.api.ApiException} when the call is rejected.
+     *
+     * @return the admission time to pass to {@link #release}
+     */
+    public long admit(ApiHandler apiHandler) {
+        if (this.globalLimiter != null) {
+            this.globalLimiter.acquire();
+        }
+        ApiLimiter apiLimiter = apiHandler.apiLimiter();
+        if (apiLimiter != null) {
+            try {
+                apiLimiter.acquire();
+            } catch (RuntimeException ex) {
+                if (this.globalLimiter != null) {
+                    this.globalLimiter.release(0);
+                }
+                throw ex;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Releases a finished call, its latency adapts the concurrency limits.
+     */
+    public void release(ApiHandler apiHandler, long admitted) {
+        this.release(apiHandler.apiLimiter(), System.nanoTime() - admitted);
+    }
+
+    /**
+     * Releases a call that was rejected after admission, without a latency sample.
+     */
+    public void cancel(ApiHandler apiHandler) {
+        this.release(apiHandler.apiLimiter(), 0);
+    }
+
+    private void release(ApiLimiter apiLimiter, long rttNanos) {
+        if (apiLimiter != null) {
+            apiLimiter.release(rttNanos);
+        }
+        if (this.globalLimiter != null) {
+            this.globalLimiter.release(rttNanos);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.siyukio.tools.api.limit;
+
+import io.github.siyukio.tools.api.ApiException;
+import io.github.siyukio.tools.api.definition.ApiDefinition;
+import org.springframework.http.HttpStatus;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control of one api, or of all apis together: a token bucket followed by an adaptive concurrency limit.
+ * <p>
+ * Rejections are counted by reason for metrics.
+ *
+ * @author Buddy
+ */
+public final class ApiLimiter {
+
+    private final String name;
+
+    private final RateLimiter rateLimiter;
+
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private final LongAdder rateRejected = new LongAdder();
+
+    private final LongAdder concurrencyRejected = new LongAdder();
+
+    private ApiLimiter(String name, RateLimiter rateLimiter, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.name = name;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * @return null when neither limit is set
+     */
+    public static ApiLimiter createApiLimiter(String name, ApiDefinition.Limit limit) {
+        if (limit == null || (limit.rate() <= 0 && limit.maxConcurrency() <= 0)) {
+            return null;
+        }
+        RateLimiter rateLimiter = null;
+        if (limit.rate() > 0) {
+            int burst = limit.burst() > 0 ? limit.burst() : (int) Math.ceil(limit.rate());
+            rateLimiter = new RateLimiter(limit.rate(), burst);
+        }
+        AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+        if (limit.maxConcurrency() > 0) {
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter(limit.maxConcurrency());
+        }
+        return new ApiLimiter(name, rateLimiter, concurrencyLimiter);
+    }
+
+    public void acquire() {
+        if (this.rateLimiter != null && !this.rateLimiter.tryAcquire()) {
+            this.rateRejected.increment();
+            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        if (this.concurrencyLimiter != null && !this.concurrencyLimiter.tryAcquire()) {
+            this.concurrencyRejected.increment();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * @param rttNanos latency of the finished request, 0 or less releases without a sample
+     */
+    public void release(long rttNanos) {
+        if (this.concurrencyLimiter != null) {
+            this.concurrencyLimiter.release(rttNanos);
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean hasConcurrencyLimit() {
+        return this.concurrencyLimiter != null;
+    }
+
+    public int getInflight() {
+        return this.concurrencyLimiter == null ? 0 : this.concurrencyLimiter.getInflight();
+    }
+
+    public int getLimit() {
+        return this.concurrencyLimiter == null ? 0 : this.concurrencyLimiter.getLimit();
+    }
+
+    public long getRateRejected() {
+        return this.rateRejected.sum();
+    }
+
+    public long getConcurrencyRejected() {
+        return this.concurrencyRejected.sum();
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.siyukio.tools.api.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter.
+ * <p>
+ * Kept as the time the bucket would be full again (GCRA), so a permit is one compare-and-set
+ * without a refill thread.
+ *
+ * @author Buddy
+ */
+public final class RateLimiter {
+
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param rate  permits per second
+     * @param burst bucket capacity, at least one permit
+     */
+    public RateLimiter(double rate, int burst) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+        this.burstNanos = this.intervalNanos * Math.max(1, burst);
+    }
+
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = this.fullAt.get();
+            long next = Math.max(current, now) + this.intervalNanos;
+            if (next - now > this.burstNanos) {
+                return false;
+            }
+            if (this.fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package io.github.siyukio.tools.api.parameter.request;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import io.github.siyukio.tools.api.constants.ApiConstants;
 import io.github.siyukio.tools.util.XDataUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -105,4 +109,37 @@ public final class ArrayRequestValidator extends AbstractRequestValidator {
         return result;
     }
 
+    @Override
+    public boolean canStream(JsonToken token) {
+        return token == JsonToken.START_ARRAY;
+    }
+
+    @Override
+    public void read(JsonParser parser, JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+        int size = 0;
+        Object itemValue;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (this.requestValidator.canStream(parser.currentToken())) {
+                this.requestValidator.read(parser, generator);
+                size++;
+            } else {
+                itemValue = this.requestValidator.validate(RequestValidator.readValue(parser));
+                if (!JSONObject.NULL.equals(itemValue)) {
+                    generator.writeObject(itemValue);
+                    size++;
+                }
+            }
+            //Reject oversized arrays before reading the rest.
+            if (this.maxItems != null && size > this.maxItems) {
+                throw this.createApiException(ApiConstants.ERROR_PARAMETER_REQUIRED_ARRAY_MAX_FORMAT, this.maxItems);
+            }
+        }
+
+        if (this.minItems != null && size < this.minItems) {
+            throw this.createApiException(ApiConstants.ERROR_PARAMETER_REQUIRED_ARRAY_MIN_FORMAT, this.minItems);
+        }
+        generator.writeEndArray();
+    }
+
 }
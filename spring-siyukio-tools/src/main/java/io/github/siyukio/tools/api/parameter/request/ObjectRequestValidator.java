@@ -1,10 +1,15 @@
 package io.github.siyukio.tools.api.parameter.request;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.siyukio.tools.api.ApiException;
 import io.github.siyukio.tools.api.constants.ApiConstants;
 import io.github.siyukio.tools.util.XDataUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -88,4 +93,55 @@ public class ObjectRequestValidator extends AbstractRequestValidator {
         return result;
     }
 
+    @Override
+    public boolean canStream(JsonToken token) {
+        return token == JsonToken.START_OBJECT && !this.additionalProperties;
+    }
+
+    @Override
+    public void read(JsonParser parser, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        Set<String> nameSet = new HashSet<>();
+        Set<String> readSet = new HashSet<>();
+        String param;
+        JsonToken token;
+        RequestValidator requestValidator;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            param = parser.currentName();
+            if (!nameSet.add(param)) {
+                //Reject repeated keys like the tree parser does, rather than picking one of the values.
+                throw ApiException.getInvalidApiException(String.format(ApiConstants.ERROR_PARAMETER_DUPLICATE_FORMAT,
+                        this.getFullName() + "." + param));
+            }
+            token = parser.nextToken();
+            requestValidator = this.requestValidatorMap.get(param);
+            if (requestValidator == null || token == JsonToken.VALUE_NULL) {
+                //Skip undeclared properties without building them, null values count as missing.
+                parser.skipChildren();
+                continue;
+            }
+            readSet.add(param);
+            if (requestValidator.canStream(token)) {
+                generator.writeFieldName(param);
+                requestValidator.read(parser, generator);
+            } else {
+                writeField(generator, param, requestValidator.validate(RequestValidator.readValue(parser)));
+            }
+        }
+
+        for (Entry<String, RequestValidator> entry : this.requestValidatorMap.entrySet()) {
+            if (!readSet.contains(entry.getKey())) {
+                writeField(generator, entry.getKey(), entry.getValue().validate(null));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeField(JsonGenerator generator, String param, Object value) throws IOException {
+        if (!JSONObject.NULL.equals(value)) {
+            generator.writeFieldName(param);
+            generator.writeObject(value);
+        }
+    }
+
 }
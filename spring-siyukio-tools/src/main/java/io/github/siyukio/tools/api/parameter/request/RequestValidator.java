@@ -1,12 +1,21 @@
 package io.github.siyukio.tools.api.parameter.request;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.siyukio.tools.api.ApiException;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
 import io.github.siyukio.tools.api.definition.ApiRequestParameter;
 import io.github.siyukio.tools.api.definition.ApiSchema;
 import io.github.siyukio.tools.api.parameter.request.basic.*;
+import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -153,10 +162,77 @@ public interface RequestValidator {
         return createObjectRequestValidator(apiDefinition.requestBodyParameter(), "");
     }
 
+    /**
+     * Read the value at the current token as the JSON parser would have built it, with strings stripped.
+     */
+    static Object readValue(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NULL -> JSONObject.NULL;
+            case VALUE_STRING -> parser.getText().strip();
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getNumberValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case START_OBJECT -> parser.readValueAs(JSONObject.class);
+            case START_ARRAY -> parser.readValueAs(JSONArray.class);
+            case null, default -> throw ApiException.getInvalidApiException("requestBody to json error");
+        };
+    }
+
+    /**
+     * Parse, validate and buffer a request body in one pass.
+     * <p>
+     * Undeclared properties are skipped without being built and no intermediate JSON tree is kept,
+     * so the returned tokens bind straight to the parameter type.
+     *
+     * @param requestValidator the root validator of the api
+     * @param body             the raw request body
+     * @return the validated body
+     */
+    static TokenBuffer readBody(RequestValidator requestValidator, byte[] body) {
+        TokenBuffer tokenBuffer = XDataUtils.newTokenBuffer();
+        try (JsonParser parser = XDataUtils.OBJECT_MAPPER.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                tokenBuffer.writeObject(requestValidator.validate(new JSONObject()));
+            } else if (token != JsonToken.START_OBJECT) {
+                throw ApiException.getInvalidApiException("requestBody to json error");
+            } else if (requestValidator.canStream(token)) {
+                requestValidator.read(parser, tokenBuffer);
+            } else {
+                tokenBuffer.writeObject(requestValidator.validate(readValue(parser)));
+            }
+        } catch (IOException e) {
+            throw ApiException.getInvalidApiException("requestBody to json error");
+        }
+        return tokenBuffer;
+    }
+
     String getName();
 
     boolean isRequired();
 
     <T> T validate(T value);
 
+    /**
+     * Whether the value starting at this token can be validated while it is streamed.
+     */
+    default boolean canStream(JsonToken token) {
+        return false;
+    }
+
+    /**
+     * Stream the value starting at the current token, validate it and write the result.
+     * <p>
+     * Only called when canStream is true; reports the same errors as validate.
+     * Validators that cannot stream read the whole value and validate it as a tree.
+     */
+    default void read(JsonParser parser, JsonGenerator generator) throws IOException {
+        Object value = this.validate(readValue(parser));
+        if (value == null || JSONObject.NULL.equals(value)) {
+            generator.writeNull();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
 }
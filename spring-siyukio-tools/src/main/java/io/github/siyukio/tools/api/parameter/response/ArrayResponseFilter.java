@@ -1,21 +1,19 @@
 package io.github.siyukio.tools.api.parameter.response;
 
-import org.json.JSONArray;
-
-import java.util.List;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 
 /**
  * @author Buddy
  */
-public final class ArrayResponseFilter implements ResponseFilter {
+public final class ArrayResponseFilter extends TokenFilter implements ResponseFilter {
 
     private final String name;
 
-    private final ResponseFilter responseFilter;
+    private final TokenFilter itemsFilter;
 
     public ArrayResponseFilter(String name, ResponseFilter responseFilter) {
         this.name = name;
-        this.responseFilter = responseFilter;
+        this.itemsFilter = responseFilter.tokenFilter();
     }
 
     @Override
@@ -24,18 +22,17 @@ public final class ArrayResponseFilter implements ResponseFilter {
     }
 
     @Override
-    public void filter(Object value) {
-        if (value != null) {
-            if (value instanceof JSONArray valueArray) {
-                for (Object subValue : valueArray) {
-                    this.responseFilter.filter(subValue);
-                }
-            } else if (value instanceof List) {
-                List<Object> valueList = (List<Object>) value;
-                for (Object subValue : valueList) {
-                    this.responseFilter.filter(subValue);
-                }
-            }
-        }
+    public TokenFilter tokenFilter() {
+        return this.itemsFilter == TokenFilter.INCLUDE_ALL ? TokenFilter.INCLUDE_ALL : this;
+    }
+
+    @Override
+    public TokenFilter includeElement(int index) {
+        return this.itemsFilter;
+    }
+
+    @Override
+    public boolean includeEmptyArray(boolean contentsFiltered) {
+        return true;
     }
 }
@@ -1,5 +1,7 @@
 package io.github.siyukio.tools.api.parameter.response;
 
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
 /**
  * @author Buddy
  */
@@ -12,7 +14,8 @@ public final class BasicResponseFilter implements ResponseFilter {
     }
 
     @Override
-    public void filter(Object value) {
+    public TokenFilter tokenFilter() {
+        return TokenFilter.INCLUDE_ALL;
     }
 
     @Override
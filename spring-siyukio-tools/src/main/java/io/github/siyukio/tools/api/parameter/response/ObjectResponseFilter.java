@@ -1,25 +1,23 @@
 package io.github.siyukio.tools.api.parameter.response;
 
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * @author Buddy
  */
-public class ObjectResponseFilter implements ResponseFilter {
+public class ObjectResponseFilter extends TokenFilter implements ResponseFilter {
 
     private final String name;
     private final boolean additionalProperties;
-    private final Map<String, ResponseFilter> responseFilterMap = new HashMap<>();
+    private final Map<String, TokenFilter> tokenFilterMap = new HashMap<>();
 
     public ObjectResponseFilter(String name, Boolean additionalProperties, Map<String, ResponseFilter> responseFilterMap) {
         this.name = name;
         this.additionalProperties = additionalProperties != null && additionalProperties;
-        this.responseFilterMap.putAll(responseFilterMap);
+        responseFilterMap.forEach((param, responseFilter) -> this.tokenFilterMap.put(param, responseFilter.tokenFilter()));
     }
 
     @Override
@@ -28,26 +26,18 @@ public class ObjectResponseFilter implements ResponseFilter {
     }
 
     @Override
-    public void filter(Object value) {
-        if (value != null) {
-            if (value instanceof JSONObject data) {
-                if (this.additionalProperties) {
-                    return;
-                }
-
-                ResponseFilter responseFilter;
-                Set<String> keySet = new HashSet<>(data.keySet());
-                Object childValue;
-                for (String param : keySet) {
-                    responseFilter = this.responseFilterMap.get(param);
-                    if (responseFilter == null) {
-                        data.remove(param);
-                    } else {
-                        childValue = data.get(param);
-                        responseFilter.filter(childValue);
-                    }
-                }
-            }
-        }
+    public TokenFilter tokenFilter() {
+        return this.additionalProperties ? TokenFilter.INCLUDE_ALL : this;
+    }
+
+    @Override
+    public TokenFilter includeProperty(String property) {
+        // undeclared properties are dropped together with their values
+        return this.tokenFilterMap.get(property);
+    }
+
+    @Override
+    public boolean includeEmptyObject(boolean contentsFiltered) {
+        return true;
     }
 }
@@ -1,14 +1,24 @@
 package io.github.siyukio.tools.api.parameter.response;
 
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import io.github.siyukio.tools.api.definition.ApiDefinition;
 import io.github.siyukio.tools.api.definition.ApiResponseParameter;
 import io.github.siyukio.tools.api.definition.ApiSchema;
+import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONObject;
 import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * Limits a response to the properties declared by its schema.
+ * <p>
+ * The filter tree is built once per API and applied while the return value is serialized,
+ * so undeclared properties are never written and no intermediate JSON tree is built.
+ *
  * @author Buddy
  */
 public interface ResponseFilter {
@@ -58,6 +68,17 @@ public interface ResponseFilter {
 
     String getName();
 
-    void filter(Object value);
+    /**
+     * The streaming filter for this schema node, {@link TokenFilter#INCLUDE_ALL} when nothing needs to be dropped.
+     */
+    TokenFilter tokenFilter();
+
+    default void write(Object value, OutputStream outputStream) throws IOException {
+        XDataUtils.write(outputStream, value, this.tokenFilter());
+    }
+
+    default JSONObject toJSONObject(Object value) {
+        return XDataUtils.copy(value, this.tokenFilter(), JSONObject.class);
+    }
 
 }
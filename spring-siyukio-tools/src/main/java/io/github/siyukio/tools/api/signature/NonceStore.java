@@ -0,0 +1,16 @@
+package io.github.siyukio.tools.api.signature;
+
+/**
+ * Remembers used signature nonces for as long as their timestamps are accepted.
+ *
+ * @author Buddy
+ */
+public interface NonceStore {
+
+    /**
+     * Record the nonce signed with the timestamp.
+     *
+     * @return false when the nonce was already used with that timestamp
+     */
+    boolean tryUse(String nonce, long timestamp);
+}
@@ -0,0 +1,58 @@
+package io.github.siyukio.tools.api.signature;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory nonce store bucketed by the signed timestamp.
+ * <p>
+ * A replay must carry the same timestamp as the original request, so a nonce is only looked up in the bucket
+ * of its own timestamp. Buckets older than the accepted window are dropped as a whole, which bounds memory
+ * by request rate times window, and no nonce is forgotten while its timestamp is still accepted.
+ *
+ * @author Buddy
+ */
+public class RotatingNonceStore implements NonceStore {
+
+    private final long windowMillis;
+
+    private final long bucketMillis;
+
+    private final Map<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+
+    private volatile long oldestBucket = Long.MIN_VALUE;
+
+    public RotatingNonceStore(Duration window) {
+        this(window, Duration.ofMinutes(1));
+    }
+
+    public RotatingNonceStore(Duration window, Duration bucket) {
+        this.windowMillis = window.toMillis();
+        this.bucketMillis = bucket.toMillis();
+    }
+
+    private void rotate() {
+        long oldest = Math.floorDiv(System.currentTimeMillis() - this.windowMillis, this.bucketMillis);
+        if (oldest > this.oldestBucket) {
+            this.oldestBucket = oldest;
+            this.buckets.keySet().removeIf(bucket -> bucket < oldest);
+        }
+    }
+
+    @Override
+    public boolean tryUse(String nonce, long timestamp) {
+        this.rotate();
+        long bucket = Math.floorDiv(timestamp, this.bucketMillis);
+        return this.buckets.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet()).add(nonce);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Set<String> bucket : this.buckets.values()) {
+            size += bucket.size();
+        }
+        return size;
+    }
+}
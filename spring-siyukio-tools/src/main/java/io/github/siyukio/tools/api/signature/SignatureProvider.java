@@ -1,28 +1,99 @@
 package io.github.siyukio.tools.api.signature;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import io.github.siyukio.tools.api.ApiException;
-import io.github.siyukio.tools.util.CacheUtils;
 import io.github.siyukio.tools.util.CryptoUtils;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.HexFormat;
 
 /**
+ * Validates request signatures and rejects replayed nonces.
+ * <p>
+ * Timestamps are accepted from the window in the past up to a small clock skew in the future,
+ * and the nonce store remembers every nonce for that long.
+ * <p>
+ * Two schemes are supported. {@link #ALGORITHM_HMAC_SHA256} signs the canonical request
+ * {@code method \n path \n timestamp \n nonce \n hex(sha256(body))} with the salt as key, so the body is covered.
+ * The legacy scheme signs {@code md5(salt + timestamp + nonce)} only and can be turned off.
+ *
  * @author Buddy
  */
 public class SignatureProvider {
 
-    private final Cache<String, String> cache = CacheUtils.createCache(100_000);
+    public final static String HEADER_TIMESTAMP = "timestamp";
+
+    public final static String HEADER_NONCE = "nonce";
+
+    public final static String HEADER_SIGNATURE = "signature";
+
+    public final static String HEADER_ALGORITHM = "signature-algorithm";
+
+    public final static String ALGORITHM_HMAC_SHA256 = "HMAC-SHA256";
+
+    private final static long MAX_CLOCK_SKEW = Duration.ofMinutes(5).toMillis();
+
+    private final static HexFormat HEX_FORMAT = HexFormat.of();
+
+    private final static int HMAC_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
 
     private final String salt;
 
+    private final long windowMillis;
+
+    private final NonceStore nonceStore;
+
+    private final boolean legacyEnabled;
+
+    private final CryptoUtils.HmacSha256Pool hmacPool;
+
     public SignatureProvider(String salt) {
+        this(salt, Duration.ofDays(1), null);
+    }
+
+    public SignatureProvider(String salt, Duration window, NonceStore nonceStore) {
+        this(salt, window, nonceStore, true);
+    }
+
+    /**
+     * @param nonceStore    shared store, an in-memory {@link RotatingNonceStore} over the window when null
+     * @param legacyEnabled whether the md5 scheme is still accepted
+     */
+    public SignatureProvider(String salt, Duration window, NonceStore nonceStore, boolean legacyEnabled) {
         this.salt = salt;
+        this.windowMillis = window.toMillis();
+        this.nonceStore = nonceStore == null ? new RotatingNonceStore(window) : nonceStore;
+        this.legacyEnabled = legacyEnabled;
+        this.hmacPool = StringUtils.hasText(salt) ? new CryptoUtils.HmacSha256Pool(salt.getBytes(StandardCharsets.UTF_8), HMAC_POOL_SIZE) : null;
     }
 
-    public void validate(long timestamp, String nonce, String signature) {
-        if (!StringUtils.hasText(this.salt)) {
+    public boolean isEnabled() {
+        return StringUtils.hasText(this.salt);
+    }
+
+    public static boolean isHmacSha256(String algorithm) {
+        return ALGORITHM_HMAC_SHA256.equalsIgnoreCase(algorithm);
+    }
+
+    /**
+     * A digest to feed the request body into while it is read.
+     */
+    public static MessageDigest newBodyDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not found");
+        }
+    }
+
+    /**
+     * Checks the signature headers before the body is read, so unsigned or stale requests fail fast.
+     */
+    public void checkHeaders(long timestamp, String nonce, String signature) {
+        if (!this.isEnabled()) {
             return;
         }
         if (timestamp == 0) {
@@ -34,23 +105,64 @@ public class SignatureProvider {
         if (!StringUtils.hasText(signature)) {
             throw ApiException.getInvalidApiException("signature error: miss signature");
         }
-        if (timestamp < System.currentTimeMillis() - Duration.ofDays(1).toMillis()) {
+        long now = System.currentTimeMillis();
+        if (timestamp < now - this.windowMillis) {
             throw ApiException.getInvalidApiException("signature error: timestamp expired");
         }
-        String value = this.cache.getIfPresent(nonce);
-        if (value != null) {
-            throw ApiException.getInvalidApiException("signature error: nonce used");
+        if (timestamp > now + MAX_CLOCK_SKEW) {
+            throw ApiException.getInvalidApiException("signature error: timestamp in the future");
         }
-        this.cache.put(nonce, "");
+    }
 
+    /**
+     * Validates the legacy md5 signature.
+     */
+    public void validate(long timestamp, String nonce, String signature) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.checkHeaders(timestamp, nonce, signature);
+        if (!this.legacyEnabled) {
+            throw ApiException.getInvalidApiException("signature error: unsupported algorithm");
+        }
         String mySignature = this.createSignature(timestamp, nonce);
-        if (!mySignature.equals(signature)) {
+        this.verify(mySignature, signature, nonce, timestamp);
+    }
+
+    /**
+     * Validates the HMAC-SHA256 signature of a request whose body has been fed into the digest.
+     */
+    public void validate(String method, String path, long timestamp, String nonce, MessageDigest bodyDigest, String signature) {
+        if (!this.isEnabled()) {
+            return;
+        }
+        this.checkHeaders(timestamp, nonce, signature);
+        String mySignature = this.createSignature(method, path, timestamp, nonce, bodyDigest.digest());
+        this.verify(mySignature, signature, nonce, timestamp);
+    }
+
+    private void verify(String mySignature, String signature, String nonce, long timestamp) {
+        if (!MessageDigest.isEqual(mySignature.getBytes(StandardCharsets.US_ASCII), signature.getBytes(StandardCharsets.US_ASCII))) {
             throw ApiException.getInvalidApiException("signature error");
         }
+        // only correctly signed nonces are remembered, so forged requests cannot fill the store
+        if (!this.nonceStore.tryUse(nonce, timestamp)) {
+            throw ApiException.getInvalidApiException("signature error: nonce used");
+        }
     }
 
     public String createSignature(long timestamp, String nonce) {
         String text = this.salt + timestamp + nonce;
         return CryptoUtils.md5(text);
     }
+
+    /**
+     * Signs the canonical request, returning the lowercase hex HMAC-SHA256.
+     *
+     * @param bodyDigest sha256 of the raw body bytes
+     */
+    public String createSignature(String method, String path, long timestamp, String nonce, byte[] bodyDigest) {
+        String canonical = method.toUpperCase() + '\n' + path + '\n' + timestamp + '\n' + nonce + '\n' + HEX_FORMAT.formatHex(bodyDigest);
+        return HEX_FORMAT.formatHex(this.hmacPool.doFinal(canonical.getBytes(StandardCharsets.UTF_8)));
+    }
 }
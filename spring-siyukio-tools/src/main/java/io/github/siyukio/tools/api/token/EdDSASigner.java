@@ -0,0 +1,43 @@
+package io.github.siyukio.tools.api.token;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.impl.BaseJWSProvider;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Set;
+
+/**
+ * Ed25519 signer on the JDK provider, so EdDSA needs no extra crypto library.
+ *
+ * @author Buddy
+ */
+final class EdDSASigner extends BaseJWSProvider implements JWSSigner {
+
+    private final PrivateKey privateKey;
+
+    EdDSASigner(PrivateKey privateKey) {
+        super(Set.of(JWSAlgorithm.EdDSA));
+        this.privateKey = privateKey;
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+        if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+            throw new JOSEException("Unsupported JWS algorithm: " + header.getAlgorithm());
+        }
+        try {
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(this.privateKey);
+            signature.update(signingInput);
+            return Base64URL.encode(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.siyukio.tools.api.token;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.impl.BaseJWSProvider;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Set;
+
+/**
+ * Ed25519 verifier on the JDK provider.
+ *
+ * @author Buddy
+ */
+final class EdDSAVerifier extends BaseJWSProvider implements JWSVerifier {
+
+    private final PublicKey publicKey;
+
+    EdDSAVerifier(PublicKey publicKey) {
+        super(Set.of(JWSAlgorithm.EdDSA));
+        this.publicKey = publicKey;
+    }
+
+    @Override
+    public boolean verify(JWSHeader header, byte[] signedContent, Base64URL signature) throws JOSEException {
+        if (!JWSAlgorithm.EdDSA.equals(header.getAlgorithm())) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(this.publicKey);
+            verifier.update(signedContent);
+            return verifier.verify(signature.decode());
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException(e.getMessage(), e);
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package io.github.siyukio.tools.api.token;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.*;
 import com.nimbusds.jwt.JWTClaimsSet;
+import io.github.siyukio.tools.util.CacheUtils;
 import io.github.siyukio.tools.util.CryptoUtils;
 import io.github.siyukio.tools.util.IdUtils;
 import io.github.siyukio.tools.util.XDataUtils;
@@ -14,18 +17,37 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 /**
+ * Signs and verifies JWT tokens.
+ * <p>
+ * Verified tokens are cached by a hash of the raw token until they expire, so a client reusing its token
+ * pays for signature verification, decryption and claim parsing once. Revoked token ids are rejected
+ * on both the cached and the verifying path.
+ *
  * @author Buddy
  */
 @Slf4j
 public final class TokenProvider {
 
+    private final static long VERIFIED_TOKEN_CACHE_SIZE = 100_000;
+
+    private final Cache<String, VerifiedToken> verifiedTokenCache = CacheUtils.createCache(VERIFIED_TOKEN_CACHE_SIZE, expireAt(VerifiedToken::expiresAt));
+
+    // Not size bounded: evicting a revocation early would let the revoked token back in.
+    private final Cache<String, Long> revokedJwtIdCache = CacheUtils.createCache(expireAt(Long::longValue));
+
     private final Duration accessTokenDuration;
 
     private final Duration refreshTokenDuration;
@@ -34,36 +56,29 @@ public final class TokenProvider {
 
     private final JWSVerifier verifier;
 
+    private final Map<String, JWSVerifier> verifierMap = new HashMap<>();
+
     private final JWSAlgorithm algorithm;
 
+    private final String keyId;
+
     private final String password;
 
     public TokenProvider(PublicKey publicKey, PrivateKey privateKey, Duration accessTokenDuration, Duration refreshTokenDuration, String password) {
+        this(null, publicKey, privateKey, Map.of(), accessTokenDuration, refreshTokenDuration, password);
+    }
+
+    /**
+     * @param keyId         written as kid into new tokens and mapped to publicKey, may be empty
+     * @param publicKeyRing further verification keys by kid, usually the keys being rotated out
+     */
+    public TokenProvider(String keyId, PublicKey publicKey, PrivateKey privateKey, Map<String, PublicKey> publicKeyRing,
+                         Duration accessTokenDuration, Duration refreshTokenDuration, String password) {
         this.password = password;
+        this.keyId = StringUtils.hasText(keyId) ? keyId : null;
         JWSSigner initSigner;
-        JWSVerifier initVerifier;
         JWSAlgorithm initAlgorithm;
 
-        if (publicKey != null) {
-            if (publicKey instanceof RSAPublicKey rsaPublicKey) {
-                initVerifier = new RSASSAVerifier(rsaPublicKey);
-            } else if (publicKey instanceof ECPublicKey ecPublicKey) {
-                try {
-                    initVerifier = new ECDSAVerifier(ecPublicKey);
-                } catch (JOSEException e) {
-                    throw new RuntimeException(e);
-                }
-            } else {
-                throw new IllegalArgumentException("Unsupported PublicKey type: expected RSAPublicKey or ECPublicKey.");
-            }
-        } else {
-            try {
-                initVerifier = new MACVerifier("siyukio-siyukio-siyukio-siyukio!");
-            } catch (JOSEException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
         if (privateKey != null) {
             if (privateKey instanceof RSAPrivateKey rsaPrivateKey) {
                 initSigner = new RSASSASigner(rsaPrivateKey);
@@ -75,8 +90,11 @@ public final class TokenProvider {
                     throw new RuntimeException(e);
                 }
                 initAlgorithm = JWSAlgorithm.ES256;
+            } else if (privateKey instanceof EdECPrivateKey) {
+                initSigner = new EdDSASigner(privateKey);
+                initAlgorithm = JWSAlgorithm.EdDSA;
             } else {
-                throw new IllegalArgumentException("Unsupported PrivateKey type: expected RSAPrivateKey or ECPrivateKey.");
+                throw new IllegalArgumentException("Unsupported PrivateKey type: expected RSAPrivateKey, ECPrivateKey or EdECPrivateKey.");
             }
         } else {
             try {
@@ -88,12 +106,58 @@ public final class TokenProvider {
         }
 
         this.signer = initSigner;
-        this.verifier = initVerifier;
+        this.verifier = createVerifier(publicKey);
+        if (this.keyId != null) {
+            this.verifierMap.put(this.keyId, this.verifier);
+        }
+        publicKeyRing.forEach((kid, ringKey) -> this.verifierMap.putIfAbsent(kid, createVerifier(ringKey)));
         this.algorithm = initAlgorithm;
         this.accessTokenDuration = accessTokenDuration;
         this.refreshTokenDuration = refreshTokenDuration;
     }
 
+    private static JWSVerifier createVerifier(PublicKey publicKey) {
+        try {
+            if (publicKey == null) {
+                return new MACVerifier("siyukio-siyukio-siyukio-siyukio!");
+            }
+            if (publicKey instanceof RSAPublicKey rsaPublicKey) {
+                return new RSASSAVerifier(rsaPublicKey);
+            }
+            if (publicKey instanceof ECPublicKey ecPublicKey) {
+                return new ECDSAVerifier(ecPublicKey);
+            }
+            if (publicKey instanceof EdECPublicKey) {
+                return new EdDSAVerifier(publicKey);
+            }
+        } catch (JOSEException e) {
+            throw new RuntimeException(e);
+        }
+        throw new IllegalArgumentException("Unsupported PublicKey type: expected RSAPublicKey, ECPublicKey or EdECPublicKey.");
+    }
+
+    /**
+     * Expire each entry at the epoch millisecond it carries.
+     */
+    private static <V> Expiry<String, V> expireAt(ToLongFunction<V> expiresAt) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, V value, long currentTime) {
+                return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt.applyAsLong(value) - System.currentTimeMillis()));
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+                return this.expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
     public String createAuthorization(Token token) {
         return this.createAuthorization(token, null);
     }
@@ -117,6 +181,7 @@ public final class TokenProvider {
                 .expirationTime(new Date(expiresAt.toEpochMilli()))
                 .build();
         JWSHeader header = new JWSHeader.Builder(this.algorithm)
+                .keyID(this.keyId)
                 .build();
 
         String plainText = claims.toPayload().toString();
@@ -137,11 +202,65 @@ public final class TokenProvider {
         return jwsObject.serialize();
     }
 
+    /**
+     * Reject the token id until the longest token lifetime has passed.
+     */
+    public void revoke(String jwtId) {
+        long longest = Math.max(this.accessTokenDuration.toMillis(), this.refreshTokenDuration.toMillis());
+        this.revoke(jwtId, System.currentTimeMillis() + longest);
+    }
+
+    /**
+     * Reject the token id until the given epoch millisecond, usually the token's own expiration.
+     * <p>
+     * Revocations are kept until they expire however many there are; revoking an id again keeps the later time.
+     */
+    public void revoke(String jwtId, long until) {
+        if (!StringUtils.hasText(jwtId)) {
+            return;
+        }
+        this.revokedJwtIdCache.asMap().merge(jwtId, until, Math::max);
+        this.verifiedTokenCache.asMap().values().removeIf(verifiedToken -> jwtId.equals(verifiedToken.token().jwtId()));
+    }
+
+    public boolean isRevoked(String jwtId) {
+        return jwtId != null && this.revokedJwtIdCache.getIfPresent(jwtId) != null;
+    }
+
     public Token verifyToken(String authorization) {
+        if (!StringUtils.hasText(authorization)) {
+            return null;
+        }
+        String key = CryptoUtils.sha256(authorization);
+        VerifiedToken verifiedToken = this.verifiedTokenCache.getIfPresent(key);
+        if (verifiedToken == null) {
+            verifiedToken = this.verify(authorization);
+            if (verifiedToken == null) {
+                return null;
+            }
+            this.verifiedTokenCache.put(key, verifiedToken);
+        } else if (System.currentTimeMillis() > verifiedToken.expiresAt()) {
+            // expiry runs on the scheduler, an entry may outlive its token briefly
+            return null;
+        }
+        Token token = verifiedToken.token();
+        if (this.isRevoked(token.jwtId())) {
+            return null;
+        }
+        return token;
+    }
+
+    private VerifiedToken verify(String authorization) {
         try {
             JWSObject jwsObject = JWSObject.parse(authorization);
+            // pick the key by kid, tokens without one use the current key
+            String kid = jwsObject.getHeader().getKeyID();
+            JWSVerifier jwsVerifier = kid == null ? this.verifier : this.verifierMap.get(kid);
+            if (jwsVerifier == null) {
+                return null;
+            }
             // validate signature
-            boolean valid = this.verifier.verify(jwsObject.getHeader(), jwsObject.getSigningInput(), jwsObject.getSignature());
+            boolean valid = jwsVerifier.verify(jwsObject.getHeader(), jwsObject.getSigningInput(), jwsObject.getSignature());
             if (!valid) {
                 return null;
             }
@@ -161,10 +280,13 @@ public final class TokenProvider {
             if (expired) {
                 return null;
             }
-            return XDataUtils.copy(claims.getClaims(), Token.class);
+            return new VerifiedToken(XDataUtils.copy(claims.getClaims(), Token.class), expirationDate.getTime());
         } catch (Exception e) {
             return null;
         }
     }
 
+    private record VerifiedToken(Token token, long expiresAt) {
+    }
+
 }
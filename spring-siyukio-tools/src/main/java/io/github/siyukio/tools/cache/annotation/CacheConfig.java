@@ -24,6 +24,16 @@ public @interface CacheConfig {
      */
     long maximumSize() default 0;
 
+    /**
+     * Maximum estimated memory of all values in bytes.
+     * <p>
+     * When greater than 0 the cache is bounded by weight instead of maximumSize,
+     * so entities with large rows cannot push out the heap budget of the others.
+     *
+     * @return the maximum weight in bytes, defaults to 0 (bounded by maximumSize)
+     */
+    long maximumWeight() default 0;
+
     /**
      * Whether to use soft values for entries.
      * <p>
@@ -56,4 +66,39 @@ public @interface CacheConfig {
      * @return the expiration duration, defaults to 15 minutes
      */
     long expireAfterWrite() default 15;
+
+    /**
+     * Duration after which a read reloads the entry in the background while the old value is still served.
+     * <p>
+     * Should be shorter than expireAfterWrite so hot entries are refreshed before they expire.
+     * Only entity caches can reload entries; set to 0 to disable.
+     *
+     * @return the refresh duration, defaults to 0 (disabled)
+     */
+    long refreshAfterWrite() default 0;
+
+    /**
+     * Whether to keep values as serialized JSON bytes and decode them on every hit.
+     * <p>
+     * Trades CPU on hits for a footprint close to the raw row size.
+     *
+     * @return true if values should be stored compact, defaults to false
+     */
+    boolean compact() default false;
+
+    /**
+     * Number of rows loaded into an entity cache at startup, after schema sync and before the application is ready.
+     *
+     * @return the number of rows, defaults to 0 (no warm-up)
+     */
+    int warmUpSize() default 0;
+
+    /**
+     * Field whose highest values are loaded first during warm-up.
+     * <p>
+     * Empty means {@code updatedAtTs} when the entity has it, otherwise the key.
+     *
+     * @return the sort field name
+     */
+    String warmUpSortField() default "";
 }
@@ -7,9 +7,14 @@ import java.util.concurrent.TimeUnit;
  */
 public record CacheDefinition(
         long maximumSize,
+        long maximumWeight,
         boolean softValues,
         TimeUnit expireUnit,
         long expireAfterAccess,
-        long expireAfterWrite
+        long expireAfterWrite,
+        long refreshAfterWrite,
+        boolean compact,
+        int warmUpSize,
+        String warmUpSortField
 ) {
 }
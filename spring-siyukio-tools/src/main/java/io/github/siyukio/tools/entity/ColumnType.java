@@ -12,5 +12,6 @@ public enum ColumnType {
     JSON_ARRAY,
     BOOLEAN,
     DOUBLE,
-    DATETIME;
+    DATETIME,
+    BYTES;
 }
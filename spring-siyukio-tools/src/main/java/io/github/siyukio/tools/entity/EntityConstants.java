@@ -9,6 +9,16 @@ public interface EntityConstants {
 
     String UNIQUE_INDEX_SUFFIX = "uidx";
 
+    /**
+     * Suffix of the hidden companion column holding the blind index of an encrypted column.
+     */
+    String BLIND_INDEX_SUFFIX = "bidx";
+
+    /**
+     * Field name of the hidden column holding the packed encrypted payload of an entity.
+     */
+    String PACKED_PAYLOAD_FIELD = "encryptedPayload";
+
     /**
      * Column name for storing record-specific encryption salt.
      * <p>
@@ -43,6 +53,57 @@ public interface EntityConstants {
      */
     String ERROR_PARTITION_TIMESTAMP_FIELD_MISSING_FORMAT = "Entity: '%s' with partition '%s' must include 'createdAtTs' field.";
 
+    /**
+     * Error message format for write-behind on an entity with a database generated key.
+     * <p>
+     * Buffered inserts cannot return keys generated by the database.
+     */
+    String ERROR_WRITE_BEHIND_GENERATED_KEY_FORMAT = "Entity: '%s' with write-behind must not use a database generated key.";
+
+    /**
+     * Error message format for incrementing a field that is not a plain numeric column.
+     */
+    String ERROR_COUNTER_FIELD_UNSUPPORTED_FORMAT = "Entity: '%s' field '%s' is not an unencrypted numeric column.";
+
+    /**
+     * Error message format for claiming with a lease field that is not an unencrypted BIGINT column.
+     */
+    String ERROR_LEASE_FIELD_UNSUPPORTED_FORMAT = "Entity: '%s' lease field '%s' is not an unencrypted BIGINT column.";
+
+    /**
+     * Error message format for rendering an encrypted entity as raw JSON.
+     * <p>
+     * Encrypted columns can only be decrypted in the application.
+     */
+    String ERROR_RAW_JSON_ENCRYPTED_FORMAT = "Entity: '%s' is encrypted and cannot be rendered by the database.";
+
+    /**
+     * Error message format for a shard field that cannot route rows.
+     * <p>
+     * The value must be known before insert and stable, so generated keys and encrypted columns are rejected.
+     */
+    String ERROR_SHARD_FIELD_UNSUPPORTED_FORMAT = "Entity: '%s' shard field '%s' must be a client assigned key or an unencrypted column.";
+
+    /**
+     * Error message format for an update that would move a row to another shard.
+     */
+    String ERROR_SHARD_FIELD_CHANGED_FORMAT = "Entity: '%s' shard field '%s' of row '%s' cannot change, delete and insert the row instead.";
+
+    /**
+     * Error message format for enabling a work queue on a sharded entity.
+     */
+    String ERROR_SHARD_WORK_QUEUE_FORMAT = "Entity: '%s' with shards cannot be a work queue.";
+
+    /**
+     * Error message format for waiting on work of an entity that is not a work queue.
+     */
+    String ERROR_WORK_QUEUE_DISABLED_FORMAT = "Entity: '%s' is not a work queue, set @PgEntity(workQueue = true).";
+
+    /**
+     * Error message format for a cache warm-up sort field that is not a sortable column.
+     */
+    String ERROR_WARM_UP_SORT_FIELD_UNSUPPORTED_FORMAT = "Entity: '%s' warm-up sort field '%s' is not the key or an unencrypted column.";
+
     /**
      * Field name for creation timestamp (milliseconds).
      */
@@ -5,7 +5,9 @@ import io.github.siyukio.tools.entity.query.QueryBuilder;
 import io.github.siyukio.tools.entity.sort.SortBuilder;
 import org.json.JSONObject;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Bugee
@@ -26,6 +28,8 @@ public interface EntityExecutor {
 
     JSONObject upsert(JSONObject entityJson);
 
+    int increment(String fieldName, Map<String, Long> deltas);
+
     int delete(Object id);
 
     void deleteBatch(List<Object> ids);
@@ -38,5 +42,11 @@ public interface EntityExecutor {
 
     JSONObject queryById(Object id);
 
+    <T> T queryById(Object id, Class<T> entityClass);
+
+    List<JSONObject> queryByIds(Collection<String> ids);
+
     List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size);
+
+    List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil);
 }
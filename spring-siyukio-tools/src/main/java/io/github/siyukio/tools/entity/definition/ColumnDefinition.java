@@ -11,6 +11,7 @@ public record ColumnDefinition(
         ColumnType type,
         Object defaultValue,
         boolean encrypted,
+        boolean blindIndex,
         String comment
 ) {
 }
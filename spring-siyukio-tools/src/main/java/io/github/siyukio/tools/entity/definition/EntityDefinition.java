@@ -16,13 +16,30 @@ public record EntityDefinition(
         boolean addColumnAuto,
         boolean createIndexAuto,
         boolean encrypted,
+        boolean packedEncryption,
         String keyInfo,
         Partition partition,
         KeyDefinition keyDefinition,
         List<ColumnDefinition> columnDefinitions,
         List<IndexDefinition> indexDefinitions,
-        CacheDefinition cacheDefinition
+        CacheDefinition cacheDefinition,
+        WriteBehindDefinition writeBehindDefinition,
+        long counterFlushInterval,
+        boolean workQueue,
+        boolean changeFeed,
+        ShardDefinition shardDefinition
 ) {
+
+    /**
+     * Copy of this definition bound to one shard database.
+     */
+    public EntityDefinition withShard(String dbName, String schema) {
+        return new EntityDefinition(dbName, schema, this.table, this.comment, this.createTableAuto, this.addColumnAuto,
+                this.createIndexAuto, this.encrypted, this.packedEncryption, this.keyInfo, this.partition, this.keyDefinition,
+                this.columnDefinitions, this.indexDefinitions, this.cacheDefinition, this.writeBehindDefinition,
+                this.counterFlushInterval, this.workQueue, this.changeFeed, this.shardDefinition);
+    }
+
     /**
      * Partitioning strategy for table partitioning.
      */
@@ -0,0 +1,13 @@
+package io.github.siyukio.tools.entity.definition;
+
+import java.util.List;
+
+/**
+ * @author Bugee
+ */
+public record ShardDefinition(
+        List<String> dbNames,
+        String fieldName,
+        int virtualNodes
+) {
+}
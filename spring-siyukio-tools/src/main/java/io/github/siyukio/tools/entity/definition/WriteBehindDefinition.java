@@ -0,0 +1,12 @@
+package io.github.siyukio.tools.entity.definition;
+
+/**
+ * @author Bugee
+ */
+public record WriteBehindDefinition(
+        int batchSize,
+        long flushInterval,
+        int capacity,
+        boolean awaitFlush
+) {
+}
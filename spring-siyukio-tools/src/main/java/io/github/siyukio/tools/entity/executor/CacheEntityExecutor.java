@@ -1,14 +1,24 @@
 package io.github.siyukio.tools.entity.executor;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import io.github.siyukio.tools.cache.definition.CacheDefinition;
 import io.github.siyukio.tools.entity.EntityExecutor;
 import io.github.siyukio.tools.entity.definition.EntityDefinition;
 import io.github.siyukio.tools.entity.query.QueryBuilder;
 import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilders;
+import io.github.siyukio.tools.entity.sort.SortOrder;
+import io.github.siyukio.tools.util.AsyncUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * @author Bugee
@@ -16,12 +26,71 @@ import java.util.List;
 @Slf4j
 public class CacheEntityExecutor implements EntityExecutor {
 
+    private final static int WARM_UP_BATCH_SIZE = 500;
+
     private final EntityExecutor delegate;
-    private final Cache<String, JSONObject> cache;
+    private final Cache<String, CachedEntity> cache;
+    private final boolean compact;
 
-    public CacheEntityExecutor(EntityExecutor delegate, Cache<String, JSONObject> cache) {
+    public CacheEntityExecutor(EntityExecutor delegate, Cache<String, CachedEntity> cache) {
         this.delegate = delegate;
         this.cache = cache;
+        this.compact = delegate.getEntityDefinition().cacheDefinition().compact();
+    }
+
+    /**
+     * Loader used by refreshAfterWrite; a row deleted in the meantime removes the entry.
+     */
+    public static CacheLoader<String, CachedEntity> newLoader(EntityExecutor delegate) {
+        boolean compact = delegate.getEntityDefinition().cacheDefinition().compact();
+        return id -> {
+            JSONObject entityJson = delegate.queryById(id);
+            return entityJson == null ? null : CachedEntity.of(entityJson, compact);
+        };
+    }
+
+    /**
+     * Load the first warmUpSize rows by the warm-up sort field, highest first, in parallel batches.
+     *
+     * @return the number of cached rows
+     */
+    public int warmUp() {
+        EntityDefinition entityDefinition = this.delegate.getEntityDefinition();
+        CacheDefinition cacheDefinition = entityDefinition.cacheDefinition();
+        int size = cacheDefinition.warmUpSize();
+        if (size <= 0) {
+            return 0;
+        }
+        SortBuilder sort = SortBuilders.fieldSort(cacheDefinition.warmUpSortField()).order(SortOrder.DESC);
+        List<Future<List<JSONObject>>> futures = new ArrayList<>();
+        for (int from = 0; from < size; from += WARM_UP_BATCH_SIZE) {
+            int batchFrom = from;
+            int batchSize = Math.min(WARM_UP_BATCH_SIZE, size - from);
+            futures.add(AsyncUtils.VIRTUAL_EXECUTOR_SERVICE.submit(() -> this.delegate.query(null, sort, batchFrom, batchSize)));
+        }
+        int num = 0;
+        for (Future<List<JSONObject>> future : futures) {
+            try {
+                for (JSONObject item : future.get()) {
+                    this.put(this.buildCacheKey(item), item);
+                    num++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // a cold cache is still correct, so warm-up never blocks startup
+                log.warn("Cache warm-up batch failed: {}", entityDefinition.table(), e.getCause());
+            }
+        }
+        log.info("Cache warmed up: {}, {} rows", entityDefinition.table(), num);
+        return num;
+    }
+
+    private CachedEntity put(String cacheKey, JSONObject entityJson) {
+        CachedEntity cached = CachedEntity.of(entityJson, this.compact);
+        this.cache.put(cacheKey, cached);
+        return cached;
     }
 
     private String buildCacheKey(JSONObject entityJson) {
@@ -72,6 +141,15 @@ public class CacheEntityExecutor implements EntityExecutor {
         return entityJson;
     }
 
+    @Override
+    public int increment(String fieldName, Map<String, Long> deltas) {
+        int num = this.delegate.increment(fieldName, deltas);
+        for (String id : deltas.keySet()) {
+            this.cache.invalidate(id);
+        }
+        return num;
+    }
+
     @Override
     public int delete(Object id) {
         int num = this.delegate.delete(id);
@@ -109,20 +187,69 @@ public class CacheEntityExecutor implements EntityExecutor {
     @Override
     public JSONObject queryById(Object id) {
         String cacheKey = String.valueOf(id);
-        JSONObject cached = this.cache.getIfPresent(cacheKey);
+        CachedEntity cached = this.cache.getIfPresent(cacheKey);
         if (cached != null) {
             log.debug("Cache hit: {}, {}", this.delegate.getEntityDefinition().table(), cacheKey);
-            return cached;
+            return cached.getEntityJson();
         }
         JSONObject entityJson = this.delegate.queryById(id);
-        if (entityJson != null) {
-            this.cache.put(cacheKey, entityJson);
+        if (entityJson == null) {
+            return null;
         }
-        return entityJson;
+        return this.put(cacheKey, entityJson).getEntityJson();
+    }
+
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        String cacheKey = String.valueOf(id);
+        CachedEntity cached = this.cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            log.debug("Cache hit: {}, {}", this.delegate.getEntityDefinition().table(), cacheKey);
+        } else {
+            JSONObject entityJson = this.delegate.queryById(id);
+            if (entityJson == null) {
+                return null;
+            }
+            cached = this.put(cacheKey, entityJson);
+        }
+        return cached.getEntity(entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        Map<String, CachedEntity> cachedMap = this.cache.getAllPresent(ids);
+        List<JSONObject> results = new ArrayList<>(ids.size());
+        for (CachedEntity cached : cachedMap.values()) {
+            results.add(cached.getEntityJson());
+        }
+        if (cachedMap.size() == ids.size()) {
+            return results;
+        }
+        List<String> missIds = new ArrayList<>(ids.size() - cachedMap.size());
+        for (String id : ids) {
+            if (!cachedMap.containsKey(id)) {
+                missIds.add(id);
+            }
+        }
+        List<JSONObject> items = this.delegate.queryByIds(missIds);
+        for (JSONObject item : items) {
+            results.add(this.put(this.buildCacheKey(item), item).getEntityJson());
+        }
+        log.debug("Cache hit: {}, {}/{}", this.delegate.getEntityDefinition().table(), cachedMap.size(), ids.size());
+        return results;
     }
 
     @Override
     public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
         return this.delegate.query(queryBuilder, sort, from, size);
     }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        List<JSONObject> items = this.delegate.claim(queryBuilder, sort, size, leaseField, now, leaseUntil);
+        for (JSONObject item : items) {
+            this.cache.invalidate(this.buildCacheKey(item));
+        }
+        return items;
+    }
 }
@@ -0,0 +1,106 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.util.CacheUtils;
+import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * One cached entity row, held either as a JSON tree or, when compact, as serialized JSON bytes.
+ * <p>
+ * The first typed read replaces the JSON tree with the immutable entity record, so later hits return the
+ * record itself and the JSON form is only rebuilt for callers that still need it.
+ * The weight is estimated once on creation so the cache weigher stays cheap.
+ *
+ * @author Bugee
+ */
+public final class CachedEntity {
+
+    private final byte[] body;
+
+    private final int weight;
+
+    private volatile JSONObject entityJson;
+
+    private volatile Object entity;
+
+    private CachedEntity(JSONObject entityJson, byte[] body, int weight) {
+        this.entityJson = entityJson;
+        this.body = body;
+        this.weight = weight;
+    }
+
+    public static CachedEntity of(JSONObject entityJson, boolean compact) {
+        if (compact) {
+            byte[] body = XDataUtils.toJSONBytes(entityJson);
+            return new CachedEntity(null, body, 16 + CacheUtils.sizeOf(body));
+        }
+        return new CachedEntity(entityJson, null, 16 + CacheUtils.sizeOf(entityJson));
+    }
+
+    /**
+     * Weigh an entry by its estimated memory in bytes, including the key.
+     */
+    public static int weigh(String key, CachedEntity cachedEntity) {
+        return CacheUtils.sizeOf(key) + cachedEntity.weight;
+    }
+
+    /**
+     * A JSON copy the caller may modify without touching the cached entry.
+     */
+    public JSONObject getEntityJson() {
+        if (this.body != null) {
+            return XDataUtils.parse(this.body, JSONObject.class);
+        }
+        JSONObject current = this.entityJson;
+        if (current != null) {
+            return (JSONObject) deepCopy(current);
+        }
+        // the entity is always set before the JSON tree is dropped
+        return XDataUtils.copy(this.entity, JSONObject.class);
+    }
+
+    /**
+     * Copy nested objects and arrays too, JSON_OBJECT and JSON_ARRAY columns would otherwise stay shared with the cache.
+     */
+    private static Object deepCopy(Object value) {
+        if (value instanceof JSONObject jsonObject) {
+            JSONObject copy = new JSONObject();
+            for (String key : jsonObject.keySet()) {
+                copy.put(key, deepCopy(jsonObject.opt(key)));
+            }
+            return copy;
+        }
+        if (value instanceof JSONArray jsonArray) {
+            JSONArray copy = new JSONArray();
+            for (int i = 0; i < jsonArray.length(); i++) {
+                copy.put(deepCopy(jsonArray.opt(i)));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    public <T> T getEntity(Class<T> entityClass) {
+        if (this.body != null) {
+            // compact entries stay compact and decode straight into the record
+            return XDataUtils.parse(this.body, entityClass);
+        }
+        Object current = this.entity;
+        if (current == null) {
+            JSONObject json = this.entityJson;
+            if (json == null) {
+                current = this.entity;
+            } else {
+                current = XDataUtils.copy(json, entityClass);
+                this.entity = current;
+                this.entityJson = null;
+            }
+        }
+        return entityClass.cast(current);
+    }
+
+    public int getWeight() {
+        return this.weight;
+    }
+}
@@ -0,0 +1,305 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.ColumnType;
+import io.github.siyukio.tools.entity.EntityExecutor;
+import io.github.siyukio.tools.entity.definition.ColumnDefinition;
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.util.AsyncUtils;
+import io.github.siyukio.tools.util.XDataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces counter increments in memory and flushes them periodically.
+ * <p>
+ * Increments of the same row and field are summed until the next flush, which writes
+ * one statement per field. Reads add the pending deltas so callers see their own increments.
+ * <p>
+ * Full-row writes (update, updateBatch, upsert) first write the pending deltas of their rows, so a row read with
+ * its pending deltas and written back does not have them counted again.
+ * <p>
+ * Deltas being written stay visible to reads until their UPDATE has committed. A read racing the
+ * move from pending to in-flight, or the moment between commit and clearing, may be off by that delta.
+ * If the UPDATE throws after it actually committed, for example on a lost connection, the deltas are
+ * kept for the next flush and are counted twice.
+ *
+ * @author Bugee
+ */
+@Slf4j
+public class CounterEntityExecutor implements EntityExecutor {
+
+    private final EntityExecutor delegate;
+
+    /**
+     * Field name to pending deltas keyed by id.
+     */
+    private final Map<String, ConcurrentHashMap<String, Long>> pendingMap = new ConcurrentHashMap<>();
+
+    /**
+     * Field name to deltas keyed by id whose UPDATE has not committed yet.
+     */
+    private final Map<String, Map<String, Long>> inFlightMap = new ConcurrentHashMap<>();
+
+    private final Map<String, ColumnType> counterTypeMap = new HashMap<>();
+
+    private final ScheduledFuture<?> flushFuture;
+
+    public CounterEntityExecutor(EntityExecutor delegate, long flushInterval) {
+        this.delegate = delegate;
+        for (ColumnDefinition columnDefinition : delegate.getEntityDefinition().columnDefinitions()) {
+            this.counterTypeMap.put(columnDefinition.fieldName(), columnDefinition.type());
+        }
+        this.flushFuture = AsyncUtils.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void flush() {
+        this.pendingMap.forEach((fieldName, pending) -> this.flush(fieldName, pending, pending.keySet()));
+    }
+
+    /**
+     * Write the pending deltas of the rows before a full-row write, which carries the counters as read,
+     * pending deltas included, and would otherwise have them added again by the next flush.
+     */
+    private synchronized void flush(Collection<String> ids) {
+        if (this.pendingMap.isEmpty()) {
+            return;
+        }
+        this.pendingMap.forEach((fieldName, pending) -> this.flush(fieldName, pending, ids));
+    }
+
+    private void flush(String fieldName, ConcurrentHashMap<String, Long> pending, Collection<String> ids) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // remove is atomic, so increments arriving during the flush stay for the next one
+        Map<String, Long> deltas = new ConcurrentHashMap<>();
+        this.inFlightMap.put(fieldName, deltas);
+        Long delta;
+        for (String id : ids) {
+            delta = pending.remove(id);
+            if (delta != null && delta != 0) {
+                deltas.put(id, delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            this.inFlightMap.remove(fieldName);
+            return;
+        }
+        try {
+            this.delegate.increment(fieldName, deltas);
+        } catch (Exception e) {
+            log.error("{}: flush {} counters of {} failed", this.getEntityDefinition().table(), deltas.size(), fieldName, e);
+            // keep the deltas for the next flush
+            deltas.forEach((id, value) -> pending.merge(id, value, Long::sum));
+        } finally {
+            this.inFlightMap.remove(fieldName);
+        }
+    }
+
+    private String getId(JSONObject entityJson) {
+        return entityJson.optString(this.getEntityDefinition().keyDefinition().fieldName());
+    }
+
+    private void flush(JSONObject entityJson) {
+        this.flush(List.of(this.getId(entityJson)));
+    }
+
+    private long getPendingDelta(String fieldName, String id) {
+        long delta = 0;
+        Map<String, Long> inFlight = this.inFlightMap.get(fieldName);
+        if (inFlight != null) {
+            delta += inFlight.getOrDefault(id, 0L);
+        }
+        ConcurrentHashMap<String, Long> pending = this.pendingMap.get(fieldName);
+        if (pending != null) {
+            delta += pending.getOrDefault(id, 0L);
+        }
+        return delta;
+    }
+
+    private boolean hasPending(String id) {
+        for (ConcurrentHashMap<String, Long> pending : this.pendingMap.values()) {
+            if (pending.containsKey(id)) {
+                return true;
+            }
+        }
+        for (Map<String, Long> inFlight : this.inFlightMap.values()) {
+            if (inFlight.containsKey(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private JSONObject addPending(JSONObject entityJson) {
+        if (entityJson == null || this.pendingMap.isEmpty()) {
+            return entityJson;
+        }
+        String id = this.getId(entityJson);
+        JSONObject result = entityJson;
+        long delta;
+        for (String fieldName : this.pendingMap.keySet()) {
+            delta = this.getPendingDelta(fieldName, id);
+            if (delta == 0) {
+                continue;
+            }
+            if (result == entityJson) {
+                // the delegate may return a cached instance, which must stay unchanged
+                result = new JSONObject();
+                for (String key : entityJson.keySet()) {
+                    result.put(key, entityJson.opt(key));
+                }
+            }
+            if (this.counterTypeMap.get(fieldName) == ColumnType.DOUBLE) {
+                result.put(fieldName, result.optDouble(fieldName, 0) + delta);
+            } else {
+                result.put(fieldName, result.optLong(fieldName, 0) + delta);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stop the periodic flush and write all pending increments.
+     */
+    public void destroy() {
+        this.flushFuture.cancel(false);
+        this.flush();
+    }
+
+    @Override
+    public String getMasterKey() {
+        return this.delegate.getMasterKey();
+    }
+
+    @Override
+    public EntityDefinition getEntityDefinition() {
+        return this.delegate.getEntityDefinition();
+    }
+
+    @Override
+    public JSONObject insert(JSONObject entityJson) {
+        return this.delegate.insert(entityJson);
+    }
+
+    @Override
+    public int insertBatch(List<JSONObject> entityJsons) {
+        return this.delegate.insertBatch(entityJsons);
+    }
+
+    @Override
+    public JSONObject update(JSONObject entityJson) {
+        this.flush(entityJson);
+        return this.delegate.update(entityJson);
+    }
+
+    @Override
+    public int updateBatch(List<JSONObject> entityJsons) {
+        this.flush(entityJsons.stream().map(this::getId).toList());
+        return this.delegate.updateBatch(entityJsons);
+    }
+
+    @Override
+    public JSONObject upsert(JSONObject entityJson) {
+        this.flush(entityJson);
+        return this.delegate.upsert(entityJson);
+    }
+
+    @Override
+    public int increment(String fieldName, Map<String, Long> deltas) {
+        ConcurrentHashMap<String, Long> pending = this.pendingMap.computeIfAbsent(fieldName, k -> new ConcurrentHashMap<>());
+        deltas.forEach((id, delta) -> pending.merge(id, delta, Long::sum));
+        return deltas.size();
+    }
+
+    @Override
+    public int delete(Object id) {
+        return this.delegate.delete(id);
+    }
+
+    @Override
+    public void deleteBatch(List<Object> ids) {
+        this.delegate.deleteBatch(ids);
+    }
+
+    @Override
+    public int deleteByQuery(QueryBuilder queryBuilder) {
+        return this.delegate.deleteByQuery(queryBuilder);
+    }
+
+    @Override
+    public int count() {
+        return this.delegate.count();
+    }
+
+    @Override
+    public int countByQuery(QueryBuilder queryBuilder) {
+        return this.delegate.countByQuery(queryBuilder);
+    }
+
+    @Override
+    public JSONObject queryById(Object id) {
+        JSONObject entityJson = this.delegate.queryById(id);
+        return this.addPending(entityJson);
+    }
+
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        if (this.hasPending(String.valueOf(id))) {
+            JSONObject entityJson = this.queryById(id);
+            return entityJson == null ? null : XDataUtils.copy(entityJson, entityClass);
+        }
+        // nothing pending, so the delegate's record is already current
+        return this.delegate.queryById(id, entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        List<JSONObject> items = this.delegate.queryByIds(ids);
+        if (this.pendingMap.isEmpty()) {
+            return items;
+        }
+        List<JSONObject> results = new ArrayList<>(items.size());
+        for (JSONObject item : items) {
+            results.add(this.addPending(item));
+        }
+        return results;
+    }
+
+    @Override
+    public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
+        List<JSONObject> items = this.delegate.query(queryBuilder, sort, from, size);
+        if (this.pendingMap.isEmpty()) {
+            return items;
+        }
+        List<JSONObject> results = new ArrayList<>(items.size());
+        for (JSONObject item : items) {
+            results.add(this.addPending(item));
+        }
+        return results;
+    }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        List<JSONObject> items = this.delegate.claim(queryBuilder, sort, size, leaseField, now, leaseUntil);
+        if (this.pendingMap.isEmpty()) {
+            return items;
+        }
+        List<JSONObject> results = new ArrayList<>(items.size());
+        for (JSONObject item : items) {
+            results.add(this.addPending(item));
+        }
+        return results;
+    }
+}
@@ -4,16 +4,25 @@ import io.github.siyukio.tools.entity.EntityConstants;
 import io.github.siyukio.tools.entity.EntityExecutor;
 import io.github.siyukio.tools.entity.definition.ColumnDefinition;
 import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.query.BoolQueryBuilder;
 import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.query.TermQueryBuilder;
+import io.github.siyukio.tools.entity.query.TermsQueryBuilder;
 import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.util.AsyncUtils;
 import io.github.siyukio.tools.util.CryptoUtils;
+import io.github.siyukio.tools.util.EntityUtils;
+import io.github.siyukio.tools.util.XDataUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * @author Bugee
@@ -21,18 +30,185 @@ import java.util.List;
 @Slf4j
 public class CryptoEntityExecutor implements EntityExecutor {
 
+    /**
+     * Maximum number of idle HMAC instances kept per key.
+     */
+    private final static int HMAC_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * Result sets of at least this size are decrypted in parallel.
+     */
+    private final static int PARALLEL_DECRYPT_THRESHOLD = 256;
+
+    /**
+     * Rows decrypted by one virtual thread when decrypting in parallel.
+     */
+    private final static int PARALLEL_DECRYPT_CHUNK_SIZE = 64;
+
+    /**
+     * Format version written as the first byte of a packed payload.
+     */
+    private final static byte PACKED_PAYLOAD_VERSION = 1;
+
     private final EntityExecutor delegate;
 
     private final List<ColumnDefinition> encryptedColumns = new ArrayList<>();
 
+    private final String keyInfo;
+
+    /**
+     * Per-row keys are derived from random salts, so the master key is what gets reused.
+     */
+    private final CryptoUtils.HmacSha256Pool masterKeyPool;
+
+    /**
+     * Encrypted field name to its blind index field name.
+     */
+    private final Map<String, String> blindIndexFieldMap = new HashMap<>();
+
+    private final CryptoUtils.HmacSha256Pool blindIndexKeyPool;
+
+    private final boolean packedEncryption;
+
     public CryptoEntityExecutor(EntityExecutor delegate) {
         this.delegate = delegate;
         String key = delegate.getMasterKey();
         Assert.hasText(key, EntityConstants.ERROR_ENCRYPTION_KEY_MISSING);
+        byte[] masterKeyBytes = Base64.getDecoder().decode(key);
+        this.masterKeyPool = new CryptoUtils.HmacSha256Pool(masterKeyBytes, HMAC_POOL_SIZE);
+        this.keyInfo = delegate.getEntityDefinition().keyInfo();
+        this.packedEncryption = delegate.getEntityDefinition().packedEncryption();
         for (ColumnDefinition columnDefinition : this.getEntityDefinition().columnDefinitions()) {
             if (columnDefinition.encrypted()) {
                 this.encryptedColumns.add(columnDefinition);
+                if (columnDefinition.blindIndex()) {
+                    this.blindIndexFieldMap.put(columnDefinition.fieldName(),
+                            EntityUtils.getBlindIndexFieldName(columnDefinition.columnName()));
+                }
+            }
+        }
+        // Blind indexes use one key per entity so equal plaintexts hash equally across rows
+        byte[] blindIndexSalt = EntityConstants.BLIND_INDEX_SUFFIX.getBytes(StandardCharsets.UTF_8);
+        byte[] blindIndexKeyBytes = CryptoUtils.deriveKey(this.masterKeyPool, blindIndexSalt, this.keyInfo);
+        this.blindIndexKeyPool = new CryptoUtils.HmacSha256Pool(blindIndexKeyBytes, HMAC_POOL_SIZE);
+    }
+
+    private String blindIndex(Object plainValue) {
+        String normalized = String.valueOf(plainValue).trim().toLowerCase(Locale.ROOT);
+        return CryptoUtils.hmacSha256(this.blindIndexKeyPool, normalized);
+    }
+
+    /**
+     * Rewrite term and terms queries on blind-indexed fields into lookups on their companion columns.
+     */
+    private QueryBuilder toBlindIndexQuery(QueryBuilder queryBuilder) {
+        if (queryBuilder == null || this.blindIndexFieldMap.isEmpty()) {
+            return queryBuilder;
+        }
+        return switch (queryBuilder) {
+            case TermQueryBuilder termQueryBuilder -> {
+                String blindIndexField = this.blindIndexFieldMap.get(termQueryBuilder.getFieldName());
+                if (blindIndexField == null) {
+                    yield termQueryBuilder;
+                }
+                yield new TermQueryBuilder(blindIndexField, this.blindIndex(termQueryBuilder.getValue()));
+            }
+            case TermsQueryBuilder termsQueryBuilder -> {
+                String blindIndexField = this.blindIndexFieldMap.get(termsQueryBuilder.getFieldName());
+                if (blindIndexField == null) {
+                    yield termsQueryBuilder;
+                }
+                TermsQueryBuilder blindIndexQuery = new TermsQueryBuilder(blindIndexField);
+                for (Object value : termsQueryBuilder.getValueSet()) {
+                    blindIndexQuery.add(this.blindIndex(value));
+                }
+                yield blindIndexQuery;
+            }
+            case BoolQueryBuilder boolQueryBuilder -> {
+                BoolQueryBuilder blindIndexQuery = new BoolQueryBuilder();
+                boolQueryBuilder.getMustClauses().forEach(clause -> blindIndexQuery.must(this.toBlindIndexQuery(clause)));
+                boolQueryBuilder.getShouldClauses().forEach(clause -> blindIndexQuery.should(this.toBlindIndexQuery(clause)));
+                boolQueryBuilder.getMustNotClauses().forEach(clause -> blindIndexQuery.mustNot(this.toBlindIndexQuery(clause)));
+                yield blindIndexQuery;
+            }
+            default -> queryBuilder;
+        };
+    }
+
+    private byte[] getKeyBytes(String salt) {
+        return CryptoUtils.deriveKey(this.masterKeyPool, Base64.getDecoder().decode(salt), this.keyInfo);
+    }
+
+    /**
+     * Decrypt large result sets in chunks on virtual threads instead of the common ForkJoinPool.
+     */
+    private void decryptAll(List<JSONObject> items) {
+        if (items.size() < PARALLEL_DECRYPT_THRESHOLD) {
+            for (JSONObject item : items) {
+                this.decrypt(item);
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += PARALLEL_DECRYPT_CHUNK_SIZE) {
+            List<JSONObject> chunk = items.subList(from, Math.min(from + PARALLEL_DECRYPT_CHUNK_SIZE, items.size()));
+            futures.add(AsyncUtils.VIRTUAL_EXECUTOR_SERVICE.submit(() -> chunk.forEach(this::decrypt)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Decryption interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Serialize encrypted fields as: version, count, then (name, length, UTF-8 value) per field.
+     */
+    private byte[] pack(JSONObject entityJson) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
+            out.writeByte(PACKED_PAYLOAD_VERSION);
+            out.writeShort(this.encryptedColumns.size());
+            byte[] valueBytes;
+            for (ColumnDefinition encryptedColumn : this.encryptedColumns) {
+                valueBytes = entityJson.optString(encryptedColumn.fieldName(), "").getBytes(StandardCharsets.UTF_8);
+                out.writeUTF(encryptedColumn.fieldName());
+                out.writeInt(valueBytes.length);
+                out.write(valueBytes);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Packing encrypted fields failed", e);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private void unpack(JSONObject entityJson, byte[] packedBytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(packedBytes))) {
+            byte version = in.readByte();
+            if (version != PACKED_PAYLOAD_VERSION) {
+                throw new IllegalArgumentException("Unsupported packed payload version: " + version);
+            }
+            int count = in.readUnsignedShort();
+            String fieldName;
+            byte[] valueBytes;
+            for (int index = 0; index < count; index++) {
+                fieldName = in.readUTF();
+                valueBytes = new byte[in.readInt()];
+                in.readFully(valueBytes);
+                entityJson.put(fieldName, new String(valueBytes, StandardCharsets.UTF_8));
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Unpacking encrypted fields failed", e);
         }
     }
 
@@ -42,16 +218,29 @@ public class CryptoEntityExecutor implements EntityExecutor {
             salt = CryptoUtils.randomSalt();
             entityJson.put(EntityConstants.SALT_COLUMN, salt);
         }
-        String masterKey = this.delegate.getMasterKey();
-        String keyInfo = delegate.getEntityDefinition().keyInfo();
-        byte[] keyBytes = CryptoUtils.deriveKey(masterKey, salt, keyInfo);
+        byte[] keyBytes = this.getKeyBytes(salt);
+
+        if (this.packedEncryption) {
+            byte[] packedBytes = CryptoUtils.encryptBytes(keyBytes, this.pack(entityJson));
+            entityJson.put(EntityConstants.PACKED_PAYLOAD_FIELD, packedBytes);
+        }
 
         String encryptedText;
         String plainText;
+        String blindIndexField;
         for (ColumnDefinition encryptedColumn : this.encryptedColumns) {
             plainText = entityJson.optString(encryptedColumn.fieldName(), "");
-            encryptedText = CryptoUtils.encrypt(keyBytes, plainText);
-            entityJson.put(encryptedColumn.fieldName(), encryptedText);
+            if (this.packedEncryption) {
+                // the value lives in the packed payload only
+                entityJson.put(encryptedColumn.fieldName(), "");
+            } else {
+                encryptedText = CryptoUtils.encrypt(keyBytes, plainText);
+                entityJson.put(encryptedColumn.fieldName(), encryptedText);
+            }
+            blindIndexField = this.blindIndexFieldMap.get(encryptedColumn.fieldName());
+            if (blindIndexField != null) {
+                entityJson.put(blindIndexField, this.blindIndex(plainText));
+            }
         }
     }
 
@@ -65,16 +254,23 @@ public class CryptoEntityExecutor implements EntityExecutor {
             log.warn("{}: {} salt is empty", this.getEntityDefinition().table(), id);
             return;
         }
-        String masterKey = this.delegate.getMasterKey();
-        String keyInfo = delegate.getEntityDefinition().keyInfo();
-        byte[] keyBytes = CryptoUtils.deriveKey(masterKey, salt, keyInfo);
+        byte[] keyBytes = this.getKeyBytes(salt);
 
-        String encryptedText;
-        String plainText;
-        for (ColumnDefinition encryptedColumn : this.encryptedColumns) {
-            encryptedText = entityJson.optString(encryptedColumn.fieldName(), "");
-            plainText = CryptoUtils.decrypt(keyBytes, encryptedText);
-            entityJson.put(encryptedColumn.fieldName(), plainText);
+        Object packed = entityJson.remove(EntityConstants.PACKED_PAYLOAD_FIELD);
+        if (packed instanceof byte[] packedBytes && packedBytes.length > 0) {
+            this.unpack(entityJson, CryptoUtils.decryptBytes(keyBytes, packedBytes));
+        } else {
+            // rows written before packed encryption was enabled
+            String encryptedText;
+            String plainText;
+            for (ColumnDefinition encryptedColumn : this.encryptedColumns) {
+                encryptedText = entityJson.optString(encryptedColumn.fieldName(), "");
+                plainText = CryptoUtils.decrypt(keyBytes, encryptedText);
+                entityJson.put(encryptedColumn.fieldName(), plainText);
+            }
+        }
+        for (String blindIndexField : this.blindIndexFieldMap.values()) {
+            entityJson.remove(blindIndexField);
         }
     }
 
@@ -128,6 +324,11 @@ public class CryptoEntityExecutor implements EntityExecutor {
         return entityJson;
     }
 
+    @Override
+    public int increment(String fieldName, Map<String, Long> deltas) {
+        return this.delegate.increment(fieldName, deltas);
+    }
+
     @Override
     public int delete(Object id) {
         return this.delegate.delete(id);
@@ -140,7 +341,7 @@ public class CryptoEntityExecutor implements EntityExecutor {
 
     @Override
     public int deleteByQuery(QueryBuilder queryBuilder) {
-        return this.delegate.deleteByQuery(queryBuilder);
+        return this.delegate.deleteByQuery(this.toBlindIndexQuery(queryBuilder));
     }
 
     @Override
@@ -150,7 +351,7 @@ public class CryptoEntityExecutor implements EntityExecutor {
 
     @Override
     public int countByQuery(QueryBuilder queryBuilder) {
-        return this.delegate.countByQuery(queryBuilder);
+        return this.delegate.countByQuery(this.toBlindIndexQuery(queryBuilder));
     }
 
     @Override
@@ -160,9 +361,32 @@ public class CryptoEntityExecutor implements EntityExecutor {
         return entityJson;
     }
 
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        JSONObject entityJson = this.queryById(id);
+        if (entityJson == null) {
+            return null;
+        }
+        return XDataUtils.copy(entityJson, entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        List<JSONObject> items = this.delegate.queryByIds(ids);
+        this.decryptAll(items);
+        return items;
+    }
+
     @Override
     public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
-        List<JSONObject> items = this.delegate.query(queryBuilder, sort, from, size);
+        List<JSONObject> items = this.delegate.query(this.toBlindIndexQuery(queryBuilder), sort, from, size);
+        this.decryptAll(items);
+        return items;
+    }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        List<JSONObject> items = this.delegate.claim(this.toBlindIndexQuery(queryBuilder), sort, size, leaseField, now, leaseUntil);
         for (JSONObject item : items) {
             this.decrypt(item);
         }
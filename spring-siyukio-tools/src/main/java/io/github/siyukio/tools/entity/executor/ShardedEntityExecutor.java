@@ -0,0 +1,378 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.EntityConstants;
+import io.github.siyukio.tools.entity.EntityExecutor;
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.definition.ShardDefinition;
+import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.sort.FieldSortBuilder;
+import io.github.siyukio.tools.entity.sort.ListSortBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.entity.sort.SortOrder;
+import io.github.siyukio.tools.util.AsyncUtils;
+import io.github.siyukio.tools.util.XDataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Routes rows to shard executors by a consistent hash of the shard field.
+ * <p>
+ * Writes and lookups that carry the shard field go to one shard. Everything else is sent to all shards
+ * on virtual threads and merged: counts are summed, lists are merge-sorted and then cut to the requested page.
+ * Transactions never span shards.
+ * <p>
+ * When the shard field is not the key, updates and upserts first check every shard for the stored rows,
+ * and a write whose shard field value would move a row to another shard is rejected.
+ *
+ * @author Bugee
+ */
+@Slf4j
+public class ShardedEntityExecutor implements EntityExecutor {
+
+    private final EntityDefinition entityDefinition;
+
+    private final List<EntityExecutor> shards;
+
+    private final String shardField;
+
+    private final boolean shardByKey;
+
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+
+    public ShardedEntityExecutor(EntityDefinition entityDefinition, List<EntityExecutor> shards) {
+        this.entityDefinition = entityDefinition;
+        this.shards = List.copyOf(shards);
+        ShardDefinition shardDefinition = entityDefinition.shardDefinition();
+        this.shardField = shardDefinition.fieldName();
+        this.shardByKey = this.shardField.equals(entityDefinition.keyDefinition().fieldName());
+        List<String> dbNames = shardDefinition.dbNames();
+        for (int index = 0; index < dbNames.size(); index++) {
+            for (int node = 0; node < shardDefinition.virtualNodes(); node++) {
+                this.ring.put(hash(dbNames.get(index) + "#" + node), index);
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche, stable across JVMs.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int shardIndex(Object shardValue) {
+        Map.Entry<Long, Integer> entry = this.ring.ceilingEntry(hash(String.valueOf(shardValue)));
+        if (entry == null) {
+            entry = this.ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    private int shardIndex(JSONObject entityJson) {
+        Object shardValue = entityJson.opt(this.shardField);
+        if (shardValue == null || JSONObject.NULL.equals(shardValue)) {
+            throw new IllegalArgumentException(this.entityDefinition.table() + ": missing shard field " + this.shardField);
+        }
+        return this.shardIndex(shardValue);
+    }
+
+    private EntityExecutor route(JSONObject entityJson) {
+        return this.shards.get(this.shardIndex(entityJson));
+    }
+
+    /**
+     * Reject writes whose shard field differs from the stored row, which would leave the row on its old shard.
+     */
+    private void checkShardUnchanged(List<JSONObject> entityJsons) {
+        if (this.shardByKey) {
+            return;
+        }
+        String keyField = this.entityDefinition.keyDefinition().fieldName();
+        Map<String, Integer> targetMap = new HashMap<>();
+        Object id;
+        for (JSONObject entityJson : entityJsons) {
+            id = entityJson.opt(keyField);
+            if (id != null && !JSONObject.NULL.equals(id)) {
+                targetMap.put(String.valueOf(id), this.shardIndex(entityJson));
+            }
+        }
+        if (targetMap.isEmpty()) {
+            return;
+        }
+        List<List<JSONObject>> storedList = this.scatter(shard -> shard.queryByIds(targetMap.keySet()));
+        Integer target;
+        for (int index = 0; index < storedList.size(); index++) {
+            for (JSONObject stored : storedList.get(index)) {
+                target = targetMap.get(stored.optString(keyField));
+                if (target != null && target != index) {
+                    throw new IllegalArgumentException(String.format(EntityConstants.ERROR_SHARD_FIELD_CHANGED_FORMAT,
+                            this.entityDefinition.table(), this.shardField, stored.optString(keyField)));
+                }
+            }
+        }
+    }
+
+    private <E> Map<Integer, List<E>> groupByShard(Collection<E> items, Function<E, Object> shardValue) {
+        Map<Integer, List<E>> groupMap = new HashMap<>();
+        for (E item : items) {
+            groupMap.computeIfAbsent(this.shardIndex(shardValue.apply(item)), k -> new ArrayList<>()).add(item);
+        }
+        return groupMap;
+    }
+
+    private <R> List<R> scatter(Function<EntityExecutor, R> call) {
+        List<Future<R>> futures = new ArrayList<>(this.shards.size());
+        for (EntityExecutor shard : this.shards) {
+            futures.add(AsyncUtils.VIRTUAL_EXECUTOR_SERVICE.submit(() -> call.apply(shard)));
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while querying shards", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new CompletionException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static int sum(List<Integer> values) {
+        int total = 0;
+        for (Integer value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static Comparator<JSONObject> toComparator(SortBuilder sort) {
+        List<FieldSortBuilder> fieldSortBuilders = switch (sort) {
+            case FieldSortBuilder fieldSortBuilder -> List.of(fieldSortBuilder);
+            case ListSortBuilder listSortBuilder -> listSortBuilder.getSortBuilderList();
+            default -> List.of();
+        };
+        Comparator<JSONObject> comparator = (a, b) -> 0;
+        for (FieldSortBuilder fieldSortBuilder : fieldSortBuilders) {
+            String fieldName = fieldSortBuilder.getFieldName();
+            boolean desc = fieldSortBuilder.getOrder() == SortOrder.DESC;
+            comparator = comparator.thenComparing((a, b) -> compareValue(a.opt(fieldName), b.opt(fieldName), desc));
+        }
+        return comparator;
+    }
+
+    /**
+     * Same null placement as PostgreSQL: last when ascending, first when descending.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValue(Object a, Object b, boolean desc) {
+        boolean aNull = a == null || JSONObject.NULL.equals(a);
+        boolean bNull = b == null || JSONObject.NULL.equals(b);
+        int result;
+        if (aNull || bNull) {
+            // null sorts as the greatest value
+            result = aNull == bNull ? 0 : (aNull ? 1 : -1);
+        } else if (a instanceof Number aNumber && b instanceof Number bNumber) {
+            result = Double.compare(aNumber.doubleValue(), bNumber.doubleValue());
+        } else if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            result = ((Comparable<Object>) a).compareTo(b);
+        } else {
+            result = a.toString().compareTo(b.toString());
+        }
+        return desc ? -result : result;
+    }
+
+    @Override
+    public String getMasterKey() {
+        return this.shards.getFirst().getMasterKey();
+    }
+
+    @Override
+    public EntityDefinition getEntityDefinition() {
+        return this.entityDefinition;
+    }
+
+    /**
+     * The definitions of the shards, with their own database and schema, in shard order.
+     */
+    public List<EntityDefinition> getShardEntityDefinitions() {
+        return this.shards.stream().map(EntityExecutor::getEntityDefinition).toList();
+    }
+
+    @Override
+    public JSONObject insert(JSONObject entityJson) {
+        return this.route(entityJson).insert(entityJson);
+    }
+
+    @Override
+    public int insertBatch(List<JSONObject> entityJsons) {
+        int num = 0;
+        for (Map.Entry<Integer, List<JSONObject>> entry : this.groupByShard(entityJsons, item -> item.opt(this.shardField)).entrySet()) {
+            num += this.shards.get(entry.getKey()).insertBatch(entry.getValue());
+        }
+        return num;
+    }
+
+    @Override
+    public JSONObject update(JSONObject entityJson) {
+        EntityExecutor shard = this.route(entityJson);
+        this.checkShardUnchanged(List.of(entityJson));
+        return shard.update(entityJson);
+    }
+
+    @Override
+    public int updateBatch(List<JSONObject> entityJsons) {
+        this.checkShardUnchanged(entityJsons);
+        int num = 0;
+        for (Map.Entry<Integer, List<JSONObject>> entry : this.groupByShard(entityJsons, item -> item.opt(this.shardField)).entrySet()) {
+            num += this.shards.get(entry.getKey()).updateBatch(entry.getValue());
+        }
+        return num;
+    }
+
+    @Override
+    public JSONObject upsert(JSONObject entityJson) {
+        EntityExecutor shard = this.route(entityJson);
+        this.checkShardUnchanged(List.of(entityJson));
+        return shard.upsert(entityJson);
+    }
+
+    @Override
+    public int increment(String fieldName, Map<String, Long> deltas) {
+        if (!this.shardByKey) {
+            // rows missing on a shard are simply not updated there
+            return sum(this.scatter(shard -> shard.increment(fieldName, deltas)));
+        }
+        int num = 0;
+        for (Map.Entry<Integer, List<String>> entry : this.groupByShard(deltas.keySet(), id -> id).entrySet()) {
+            Map<String, Long> shardDeltas = new HashMap<>();
+            for (String id : entry.getValue()) {
+                shardDeltas.put(id, deltas.get(id));
+            }
+            num += this.shards.get(entry.getKey()).increment(fieldName, shardDeltas);
+        }
+        return num;
+    }
+
+    @Override
+    public int delete(Object id) {
+        if (this.shardByKey) {
+            return this.shards.get(this.shardIndex(id)).delete(id);
+        }
+        return sum(this.scatter(shard -> shard.delete(id)));
+    }
+
+    @Override
+    public void deleteBatch(List<Object> ids) {
+        if (!this.shardByKey) {
+            this.scatter(shard -> {
+                shard.deleteBatch(ids);
+                return null;
+            });
+            return;
+        }
+        for (Map.Entry<Integer, List<Object>> entry : this.groupByShard(ids, id -> id).entrySet()) {
+            this.shards.get(entry.getKey()).deleteBatch(entry.getValue());
+        }
+    }
+
+    @Override
+    public int deleteByQuery(QueryBuilder queryBuilder) {
+        return sum(this.scatter(shard -> shard.deleteByQuery(queryBuilder)));
+    }
+
+    @Override
+    public int count() {
+        return sum(this.scatter(EntityExecutor::count));
+    }
+
+    @Override
+    public int countByQuery(QueryBuilder queryBuilder) {
+        return sum(this.scatter(shard -> shard.countByQuery(queryBuilder)));
+    }
+
+    @Override
+    public JSONObject queryById(Object id) {
+        if (this.shardByKey) {
+            return this.shards.get(this.shardIndex(id)).queryById(id);
+        }
+        for (JSONObject entityJson : this.scatter(shard -> shard.queryById(id))) {
+            if (entityJson != null) {
+                return entityJson;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        if (this.shardByKey) {
+            return this.shards.get(this.shardIndex(id)).queryById(id, entityClass);
+        }
+        JSONObject entityJson = this.queryById(id);
+        return entityJson == null ? null : XDataUtils.copy(entityJson, entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        List<JSONObject> results = new ArrayList<>(ids.size());
+        if (!this.shardByKey) {
+            this.scatter(shard -> shard.queryByIds(ids)).forEach(results::addAll);
+            return results;
+        }
+        for (Map.Entry<Integer, List<String>> entry : this.groupByShard(ids, id -> id).entrySet()) {
+            results.addAll(this.shards.get(entry.getKey()).queryByIds(entry.getValue()));
+        }
+        return results;
+    }
+
+    @Override
+    public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
+        // every shard may hold the whole page, so each returns its first from + size rows
+        int limit = from + size;
+        List<List<JSONObject>> shardResults = this.scatter(shard -> shard.query(queryBuilder, sort, 0, limit));
+        List<JSONObject> merged = new ArrayList<>();
+        shardResults.forEach(merged::addAll);
+        if (sort != null) {
+            merged.sort(toComparator(sort));
+        }
+        if (from >= merged.size()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(merged.subList(from, Math.min(merged.size(), limit)));
+    }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        // claim shard by shard so no more than size rows are leased, starting at a random shard to spread the load
+        List<JSONObject> results = new ArrayList<>(size);
+        int start = ThreadLocalRandom.current().nextInt(this.shards.size());
+        for (int i = 0; i < this.shards.size() && results.size() < size; i++) {
+            EntityExecutor shard = this.shards.get((start + i) % this.shards.size());
+            results.addAll(shard.claim(queryBuilder, sort, size - results.size(), leaseField, now, leaseUntil));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,285 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.EntityExecutor;
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.definition.WriteBehindDefinition;
+import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buffers single-row inserts and flushes them to the delegate as one batch.
+ * <p>
+ * A single flusher thread drains the bounded queue every flush interval or batch size rows,
+ * so thousands of concurrent callers share one connection and one commit per batch.
+ * When a batch fails its rows are retried one by one, so one bad row only fails its own caller.
+ * <p>
+ * {@link #destroy()} closes the buffer under a write lock that every queueing insert holds a read lock of,
+ * so no row can be queued after the final drain and every awaiting caller is completed.
+ *
+ * @author Bugee
+ */
+@Slf4j
+public class WriteBehindEntityExecutor implements EntityExecutor {
+
+    private final EntityExecutor delegate;
+
+    private final WriteBehindDefinition writeBehindDefinition;
+
+    private final BlockingQueue<PendingInsert> queue;
+
+    private final Thread flushThread;
+
+    private volatile boolean running = true;
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    public WriteBehindEntityExecutor(EntityExecutor delegate, WriteBehindDefinition writeBehindDefinition) {
+        this.delegate = delegate;
+        this.writeBehindDefinition = writeBehindDefinition;
+        this.queue = new ArrayBlockingQueue<>(writeBehindDefinition.capacity());
+        this.flushThread = Thread.ofVirtual()
+                .name("siyukio-write-behind-" + delegate.getEntityDefinition().table())
+                .start(this::flushLoop);
+    }
+
+    private void flushLoop() {
+        int batchSize = this.writeBehindDefinition.batchSize();
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(this.writeBehindDefinition.flushInterval());
+        List<PendingInsert> batch = new ArrayList<>(batchSize);
+        PendingInsert pendingInsert;
+        long deadline;
+        long remaining;
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                pendingInsert = this.queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (pendingInsert == null) {
+                    continue;
+                }
+                batch.add(pendingInsert);
+                // linger until the batch is full or the flush interval has passed
+                deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    this.queue.drainTo(batch, batchSize - batch.size());
+                    remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    pendingInsert = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (pendingInsert == null) {
+                        break;
+                    }
+                    batch.add(pendingInsert);
+                }
+            } catch (InterruptedException e) {
+                // only destroy stops the flusher, otherwise queued callers could be left waiting
+                log.warn("{}: write-behind flusher interrupted", this.getEntityDefinition().table());
+            }
+            this.flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingInsert> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<JSONObject> entityJsons = new ArrayList<>(batch.size());
+        for (PendingInsert pendingInsert : batch) {
+            entityJsons.add(pendingInsert.entityJson());
+        }
+        try {
+            this.delegate.insertBatch(entityJsons);
+            for (PendingInsert pendingInsert : batch) {
+                this.complete(pendingInsert, null);
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.error("{}: write-behind insert failed", this.getEntityDefinition().table(), e);
+                this.complete(batch.getFirst(), e);
+                return;
+            }
+            log.warn("{}: write-behind flush of {} rows failed, retrying row by row", this.getEntityDefinition().table(),
+                    batch.size(), e);
+            for (PendingInsert pendingInsert : batch) {
+                try {
+                    this.delegate.insertBatch(List.of(pendingInsert.entityJson()));
+                    this.complete(pendingInsert, null);
+                } catch (Exception rowException) {
+                    log.error("{}: write-behind insert failed", this.getEntityDefinition().table(), rowException);
+                    this.complete(pendingInsert, rowException);
+                }
+            }
+        }
+    }
+
+    private void complete(PendingInsert pendingInsert, Exception e) {
+        if (pendingInsert.future() == null) {
+            return;
+        }
+        if (e == null) {
+            pendingInsert.future().complete(null);
+        } else {
+            pendingInsert.future().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stop accepting rows and flush everything still queued.
+     */
+    public void destroy() {
+        // waits for inserts that passed the running check to finish queueing
+        this.closeLock.writeLock().lock();
+        try {
+            this.running = false;
+        } finally {
+            this.closeLock.writeLock().unlock();
+        }
+        try {
+            this.flushThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // nothing can be queued any more, complete anything the flusher did not reach
+        List<PendingInsert> batch = new ArrayList<>();
+        this.queue.drainTo(batch);
+        this.flush(batch);
+    }
+
+    @Override
+    public String getMasterKey() {
+        return this.delegate.getMasterKey();
+    }
+
+    @Override
+    public EntityDefinition getEntityDefinition() {
+        return this.delegate.getEntityDefinition();
+    }
+
+    @Override
+    public JSONObject insert(JSONObject entityJson) {
+        CompletableFuture<Void> future = null;
+        JSONObject queuedJson;
+        if (this.writeBehindDefinition.awaitFlush()) {
+            future = new CompletableFuture<>();
+            queuedJson = entityJson;
+        } else {
+            // the caller may modify the returned object before it is flushed
+            queuedJson = new JSONObject();
+            for (String key : entityJson.keySet()) {
+                queuedJson.put(key, entityJson.opt(key));
+            }
+        }
+        this.closeLock.readLock().lock();
+        try {
+            if (!this.running) {
+                return this.delegate.insert(entityJson);
+            }
+            // the flusher keeps draining until destroy holds the write lock, so a full queue cannot block forever
+            this.queue.put(new PendingInsert(queuedJson, future));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing insert", e);
+        } finally {
+            this.closeLock.readLock().unlock();
+        }
+        if (future != null) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+        return entityJson;
+    }
+
+    @Override
+    public int insertBatch(List<JSONObject> entityJsons) {
+        return this.delegate.insertBatch(entityJsons);
+    }
+
+    @Override
+    public JSONObject update(JSONObject entityJson) {
+        return this.delegate.update(entityJson);
+    }
+
+    @Override
+    public int updateBatch(List<JSONObject> entityJsons) {
+        return this.delegate.updateBatch(entityJsons);
+    }
+
+    @Override
+    public JSONObject upsert(JSONObject entityJson) {
+        return this.delegate.upsert(entityJson);
+    }
+
+    @Override
+    public int increment(String fieldName, Map<String, Long> deltas) {
+        return this.delegate.increment(fieldName, deltas);
+    }
+
+    @Override
+    public int delete(Object id) {
+        return this.delegate.delete(id);
+    }
+
+    @Override
+    public void deleteBatch(List<Object> ids) {
+        this.delegate.deleteBatch(ids);
+    }
+
+    @Override
+    public int deleteByQuery(QueryBuilder queryBuilder) {
+        return this.delegate.deleteByQuery(queryBuilder);
+    }
+
+    @Override
+    public int count() {
+        return this.delegate.count();
+    }
+
+    @Override
+    public int countByQuery(QueryBuilder queryBuilder) {
+        return this.delegate.countByQuery(queryBuilder);
+    }
+
+    @Override
+    public JSONObject queryById(Object id) {
+        return this.delegate.queryById(id);
+    }
+
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        return this.delegate.queryById(id, entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        return this.delegate.queryByIds(ids);
+    }
+
+    @Override
+    public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
+        return this.delegate.query(queryBuilder, sort, from, size);
+    }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        return this.delegate.claim(queryBuilder, sort, size, leaseField, now, leaseUntil);
+    }
+
+    private record PendingInsert(JSONObject entityJson, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.siyukio.tools.entity.postgresql;
+
+/**
+ * A row-level change delivered by {@link PgEntityDao#watch()}.
+ *
+ * @param operation the change operation
+ * @param id        the primary key of the changed record
+ * @param entity    the current record, or {@code null} for deletes and unfetched changes
+ * @param <T>       the entity type
+ * @author Bugee
+ */
+public record EntityChange<T>(
+        Operation operation,
+        String id,
+        T entity
+) {
+
+    public enum Operation {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+}
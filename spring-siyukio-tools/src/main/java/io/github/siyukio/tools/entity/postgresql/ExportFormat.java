@@ -0,0 +1,19 @@
+package io.github.siyukio.tools.entity.postgresql;
+
+/**
+ * Output format of {@link PgEntityDao#export}.
+ *
+ * @author Bugee
+ */
+public enum ExportFormat {
+
+    /**
+     * CSV with a header line of field names.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line.
+     */
+    JSON
+}
@@ -0,0 +1,45 @@
+package io.github.siyukio.tools.entity.postgresql;
+
+import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilder;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collects independent read queries of several entities and runs them in one database round trip.
+ * <p>
+ * Register the queries first, call {@link #execute()} once, then read the results from the returned suppliers.
+ * Instances are not thread-safe and can only be executed once.
+ *
+ * @author Bugee
+ */
+public interface MultiQuery {
+
+    /**
+     * Add a list query, see {@link PgEntityDao#queryList(QueryBuilder, SortBuilder, int, int)}.
+     *
+     * @param entityDao    the dao of the queried entity
+     * @param queryBuilder query criteria
+     * @param sort         sort specification
+     * @param from         offset (0-based)
+     * @param size         maximum number of results
+     * @param <T>          the entity type
+     * @return the result, available after {@link #execute()}
+     */
+    <T> Supplier<List<T>> queryList(PgEntityDao<T> entityDao, QueryBuilder queryBuilder, SortBuilder sort, int from, int size);
+
+    /**
+     * Add a count query, see {@link PgEntityDao#queryCount(QueryBuilder)}.
+     *
+     * @param entityDao    the dao of the queried entity
+     * @param queryBuilder query criteria
+     * @return the result, available after {@link #execute()}
+     */
+    Supplier<Integer> queryCount(PgEntityDao<?> entityDao, QueryBuilder queryBuilder);
+
+    /**
+     * Run all added queries, with one round trip per database.
+     */
+    void execute();
+}
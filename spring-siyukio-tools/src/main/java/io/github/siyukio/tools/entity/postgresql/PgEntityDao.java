@@ -1,11 +1,19 @@
 package io.github.siyukio.tools.entity.postgresql;
 
+import io.github.siyukio.tools.api.dto.ListResponse;
+import io.github.siyukio.tools.api.dto.RawJson;
 import io.github.siyukio.tools.entity.page.Page;
 import io.github.siyukio.tools.entity.query.QueryBuilder;
 import io.github.siyukio.tools.entity.sort.SortBuilder;
+import reactor.core.publisher.Flux;
 
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Generic Data Access Object (DAO) interface for PostgreSQL-backed entities.
@@ -61,6 +69,74 @@ public interface PgEntityDao<T> {
      */
     T upsert(T t);
 
+    /**
+     * Add the given delta to a numeric field of a record without reading it first.
+     * <p>
+     * When the entity enables counter coalescing, increments are summed in memory and
+     * written periodically; reads through this DAO include the pending deltas.
+     *
+     * @param id        the primary key or identifier of the record
+     * @param fieldName the numeric field to increment
+     * @param delta     the amount to add (may be negative)
+     */
+    void increment(Object id, String fieldName, long delta);
+
+    /**
+     * Claim up to {@code size} matching records whose lease has expired or was never set, for exclusive processing.
+     * <p>
+     * Rows are selected with {@code FOR UPDATE SKIP LOCKED} and their lease field is set to
+     * now plus {@code leaseDuration} in the same statement, so competing workers never
+     * receive the same record and never wait on each other's locks.
+     *
+     * @param queryBuilder  query criteria (may be {@code null})
+     * @param sort          claim order (may be {@code null})
+     * @param size          maximum number of records to claim
+     * @param leaseField    BIGINT field holding the lease expiry timestamp in milliseconds, {@code null} counts as expired
+     * @param leaseDuration lease duration in milliseconds
+     * @return the claimed records with their new lease (empty list if none)
+     */
+    List<T> claimBatch(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long leaseDuration);
+
+    /**
+     * Wait until a record is inserted into a work queue entity or the timeout elapses.
+     * <p>
+     * Requires {@code @PgEntity(workQueue = true)}. Wake-ups are delivered through LISTEN/NOTIFY,
+     * so callers should claim again after this returns regardless of the result.
+     * Notifications are read by a LISTEN poll that runs once per second, so a wake-up may come
+     * up to about a second after the insert commits.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return {@code true} if woken by an insert, {@code false} on timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the entity is not a work queue
+     */
+    boolean awaitWork(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Subscribe to row-level changes of this entity.
+     * <p>
+     * Requires {@code @PgEntity(changeFeed = true)}. Events carry only the operation and id;
+     * no rows are fetched. All subscribers share one LISTEN connection per database.
+     * A subscriber that falls too far behind receives an overflow error rather than missing
+     * changes silently, and should resubscribe and reload what it tracks.
+     *
+     * @return a hot stream of changes
+     */
+    Flux<EntityChange<T>> watch();
+
+    /**
+     * Subscribe to row-level changes of records matching the provided query.
+     * <p>
+     * Changed rows are fetched in batches with one query per batch that also applies
+     * the query criteria, so inserts and updates are only delivered for matching records.
+     * Deletes cannot be matched against the query and are always delivered.
+     *
+     * @param queryBuilder query criteria (may be {@code null} for all records)
+     * @return a hot stream of changes with the current records attached
+     */
+    Flux<EntityChange<T>> watch(QueryBuilder queryBuilder);
+
     /**
      * Delete a record by its primary key or identifier.
      *
@@ -102,6 +178,41 @@ public interface PgEntityDao<T> {
      */
     T queryById(Object id);
 
+    /**
+     * Start a multi-query that runs independent reads in one round trip per database.
+     * <p>
+     * Queries of any dao can be added, not only of this one.
+     *
+     * @return a new multi-query
+     */
+    MultiQuery multiQuery();
+
+    /**
+     * Query entities by their primary keys in one round trip.
+     * <p>
+     * Cached entities are taken first, only the misses are loaded with a single {@code = ANY(?)} query.
+     *
+     * @param ids primary keys, duplicates and {@code null} values are ignored
+     * @return the found entities keyed by primary key as string, missing ids are absent
+     */
+    Map<String, T> queryByIds(Collection<?> ids);
+
+    /**
+     * Load the entities referenced by a foreign key of the parents and attach them.
+     * <p>
+     * All distinct foreign keys are resolved with one {@link #queryByIds(Collection)} call instead of one
+     * {@code queryById} per parent. The attacher returns the parent to keep, so immutable records can return
+     * a copy with the entity set, e.g. {@code (order, user) -> order.withUser(user)}. The entities of the
+     * returned parents can be passed to another dao to load the next level.
+     *
+     * @param parents    parent objects of any type
+     * @param foreignKey extracts the foreign key from a parent, may return {@code null}
+     * @param attacher   returns the parent with the loaded entity attached, called only for found entities
+     * @param <P>        the parent type
+     * @return the parents in their original order, parents without a found entity are returned unchanged
+     */
+    <P> List<P> attachTo(Collection<P> parents, Function<P, ?> foreignKey, BiFunction<P, T, P> attacher);
+
     /**
      * Query a single entity that matches the provided query criteria.
      * If multiple records match, the implementation may return the first
@@ -179,6 +290,38 @@ public interface PgEntityDao<T> {
      */
     List<T> queryList(int from, int size);
 
+    /**
+     * Query a page of entities rendered as a JSON list response by the database.
+     * <p>
+     * The body is {@code {"items":[...]}} holding only the record components of {@code itemClass}
+     * that map to columns, so no row is mapped in the application. Not available for encrypted entities,
+     * and pending coalesced increments are not included.
+     *
+     * @param queryBuilder query criteria
+     * @param sort         sort specification
+     * @param from         offset (0-based)
+     * @param size         maximum number of results
+     * @param itemClass    the record describing one response item
+     * @param <R>          the response item type
+     * @return the rendered response body
+     */
+    <R> RawJson<ListResponse<R>> queryListJson(QueryBuilder queryBuilder, SortBuilder sort, int from, int size, Class<R> itemClass);
+
+    /**
+     * Export the matching entities to an output stream.
+     * <p>
+     * Rows are streamed with {@code COPY (SELECT ...) TO STDOUT} and never materialized in the application.
+     * Encrypted entities fall back to reading and decrypting page by page, paged by key unless sorted by another field.
+     * Blind-index companion columns and BYTES columns are not exported. The stream is not closed.
+     *
+     * @param queryBuilder query criteria (may be {@code null} for all records)
+     * @param sort         sort specification
+     * @param format       CSV with a header line, or one JSON object per line
+     * @param outputStream the target stream
+     * @return the number of exported rows
+     */
+    long export(QueryBuilder queryBuilder, SortBuilder sort, ExportFormat format, OutputStream outputStream);
+
     /**
      * Count all records in the underlying table for this entity type.
      *
@@ -28,4 +28,16 @@ public @interface PgColumn {
      * @return true if encryption is enabled, false otherwise
      */
     boolean encrypted() default false;
+
+    /**
+     * Flag to maintain a blind index for an encrypted column.
+     * <p>
+     * When true, a keyed HMAC of the normalized (trimmed, lower-cased) plaintext is stored in a
+     * hidden, indexed companion column, and term or terms queries on the field are translated
+     * into equality lookups on that column. Only applies when {@link #encrypted()} is true.
+     * Default is false.
+     *
+     * @return true if the blind index is enabled, false otherwise
+     */
+    boolean blindIndex() default false;
 }
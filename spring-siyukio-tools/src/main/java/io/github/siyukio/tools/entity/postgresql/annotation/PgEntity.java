@@ -23,6 +23,50 @@ public @interface PgEntity {
      */
     CacheConfig cacheConfig() default @CacheConfig;
 
+    /**
+     * Write-behind configuration for buffered single-row inserts.
+     *
+     * @return write-behind configuration
+     */
+    WriteBehindConfig writeBehindConfig() default @WriteBehindConfig;
+
+    /**
+     * Interval in milliseconds at which coalesced counter increments are flushed.
+     * <p>
+     * Set to 0 to apply every increment immediately.
+     *
+     * @return the counter flush interval, defaults to 0 (disabled)
+     */
+    long counterFlushInterval() default 0;
+
+    /**
+     * Whether the table is used as a work queue.
+     * <p>
+     * Creates an insert notification trigger so workers waiting in
+     * {@code PgEntityDao.awaitWork} wake up when new rows arrive.
+     *
+     * @return true if the table is a work queue, defaults to false
+     */
+    boolean workQueue() default false;
+
+    /**
+     * Whether row-level changes are published for {@code PgEntityDao.watch}.
+     * <p>
+     * Creates insert, update and delete notification triggers on the table.
+     *
+     * @return true to publish changes, defaults to false
+     */
+    boolean changeFeed() default false;
+
+    /**
+     * Sharding configuration, disabled unless shard databases are set.
+     * <p>
+     * {@link #dbName()} is ignored for sharded entities.
+     *
+     * @return the shard configuration
+     */
+    ShardConfig shardConfig() default @ShardConfig;
+
     /**
      * Automatically create table if it does not exist.
      *
@@ -109,4 +153,15 @@ public @interface PgEntity {
      * @return contextual information for key derivation
      */
     String keyInfo() default "";
+
+    /**
+     * Whether all encrypted fields are packed into a single encrypted payload.
+     * <p>
+     * When enabled, encrypted fields are serialized together, encrypted once per row
+     * and stored in a hidden bytea column instead of one Base64 ciphertext per column.
+     * Rows written before the option was enabled are still decrypted column by column.
+     *
+     * @return true to pack encrypted fields into one payload
+     */
+    boolean packedEncryption() default false;
 }
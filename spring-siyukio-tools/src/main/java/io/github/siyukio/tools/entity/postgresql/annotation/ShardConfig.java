@@ -0,0 +1,45 @@
+package io.github.siyukio.tools.entity.postgresql.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for spreading an entity across several databases.
+ * <p>
+ * Rows are placed by a consistent hash of the shard field. Every shard holds the full table schema,
+ * partitions and indexes; lookups without the shard field are sent to all shards.
+ *
+ * @author Bugee
+ */
+@Target(value = {ElementType.ANNOTATION_TYPE})
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface ShardConfig {
+
+    /**
+     * Names of the shard databases, supports property placeholders.
+     * <p>
+     * Leave empty to disable sharding. Changing the list moves rows between shards,
+     * which must be migrated separately.
+     *
+     * @return the shard database names, defaults to empty (disabled)
+     */
+    String[] dbNames() default {};
+
+    /**
+     * Field whose value selects the shard.
+     * <p>
+     * Empty string uses the primary key, which also routes queryById to a single shard.
+     *
+     * @return the shard field name, defaults to the primary key
+     */
+    String field() default "";
+
+    /**
+     * Number of points of each database on the hash ring.
+     *
+     * @return the virtual nodes per shard, defaults to 128
+     */
+    int virtualNodes() default 128;
+}
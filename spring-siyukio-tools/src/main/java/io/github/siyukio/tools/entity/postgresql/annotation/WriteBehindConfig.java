@@ -0,0 +1,58 @@
+package io.github.siyukio.tools.entity.postgresql.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for configuring buffered (write-behind) inserts.
+ * <p>
+ * Single-row inserts are queued in memory and flushed as one multi-row insert
+ * once {@link #batchSize()} rows are queued or {@link #flushInterval()} milliseconds have passed.
+ * <p>
+ * Buffered rows are inserted later on the flusher thread, outside the caller's transaction:
+ * rolling back the caller's transaction does not undo them, and rows still queued are lost
+ * if the process crashes before they are flushed.
+ *
+ * @author Bugee
+ */
+@Target(value = {ElementType.ANNOTATION_TYPE})
+@Retention(value = RetentionPolicy.RUNTIME)
+public @interface WriteBehindConfig {
+
+    /**
+     * Maximum number of rows flushed in one statement.
+     * <p>
+     * Set to 0 to disable write-behind.
+     *
+     * @return the batch size, defaults to 0 (disabled)
+     */
+    int batchSize() default 0;
+
+    /**
+     * Maximum time in milliseconds a queued row waits before being flushed.
+     *
+     * @return the flush interval, defaults to 5 milliseconds
+     */
+    long flushInterval() default 5;
+
+    /**
+     * Maximum number of queued rows.
+     * <p>
+     * Callers block when the queue is full until the flusher catches up.
+     *
+     * @return the queue capacity, defaults to 10000
+     */
+    int capacity() default 10000;
+
+    /**
+     * Whether insert waits until its row has been flushed.
+     * <p>
+     * When false, insert returns as soon as the row is queued; flush errors are only logged
+     * and queued rows are lost if the process dies before they are flushed.
+     *
+     * @return true to wait for the flush, defaults to true
+     */
+    boolean awaitFlush() default true;
+}
@@ -12,9 +12,9 @@ public class RangeQueryBuilder implements QueryBuilder {
 
     private final String fieldName;
 
-    private Number minValue = null;
+    private Object minValue = null;
 
-    private Number maxValue = null;
+    private Object maxValue = null;
 
     private boolean gte = false;
 
@@ -55,4 +55,18 @@ public class RangeQueryBuilder implements QueryBuilder {
         this.maxValue = to;
         return this;
     }
+
+    public RangeQueryBuilder gt(String from) {
+        this.gt = true;
+        this.gte = false;
+        this.minValue = from;
+        return this;
+    }
+
+    public RangeQueryBuilder lt(String to) {
+        this.lt = true;
+        this.lte = false;
+        this.maxValue = to;
+        return this;
+    }
 }
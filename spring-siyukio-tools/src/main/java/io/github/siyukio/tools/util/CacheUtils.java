@@ -1,10 +1,17 @@
 package io.github.siyukio.tools.util;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
 import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Weigher;
 import io.github.siyukio.tools.cache.definition.CacheDefinition;
+import org.json.JSONArray;
+import org.json.JSONObject;
 
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -16,9 +23,22 @@ public abstract class CacheUtils {
     private final static Scheduler EXECUTOR_SERVICE_SCHEDULER = Scheduler.forScheduledExecutorService(AsyncUtils.SINGLE_EXECUTOR_SERVICE);
 
     public static <T> Cache<String, T> createCache(CacheDefinition cacheDefinition) {
+        return createCache(cacheDefinition, null, null);
+    }
+
+    public static <T> Cache<String, T> createCache(CacheDefinition cacheDefinition, Weigher<String, T> weigher) {
+        return createCache(cacheDefinition, weigher, null);
+    }
+
+    /**
+     * Create a cache bounded by maximumWeight when both the definition and a weigher provide one,
+     * otherwise by maximumSize.
+     * <p>
+     * With a loader and refreshAfterWrite, stale entries are reloaded on virtual threads while the old value is served.
+     */
+    public static <T> Cache<String, T> createCache(CacheDefinition cacheDefinition, Weigher<String, T> weigher, CacheLoader<String, T> loader) {
         Caffeine<Object, Object> builder = Caffeine.newBuilder()
                 .scheduler(EXECUTOR_SERVICE_SCHEDULER);
-        builder.maximumSize(cacheDefinition.maximumSize());
         if (cacheDefinition.softValues()) {
             builder.softValues();
         }
@@ -29,10 +49,23 @@ public abstract class CacheUtils {
         if (cacheDefinition.expireAfterWrite() > 0) {
             builder.expireAfterWrite(cacheDefinition.expireAfterWrite(), expireUnit);
         }
-        return builder.build();
+        if (loader == null) {
+            if (cacheDefinition.maximumWeight() > 0 && weigher != null) {
+                return builder.maximumWeight(cacheDefinition.maximumWeight()).weigher(weigher).build();
+            }
+            return builder.maximumSize(cacheDefinition.maximumSize()).build();
+        }
+        if (cacheDefinition.refreshAfterWrite() > 0) {
+            builder.refreshAfterWrite(cacheDefinition.refreshAfterWrite(), expireUnit)
+                    .executor(AsyncUtils.VIRTUAL_EXECUTOR_SERVICE);
+        }
+        if (cacheDefinition.maximumWeight() > 0 && weigher != null) {
+            return builder.maximumWeight(cacheDefinition.maximumWeight()).weigher(weigher).build(loader);
+        }
+        return builder.maximumSize(cacheDefinition.maximumSize()).build(loader);
     }
 
-    public static Cache<String, String> createCache(long maximumSize) {
+    public static <T> Cache<String, T> createCache(long maximumSize) {
         return Caffeine.newBuilder()
                 .scheduler(EXECUTOR_SERVICE_SCHEDULER)
                 .maximumSize(maximumSize)
@@ -40,4 +73,83 @@ public abstract class CacheUtils {
                 .expireAfterWrite(30, TimeUnit.MINUTES)
                 .build();
     }
+
+    /**
+     * Create a size bounded cache whose entries expire at a time chosen per entry.
+     */
+    public static <T> Cache<String, T> createCache(long maximumSize, Expiry<String, T> expiry) {
+        return Caffeine.newBuilder()
+                .scheduler(EXECUTOR_SERVICE_SCHEDULER)
+                .maximumSize(maximumSize)
+                .expireAfter(expiry)
+                .build();
+    }
+
+    /**
+     * Create a cache without a size bound whose entries expire at a time chosen per entry.
+     * <p>
+     * Nothing is evicted early, so only use it for entries that must be kept until they expire.
+     */
+    public static <T> Cache<String, T> createCache(Expiry<String, T> expiry) {
+        return Caffeine.newBuilder()
+                .scheduler(EXECUTOR_SERVICE_SCHEDULER)
+                .expireAfter(expiry)
+                .build();
+    }
+
+    /**
+     * Estimated memory of all values in bytes.
+     * <p>
+     * Weighted caches report the size tracked by Caffeine, others are summed with the weigher.
+     */
+    public static <T> long getWeightedSize(Cache<String, T> cache, Weigher<String, T> weigher) {
+        Optional<Policy.Eviction<String, T>> eviction = cache.policy().eviction();
+        if (eviction.isPresent() && eviction.get().isWeighted()) {
+            return eviction.get().weightedSize().orElse(0);
+        }
+        long weightedSize = 0;
+        for (var entry : cache.asMap().entrySet()) {
+            weightedSize += weigher.weigh(entry.getKey(), entry.getValue());
+        }
+        return weightedSize;
+    }
+
+    /**
+     * Estimated retained heap size of a value in bytes, following 64-bit layouts with compressed oops.
+     */
+    public static int sizeOf(Object value) {
+        return switch (value) {
+            case null -> 0;
+            // object header, hash and coder plus the byte array, two bytes per char unless every char is latin1
+            case String text -> 40 + (isLatin1(text) ? text.length() : text.length() * 2);
+            case byte[] bytes -> 16 + bytes.length;
+            case JSONObject jsonObject -> {
+                // JSONObject wraps a HashMap: table slot plus node per entry
+                int size = 64;
+                for (String key : jsonObject.keySet()) {
+                    size += 36 + sizeOf(key) + sizeOf(jsonObject.opt(key));
+                }
+                yield size;
+            }
+            case JSONArray jsonArray -> {
+                int size = 56;
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    size += 4 + sizeOf(jsonArray.opt(i));
+                }
+                yield size;
+            }
+            case Long ignored -> 24;
+            case Double ignored -> 24;
+            default -> 16;
+        };
+    }
+
+    private static boolean isLatin1(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -7,13 +7,17 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -48,6 +52,13 @@ public abstract class CryptoUtils {
             PrivateKey privateKey = kf.generatePrivate(keySpec);
             log.info("Find ECDSA private key");
             return privateKey;
+        } catch (Exception ignored) {
+        }
+        try {
+            KeyFactory kf = KeyFactory.getInstance("Ed25519");
+            PrivateKey privateKey = kf.generatePrivate(keySpec);
+            log.info("Find Ed25519 private key");
+            return privateKey;
         } catch (Exception ex) {
             KeyFactory kf = KeyFactory.getInstance("RSA");
             PrivateKey privateKey = kf.generatePrivate(keySpec);
@@ -69,6 +80,13 @@ public abstract class CryptoUtils {
             PublicKey key = keyFactory.generatePublic(keySpec);
             log.info("Find ECDSA public key");
             return key;
+        } catch (Exception ignored) {
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("Ed25519");
+            PublicKey key = keyFactory.generatePublic(keySpec);
+            log.info("Find Ed25519 public key");
+            return key;
         } catch (Exception ex) {
             KeyFactory keyFactory = KeyFactory.getInstance("RSA");
             PublicKey key = keyFactory.generatePublic(keySpec);
@@ -116,6 +134,17 @@ public abstract class CryptoUtils {
         log.info("EC Private Key:\n{}", privatePem);
     }
 
+    public static void createEd25519KeyPair() throws Exception {
+        KeyPairGenerator keyGen = KeyPairGenerator.getInstance("Ed25519");
+        KeyPair pair = keyGen.generateKeyPair();
+
+        String publicPem = publicKeyToPem(pair.getPublic());
+        String privatePem = privateKeyToPem(pair.getPrivate());
+
+        log.info("Ed25519 Public Key:\n{}", publicPem);
+        log.info("Ed25519 Private Key:\n{}", privatePem);
+    }
+
     public static String md5(String input) {
         if (!StringUtils.hasText(input)) {
             return "";
@@ -237,6 +266,41 @@ public abstract class CryptoUtils {
      * @throws RuntimeException         on encryption errors
      */
     public static String encrypt(byte[] keyBytes, String plaintext) {
+        byte[] out = encryptBytes(keyBytes, plaintext.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(out);
+    }
+
+    /**
+     * Decrypt ciphertext using AES-GCM with provided key bytes.
+     * <p>
+     * Uses the provided AES key directly without any derivation.
+     * Input format: Base64( iv || ciphertextWithAuthTag )
+     *
+     * @param keyBytes         AES key bytes (16, 24, or 32 bytes for AES-128/192/256)
+     * @param base64CipherText Base64-encoded ciphertext (iv || ciphertext+tag)
+     * @return decrypted plaintext (UTF-8)
+     * @throws IllegalArgumentException if key length is invalid or input is invalid
+     * @throws RuntimeException         on decryption/authentication failure
+     */
+    public static String decrypt(byte[] keyBytes, String base64CipherText) {
+        byte[] all = Base64.getDecoder().decode(base64CipherText);
+        byte[] plain = decryptBytes(keyBytes, all);
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encrypt raw bytes using AES-GCM with provided key bytes.
+     * <p>
+     * Same scheme as {@link #encrypt(byte[], String)} without the Base64 text encoding.
+     * Output format: iv || ciphertextWithAuthTag
+     *
+     * @param keyBytes   AES key bytes (16, 24, or 32 bytes for AES-128/192/256)
+     * @param plainBytes bytes to encrypt
+     * @return iv followed by ciphertext+tag
+     * @throws IllegalArgumentException if key length is invalid
+     * @throws RuntimeException         on encryption errors
+     */
+    public static byte[] encryptBytes(byte[] keyBytes, byte[] plainBytes) {
         if (keyBytes == null || keyBytes.length < 16 || keyBytes.length > 32) {
             throw new IllegalArgumentException("AES key must be 16, 24, or 32 bytes");
         }
@@ -251,59 +315,48 @@ public abstract class CryptoUtils {
             GCMParameterSpec spec = new GCMParameterSpec(128, iv);
             cipher.init(Cipher.ENCRYPT_MODE, key, spec);
 
-            byte[] cipherBytes = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-
-            // Prepend IV to ciphertext (IV || ciphertextWithTag)
-            byte[] out = new byte[iv.length + cipherBytes.length];
+            // Write IV and ciphertext into one buffer (IV || ciphertextWithTag)
+            byte[] out = new byte[iv.length + cipher.getOutputSize(plainBytes.length)];
             System.arraycopy(iv, 0, out, 0, iv.length);
-            System.arraycopy(cipherBytes, 0, out, iv.length, cipherBytes.length);
-
-            return Base64.getEncoder().encodeToString(out);
-        } catch (InvalidKeyException |
+            int length = cipher.doFinal(plainBytes, 0, plainBytes.length, out, iv.length);
+            if (iv.length + length != out.length) {
+                out = Arrays.copyOf(out, iv.length + length);
+            }
+            return out;
+        } catch (InvalidKeyException | ShortBufferException |
                  InvalidAlgorithmParameterException | IllegalBlockSizeException | BadPaddingException e) {
             throw new RuntimeException("AES-GCM encryption failed", e);
         }
     }
 
     /**
-     * Decrypt ciphertext using AES-GCM with provided key bytes.
+     * Decrypt raw bytes produced by {@link #encryptBytes(byte[], byte[])}.
      * <p>
-     * Uses the provided AES key directly without any derivation.
-     * Input format: Base64( iv || ciphertextWithAuthTag )
+     * Input format: iv || ciphertextWithAuthTag
      *
-     * @param keyBytes         AES key bytes (16, 24, or 32 bytes for AES-128/192/256)
-     * @param base64CipherText Base64-encoded ciphertext (iv || ciphertext+tag)
-     * @return decrypted plaintext (UTF-8)
+     * @param keyBytes    AES key bytes (16, 24, or 32 bytes for AES-128/192/256)
+     * @param cipherBytes iv followed by ciphertext+tag
+     * @return decrypted bytes
      * @throws IllegalArgumentException if key length is invalid or input is invalid
      * @throws RuntimeException         on decryption/authentication failure
      */
-    public static String decrypt(byte[] keyBytes, String base64CipherText) {
+    public static byte[] decryptBytes(byte[] keyBytes, byte[] cipherBytes) {
         if (keyBytes == null || keyBytes.length < 16 || keyBytes.length > 32) {
             throw new IllegalArgumentException("AES key must be 16, 24, or 32 bytes");
         }
+        if (cipherBytes.length < 12) {
+            throw new IllegalArgumentException("Invalid cipher text: too short to contain IV");
+        }
 
         try {
-            byte[] all = Base64.getDecoder().decode(base64CipherText);
-            if (all.length < 12) {
-                throw new IllegalArgumentException("Invalid cipher text: too short to contain IV");
-            }
-
-            // Extract IV and ciphertext
-            byte[] iv = new byte[12];
-            System.arraycopy(all, 0, iv, 0, 12);
-            byte[] cipherBytes = new byte[all.length - 12];
-            System.arraycopy(all, 12, cipherBytes, 0, cipherBytes.length);
-
             SecretKeySpec key = new SecretKeySpec(keyBytes, "AES");
 
+            // IV and ciphertext are read in place without copying
             Cipher cipher = TL_AES_GCM_ENCRYPT.get();
-            GCMParameterSpec spec = new GCMParameterSpec(128, iv);
+            GCMParameterSpec spec = new GCMParameterSpec(128, cipherBytes, 0, 12);
             cipher.init(Cipher.DECRYPT_MODE, key, spec);
 
-            byte[] plain = cipher.doFinal(cipherBytes);
-            return new String(plain, StandardCharsets.UTF_8);
-        } catch (IllegalArgumentException e) {
-            throw e;
+            return cipher.doFinal(cipherBytes, 12, cipherBytes.length - 12);
         } catch (Exception e) {
             throw new RuntimeException("AES-GCM decryption failed", e);
         }
@@ -324,33 +377,98 @@ public abstract class CryptoUtils {
      * @throws IllegalArgumentException if keys are invalid
      */
     public static byte[] deriveKey(String masterKey, String salt, String info) {
+        byte[] masterKeyBytes;
+        byte[] saltBytes;
         try {
-            byte[] masterKeyBytes = Base64.getDecoder().decode(masterKey);
-            byte[] saltBytes = Base64.getDecoder().decode(salt);
+            masterKeyBytes = Base64.getDecoder().decode(masterKey);
+            saltBytes = Base64.getDecoder().decode(salt);
+        } catch (Exception e) {
+            throw new RuntimeException("HMAC-SHA256 key derivation failed", e);
+        }
+        return deriveKey(masterKeyBytes, saltBytes, info);
+    }
 
+    /**
+     * Derive a 256-bit encryption key using HMAC-SHA256 from already decoded key material.
+     * <p>
+     * Produces the same key as {@link #deriveKey(String, String, String)} but skips the
+     * Base64 decoding. Callers deriving many keys from one master key should use
+     * {@link #deriveKey(HmacSha256Pool, byte[], String)} instead.
+     *
+     * @param masterKeyBytes decoded master key (at least 128 bits)
+     * @param saltBytes      decoded salt (any length)
+     * @param info           Contextual information for key derivation (UTF-8)
+     * @return 32-byte AES-256 key
+     * @throws IllegalArgumentException if keys are invalid
+     */
+    public static byte[] deriveKey(byte[] masterKeyBytes, byte[] saltBytes, String info) {
+        try {
             if (masterKeyBytes.length < 16) {
                 throw new IllegalArgumentException("Master key must be at least 128 bits");
             }
 
-            // Combine salt and info for context-specific key derivation
-            byte[] saltWithInfo = saltBytes;
-            if (info != null && !info.isEmpty()) {
-                byte[] infoBytes = info.getBytes(StandardCharsets.UTF_8);
-                saltWithInfo = new byte[saltBytes.length + infoBytes.length];
-                System.arraycopy(saltBytes, 0, saltWithInfo, 0, saltBytes.length);
-                System.arraycopy(infoBytes, 0, saltWithInfo, saltBytes.length, infoBytes.length);
-            }
-
             Mac hmac = Mac.getInstance("HmacSHA256");
             SecretKeySpec hmacKey = new SecretKeySpec(masterKeyBytes, "HmacSHA256");
             hmac.init(hmacKey);
 
-            return hmac.doFinal(saltWithInfo);
+            // Combine salt and info for context-specific key derivation
+            hmac.update(saltBytes);
+            if (info != null && !info.isEmpty()) {
+                hmac.update(info.getBytes(StandardCharsets.UTF_8));
+            }
+            return hmac.doFinal();
         } catch (Exception e) {
             throw new RuntimeException("HMAC-SHA256 key derivation failed", e);
         }
     }
 
+    /**
+     * Derive a 256-bit encryption key with a pool keyed by the master key.
+     * <p>
+     * Produces the same key as {@link #deriveKey(byte[], byte[], String)}.
+     *
+     * @param masterKeyPool pool initialized with the decoded master key
+     * @param saltBytes     decoded salt (any length)
+     * @param info          Contextual information for key derivation (UTF-8)
+     * @return 32-byte AES-256 key
+     */
+    public static byte[] deriveKey(HmacSha256Pool masterKeyPool, byte[] saltBytes, String info) {
+        if (info == null || info.isEmpty()) {
+            return masterKeyPool.doFinal(saltBytes);
+        }
+        return masterKeyPool.doFinal(saltBytes, info.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compute a keyed HMAC-SHA256 digest of the given text.
+     * <p>
+     * Deterministic for the same key and text, which makes it suitable as a blind index
+     * for equality lookups on encrypted values.
+     *
+     * @param keyBytes HMAC key bytes
+     * @param text     text to digest (UTF-8)
+     * @return Base64-encoded 256-bit digest
+     * @throws RuntimeException on digest errors
+     */
+    public static String hmacSha256(byte[] keyBytes, String text) {
+        try {
+            Mac hmac = Mac.getInstance("HmacSHA256");
+            hmac.init(new SecretKeySpec(keyBytes, "HmacSHA256"));
+            byte[] digest = hmac.doFinal(text.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("HMAC-SHA256 failed", e);
+        }
+    }
+
+    /**
+     * Same as {@link #hmacSha256(byte[], String)} with a pool keyed by the HMAC key.
+     */
+    public static String hmacSha256(HmacSha256Pool keyPool, String text) {
+        byte[] digest = keyPool.doFinal(text.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
     /**
      * Encrypt plaintext using HMAC-SHA256 derived key with context info.
      * <p>
@@ -388,6 +506,54 @@ public abstract class CryptoUtils {
         return decrypt(keyBytes, base64CipherText);
     }
 
+    /**
+     * A small pool of HmacSHA256 instances initialized with one stable key.
+     * <p>
+     * Instances are borrowed per call rather than bound to a thread, so reuse also works on
+     * virtual threads. At most {@code capacity} idle instances are kept; extra ones are dropped.
+     */
+    public static class HmacSha256Pool {
+        private final SecretKeySpec key;
+        private final BlockingQueue<Mac> idle;
+
+        public HmacSha256Pool(byte[] keyBytes, int capacity) {
+            this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+            this.idle = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private Mac borrow() {
+            Mac hmac = this.idle.poll();
+            if (hmac != null) {
+                return hmac;
+            }
+            try {
+                hmac = Mac.getInstance("HmacSHA256");
+                hmac.init(this.key);
+                return hmac;
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("HMAC-SHA256 not available", e);
+            }
+        }
+
+        /**
+         * Digest the parts in order; the instance is reset by doFinal before it is returned to the pool.
+         */
+        public byte[] doFinal(byte[]... parts) {
+            Mac hmac = this.borrow();
+            for (byte[] part : parts) {
+                hmac.update(part);
+            }
+            // an instance that failed midway is not returned, its state is unknown
+            byte[] digest = hmac.doFinal();
+            this.idle.offer(hmac);
+            return digest;
+        }
+
+        public int idleSize() {
+            return this.idle.size();
+        }
+    }
+
     public static class GcmIvGenerator {
         private static final int THRESHOLD = Integer.MAX_VALUE - 10000000;
         private final AtomicInteger counter = new AtomicInteger();
@@ -52,6 +52,26 @@ public abstract class EntityUtils {
         return removeSuffix(clazz.getSimpleName());
     }
 
+    /**
+     * Get the companion column name holding the blind index of an encrypted column.
+     *
+     * @param columnName the encrypted column name
+     * @return the blind index column name
+     */
+    public static String getBlindIndexColumnName(String columnName) {
+        return columnName + "_" + EntityConstants.BLIND_INDEX_SUFFIX;
+    }
+
+    /**
+     * Get the companion field name holding the blind index of an encrypted column.
+     *
+     * @param columnName the encrypted column name
+     * @return the blind index field name
+     */
+    public static String getBlindIndexFieldName(String columnName) {
+        return snakeToCamel(getBlindIndexColumnName(columnName));
+    }
+
     public static String snakeToCamel(String input) {
         if (input == null || input.isEmpty()) return input;
 
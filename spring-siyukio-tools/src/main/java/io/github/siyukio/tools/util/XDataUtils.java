@@ -4,12 +4,15 @@ import com.agentclientprotocol.sdk.json.AcpJsonMapper;
 import com.agentclientprotocol.sdk.json.JacksonAcpJsonMapper;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.annotation.EnumNaming;
 import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
@@ -28,6 +31,7 @@ import org.springframework.util.PropertyPlaceholderHelper;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
@@ -170,6 +174,51 @@ public abstract class XDataUtils {
         return OBJECT_MAPPER.convertValue(from, toClazz);
     }
 
+    public static TokenBuffer newTokenBuffer() {
+        return new TokenBuffer(OBJECT_MAPPER, false);
+    }
+
+    public static <T> T read(TokenBuffer tokenBuffer, JavaType javaType) {
+        try (JsonParser parser = tokenBuffer.asParser(OBJECT_MAPPER)) {
+            return OBJECT_MAPPER.readerFor(javaType).readValue(parser);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    public static <T> T read(TokenBuffer tokenBuffer, Class<T> toClazz) {
+        return read(tokenBuffer, OBJECT_MAPPER.constructType(toClazz));
+    }
+
+    private static JsonGenerator filter(JsonGenerator generator, TokenFilter tokenFilter) {
+        return new FilteringGeneratorDelegate(generator, tokenFilter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+    }
+
+    /**
+     * Serialize straight to the stream, writing only the tokens the filter includes.
+     * The stream is flushed but left open.
+     */
+    public static void write(OutputStream outputStream, Object from, TokenFilter tokenFilter) throws IOException {
+        JsonGenerator generator = OBJECT_MAPPER.createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (JsonGenerator filtered = filter(generator, tokenFilter)) {
+            OBJECT_MAPPER.writeValue(filtered, from);
+        }
+    }
+
+    public static <T> T copy(Object from, TokenFilter tokenFilter, Class<T> toClazz) {
+        if (from == null) {
+            return null;
+        }
+        TokenBuffer tokenBuffer = newTokenBuffer();
+        try {
+            OBJECT_MAPPER.writeValue(filter(tokenBuffer, tokenFilter), from);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        return read(tokenBuffer, toClazz);
+    }
+
     public static <T> T copy(Object from, JavaType javaType) {
         if (from == null) {
             return null;
@@ -242,6 +291,14 @@ public abstract class XDataUtils {
         }
     }
 
+    public static <T> T parse(byte[] json, Class<T> toClazz) {
+        try {
+            return OBJECT_MAPPER.reader().readValue(json, toClazz);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     public static <O, I, T> T parse(String json, final Class<O> outerClass, final Class<I> innerClass) {
         JavaType type = OBJECT_MAPPER.getTypeFactory().constructParametricType(outerClass, innerClass);
         try {
@@ -271,6 +328,14 @@ public abstract class XDataUtils {
         }
     }
 
+    public static byte[] toJSONBytes(Object from) {
+        try {
+            return OBJECT_MAPPER.writer().writeValueAsBytes(from);
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     public static String toPrettyJSONString(Object from) {
         if (from == null) {
             return "{}";
@@ -0,0 +1,79 @@
+package io.github.siyukio.tools.api;
+
+import io.github.siyukio.tools.api.token.Token;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class ApiInvokerTest {
+
+    public record NameRequest(String name, List<String> tags) {
+    }
+
+    public static class TestApi {
+
+        public String hello(Token token, NameRequest request) {
+            return token.subject() + ":" + request.name() + ":" + request.tags();
+        }
+
+        public int count(int value) {
+            return value + 1;
+        }
+
+        public Object fail(String type) {
+            return switch (type) {
+                case "cast" -> (String) (Object) Integer.valueOf(1);
+                case "error" -> throw new StackOverflowError("deep");
+                default -> throw new IllegalStateException(type);
+            };
+        }
+    }
+
+    private ApiInvoker createApiInvoker(String methodName) {
+        for (Method method : TestApi.class.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                return new ApiInvoker(new TestApi(), method);
+            }
+        }
+        throw new IllegalArgumentException(methodName);
+    }
+
+    @Test
+    void testBind() throws Exception {
+        ApiInvoker apiInvoker = this.createApiInvoker("hello");
+        JSONObject requestBody = new JSONObject("{\"name\": \"Bugee\", \"tags\": [\"a\", \"b\"]}");
+        Token token = Token.builder().subject("1").build();
+        assertEquals("1:Bugee:[a, b]", apiInvoker.invoke(requestBody, "other", token));
+    }
+
+    @Test
+    void testRejectUnboundPrimitive() throws Exception {
+        ApiInvoker apiInvoker = this.createApiInvoker("count");
+        assertThrows(IllegalArgumentException.class, () -> apiInvoker.invoke(null));
+        assertEquals(3, apiInvoker.invoke(null, 2));
+    }
+
+    @Test
+    void testMethodExceptions() {
+        ApiInvoker apiInvoker = this.createApiInvoker("fail");
+
+        InvocationTargetException ex = assertThrows(InvocationTargetException.class, () -> apiInvoker.invoke(null, "state"));
+        assertInstanceOf(IllegalStateException.class, ex.getTargetException());
+
+        // a ClassCastException raised by the api method itself still belongs to the method
+        ex = assertThrows(InvocationTargetException.class, () -> apiInvoker.invoke(null, "cast"));
+        assertInstanceOf(ClassCastException.class, ex.getTargetException());
+
+        assertThrows(StackOverflowError.class, () -> apiInvoker.invoke(null, "error"));
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.siyukio.tools.api.cache;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.siyukio.tools.api.ApiRequest;
+import io.github.siyukio.tools.api.annotation.ApiController;
+import io.github.siyukio.tools.api.annotation.ApiMapping;
+import io.github.siyukio.tools.api.annotation.ApiParameter;
+import io.github.siyukio.tools.api.annotation.Authorization;
+import io.github.siyukio.tools.api.annotation.ResponseCache;
+import io.github.siyukio.tools.api.definition.ApiDefinition;
+import io.github.siyukio.tools.api.definition.ApiDefinitionManager;
+import io.github.siyukio.tools.api.token.Token;
+import io.github.siyukio.tools.cache.definition.CacheDefinition;
+import io.github.siyukio.tools.util.XDataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class ApiResponseCacheTest {
+
+    public record ProductRequest(
+            @ApiParameter(required = false)
+            String name,
+            @ApiParameter(required = false)
+            String category
+    ) {
+    }
+
+    @ApiController
+    public static class ProductController {
+
+        @ApiMapping(path = "/product/user/list", responseCache = @ResponseCache(maximumSize = 100))
+        public JSONObject listUserProduct(ProductRequest request) {
+            return new JSONObject();
+        }
+
+        @ApiMapping(path = "/product/public/list", authorization = @Authorization(state = Authorization.State.DISABLED),
+                responseCache = @ResponseCache(maximumSize = 100))
+        public JSONObject listPublicProduct(ProductRequest request) {
+            return new JSONObject();
+        }
+
+        @ApiMapping(path = "/product/header/list", responseCache = @ResponseCache(maximumSize = 100))
+        public JSONObject listHeaderProduct(ProductRequest request, ApiRequest apiRequest) {
+            return new JSONObject();
+        }
+    }
+
+    private ApiResponseCache createApiResponseCache(boolean principal) {
+        CacheDefinition cacheDefinition = new CacheDefinition(100, 0, false, TimeUnit.SECONDS,
+                0, 60, 0, false, 0, "");
+        return ApiResponseCache.createApiResponseCache(new ApiDefinition.ResponseCache(cacheDefinition, principal, Set.of()));
+    }
+
+    private TokenBuffer toTokens(String json) throws IOException {
+        TokenBuffer tokenBuffer = XDataUtils.newTokenBuffer();
+        try (JsonParser parser = XDataUtils.OBJECT_MAPPER.createParser(json)) {
+            parser.nextToken();
+            tokenBuffer.copyCurrentStructure(parser);
+        }
+        return tokenBuffer;
+    }
+
+    private Token createToken(String userId) {
+        return new Token(new Token.UserPrincipal(userId, "user-" + userId));
+    }
+
+    private byte[] toBytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Method getMethod(String name) {
+        for (Method method : ProductController.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    void testHit() throws IOException {
+        ApiResponseCache apiResponseCache = this.createApiResponseCache(false);
+        ApiResponseCache.Key key = apiResponseCache.createKey("/product/list", null, this.toTokens("{\"name\": \"a\", \"category\": \"b\"}"));
+        assertNull(apiResponseCache.get(key));
+        CachedResponse cachedResponse = apiResponseCache.put(key, this.toBytes("{\"total\": 1}"));
+
+        // key order does not matter
+        ApiResponseCache.Key sameKey = apiResponseCache.createKey("/product/list", null, this.toTokens("{\"category\": \"b\", \"name\": \"a\"}"));
+        assertEquals(key.value(), sameKey.value());
+        assertSame(cachedResponse, apiResponseCache.get(sameKey));
+
+        ApiResponseCache.Key otherKey = apiResponseCache.createKey("/product/list", null, this.toTokens("{\"name\": \"b\"}"));
+        assertNull(apiResponseCache.get(otherKey));
+        ApiResponseCache.Key otherPathKey = apiResponseCache.createKey("/product/other", null, this.toTokens("{\"name\": \"a\", \"category\": \"b\"}"));
+        assertNull(apiResponseCache.get(otherPathKey));
+    }
+
+    @Test
+    void testPrincipal() throws IOException {
+        ApiResponseCache apiResponseCache = this.createApiResponseCache(true);
+        TokenBuffer requestBodyTokens = this.toTokens("{\"name\": \"a\"}");
+        ApiResponseCache.Key key1 = apiResponseCache.createKey("/product/list", this.createToken("1"), requestBodyTokens);
+        ApiResponseCache.Key key2 = apiResponseCache.createKey("/product/list", this.createToken("2"), requestBodyTokens);
+        assertNotEquals(key1.value(), key2.value());
+
+        apiResponseCache.put(key1, this.toBytes("{\"owner\": \"1\"}"));
+        assertNull(apiResponseCache.get(key2));
+        assertNotNull(apiResponseCache.get(apiResponseCache.createKey("/product/list", this.createToken("1"), requestBodyTokens)));
+    }
+
+    @Test
+    void testNotModified() throws IOException {
+        ApiResponseCache apiResponseCache = this.createApiResponseCache(false);
+        ApiResponseCache.Key key = apiResponseCache.createKey("/product/list", null, this.toTokens("{}"));
+        CachedResponse cachedResponse = apiResponseCache.put(key, this.toBytes("{\"total\": 1}"));
+        String etag = cachedResponse.etag();
+        log.info("etag: {}", etag);
+
+        assertTrue(cachedResponse.matches(etag));
+        assertTrue(cachedResponse.matches("W/" + etag));
+        assertTrue(cachedResponse.matches("\"other\", " + etag));
+        assertTrue(cachedResponse.matches("*"));
+        assertFalse(cachedResponse.matches("\"other\""));
+        assertFalse(cachedResponse.matches(null));
+
+        // a changed body gets another tag
+        CachedResponse changed = apiResponseCache.put(key, this.toBytes("{\"total\": 2}"));
+        assertFalse(changed.matches(etag));
+    }
+
+    @Test
+    void testInvalidation() throws IOException {
+        ApiResponseCache apiResponseCache = this.createApiResponseCache(false);
+        TokenBuffer requestBodyTokens = this.toTokens("{\"name\": \"a\"}");
+        ApiResponseCache.Key key = apiResponseCache.createKey("/product/list", null, requestBodyTokens);
+        apiResponseCache.put(key, this.toBytes("{\"total\": 1}"));
+        assertNotNull(apiResponseCache.get(key));
+
+        apiResponseCache.invalidateAll();
+        assertNull(apiResponseCache.get(key));
+
+        // a response computed before the invalidation is returned but not stored
+        CachedResponse stale = apiResponseCache.put(key, this.toBytes("{\"total\": 1}"));
+        assertNotNull(stale);
+        assertNull(apiResponseCache.get(key));
+
+        ApiResponseCache.Key freshKey = apiResponseCache.createKey("/product/list", null, requestBodyTokens);
+        apiResponseCache.put(freshKey, this.toBytes("{\"total\": 2}"));
+        assertNotNull(apiResponseCache.get(freshKey));
+    }
+
+    @Test
+    void testRegistration() {
+        ApiDefinitionManager apiDefinitionManager = new ApiDefinitionManager();
+        // authorized apis are always cached per principal
+        ApiDefinition userDefinition = apiDefinitionManager.addApi(ProductController.class, this.getMethod("listUserProduct"));
+        assertTrue(userDefinition.responseCache().principal());
+
+        ApiDefinition publicDefinition = apiDefinitionManager.addApi(ProductController.class, this.getMethod("listPublicProduct"));
+        assertFalse(publicDefinition.responseCache().principal());
+
+        // headers and the query string are not part of the key
+        assertThrows(IllegalArgumentException.class,
+                () -> apiDefinitionManager.addApi(ProductController.class, this.getMethod("listHeaderProduct")));
+    }
+}
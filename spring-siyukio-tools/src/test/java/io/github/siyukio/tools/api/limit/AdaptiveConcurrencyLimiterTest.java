@@ -0,0 +1,91 @@
+package io.github.siyukio.tools.api.limit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiterTest {
+
+    /**
+     * Fill the limit and release every request with the latency.
+     */
+    private void runRound(AdaptiveConcurrencyLimiter limiter, long rttNanos) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+
+    @Test
+    void testRejectBeyondLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20);
+        int limit = limiter.getLimit();
+        assertEquals(10, limit);
+        for (int i = 0; i < limit; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(limit, limiter.getInflight());
+
+        limiter.release(0);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void testGrowAndShrink() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20);
+        long fast = TimeUnit.MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 50; i++) {
+            this.runRound(limiter, fast);
+        }
+        assertEquals(20, limiter.getLimit());
+
+        long slow = TimeUnit.MILLISECONDS.toNanos(20);
+        for (int i = 0; i < 20; i++) {
+            this.runRound(limiter, slow);
+        }
+        log.info("limit after latency rose: {}", limiter.getLimit());
+        assertTrue(limiter.getLimit() < 20);
+        assertTrue(limiter.getLimit() >= 4);
+        assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    void testIdleDoesNotGrow() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20);
+        int limit = limiter.getLimit();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(limit, limiter.getLimit());
+    }
+
+    @Test
+    void testConcurrentRelease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(64);
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10_000; i++) {
+                executorService.submit(() -> {
+                    if (limiter.tryAcquire()) {
+                        limiter.release(TimeUnit.MICROSECONDS.toNanos(100));
+                    }
+                });
+            }
+        }
+        assertEquals(0, limiter.getInflight());
+        assertTrue(limiter.getLimit() >= 4 && limiter.getLimit() <= 64);
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.siyukio.tools.api.limit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class RateLimiterTest {
+
+    @Test
+    void testBurstThenRefill() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(10, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire(), "permit " + i);
+        }
+        assertFalse(rateLimiter.tryAcquire());
+
+        Thread.sleep(250);
+        int refilled = 0;
+        while (rateLimiter.tryAcquire()) {
+            refilled++;
+        }
+        log.info("refilled: {}", refilled);
+        assertTrue(refilled >= 1 && refilled <= 3, "refilled " + refilled);
+    }
+
+    @Test
+    void testConcurrentAcquireNeverExceedsBurst() {
+        RateLimiter rateLimiter = new RateLimiter(0.001, 100);
+        AtomicInteger acquired = new AtomicInteger();
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executorService.submit(() -> {
+                    if (rateLimiter.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                });
+            }
+        }
+        assertEquals(100, acquired.get());
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.siyukio.tools.api.parameter.request;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.siyukio.tools.api.ApiException;
+import io.github.siyukio.tools.api.parameter.request.basic.IntegerRequestValidator;
+import io.github.siyukio.tools.api.parameter.request.basic.StringRequestValidator;
+import io.github.siyukio.tools.util.XDataUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class RequestValidatorTest {
+
+    public record Child(int age) {
+    }
+
+    public record Body(String name, Child child) {
+    }
+
+    private RequestValidator createRequestValidator() {
+        RequestValidator name = new BasicRequestValidator(new StringRequestValidator("name", true, 20, null, "body", ""),
+                null, "body", "");
+        RequestValidator tag = new BasicRequestValidator(new StringRequestValidator("tags", true, null, null, "body.tags", ""),
+                null, "body.tags", "");
+        RequestValidator tags = new ArrayRequestValidator("tags", false, tag, 3, null, "body", "");
+        RequestValidator age = new BasicRequestValidator(new IntegerRequestValidator("age", false, 150L, 0L, "body.child", ""),
+                18L, "body.child", "");
+        RequestValidator child = new ObjectRequestValidator("child", false, Map.of("age", age), false, "body", "");
+        return new ObjectRequestValidator("body", true, Map.of("name", name, "tags", tags, "child", child), false, "", "");
+    }
+
+    private JSONObject readBody(RequestValidator requestValidator, String body) {
+        TokenBuffer tokenBuffer = RequestValidator.readBody(requestValidator, body.getBytes(StandardCharsets.UTF_8));
+        return XDataUtils.read(tokenBuffer, JSONObject.class);
+    }
+
+    @Test
+    void testStreamingMatchesTree() {
+        RequestValidator requestValidator = this.createRequestValidator();
+        String body = """
+                {"name": "  Bugee ", "extra": {"deep": [1, 2]}, "tags": ["  a ", "b  ", " c"], "child": {"age": null}}
+                """;
+        JSONObject streamed = this.readBody(requestValidator, body);
+        JSONObject validated = (JSONObject) requestValidator.validate(new JSONObject(body));
+        log.info("streamed: {}, validated: {}", streamed, validated);
+
+        assertEquals("Bugee", streamed.getString("name"));
+        assertFalse(streamed.has("extra"));
+        assertEquals(18, streamed.getJSONObject("child").getInt("age"));
+        assertTrue(streamed.similar(validated));
+    }
+
+    @Test
+    void testPresentFieldsAreNotDefaulted() {
+        RequestValidator requestValidator = this.createRequestValidator();
+        String body = "{\"name\": \"Bugee\", \"child\": {\"age\": 30}}";
+        TokenBuffer tokenBuffer = RequestValidator.readBody(requestValidator, body.getBytes(StandardCharsets.UTF_8));
+        JSONObject streamed = XDataUtils.read(tokenBuffer, JSONObject.class);
+        assertEquals("Bugee", streamed.getString("name"));
+        assertEquals(30, streamed.getJSONObject("child").getInt("age"));
+
+        // each field is written once, a second default would override the client's value on binding
+        assertEquals(30, XDataUtils.read(tokenBuffer, Body.class).child().age());
+
+        // a missing optional field still gets its default, a missing required one is rejected
+        assertEquals(18, this.readBody(requestValidator, "{\"name\": \"x\", \"child\": {}}").getJSONObject("child").getInt("age"));
+        assertThrows(ApiException.class, () -> this.readBody(requestValidator, "{\"child\": {\"age\": 30}}"));
+    }
+
+    @Test
+    void testArrayItemTrimming() {
+        RequestValidator requestValidator = this.createRequestValidator();
+        JSONObject streamed = this.readBody(requestValidator, "{\"name\": \"x\", \"tags\": [\" a\", \"b \", \"\\tc\\n\"]}");
+        assertEquals("a", streamed.getJSONArray("tags").getString(0));
+        assertEquals("b", streamed.getJSONArray("tags").getString(1));
+        assertEquals("c", streamed.getJSONArray("tags").getString(2));
+
+        ApiException apiException = assertThrows(ApiException.class,
+                () -> this.readBody(requestValidator, "{\"name\": \"x\", \"tags\": [\"a\", \"b\", \"c\", \"d\"]}"));
+        assertEquals(400, apiException.getCode());
+    }
+
+    @Test
+    void testRejectDuplicateKeys() {
+        RequestValidator requestValidator = this.createRequestValidator();
+        ApiException apiException = assertThrows(ApiException.class,
+                () -> this.readBody(requestValidator, "{\"name\": \"admin\", \"name\": \"guest\"}"));
+        assertEquals(400, apiException.getCode());
+        assertTrue(apiException.getMessage().contains("body.name"));
+
+        // null and undeclared values count as well
+        assertThrows(ApiException.class, () -> this.readBody(requestValidator, "{\"name\": null, \"name\": \"guest\"}"));
+        assertThrows(ApiException.class, () -> this.readBody(requestValidator, "{\"name\": \"x\", \"extra\": 1, \"extra\": 2}"));
+        assertThrows(ApiException.class,
+                () -> this.readBody(requestValidator, "{\"name\": \"x\", \"child\": {\"age\": 1, \"age\": 2}}"));
+    }
+
+    @Test
+    void testDefaultReadFallsBackToValidate() throws Exception {
+        RequestValidator upperCase = new RequestValidator() {
+            @Override
+            public String getName() {
+                return "upperCase";
+            }
+
+            @Override
+            public boolean isRequired() {
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T validate(T value) {
+                return (T) value.toString().toUpperCase();
+            }
+
+            @Override
+            public boolean canStream(JsonToken token) {
+                return true;
+            }
+        };
+        TokenBuffer tokenBuffer = XDataUtils.newTokenBuffer();
+        try (JsonParser parser = XDataUtils.OBJECT_MAPPER.createParser("\" abc \"")) {
+            parser.nextToken();
+            upperCase.read(parser, tokenBuffer);
+        }
+        assertEquals("ABC", XDataUtils.read(tokenBuffer, String.class));
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.siyukio.tools.api.parameter.response;
+
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class ResponseFilterTest {
+
+    @Test
+    void testResponseFilter() {
+        ResponseFilter itemFilter = new ObjectResponseFilter("items", false, Map.of("id", new BasicResponseFilter("id")));
+        ResponseFilter responseFilter = new ObjectResponseFilter("", false, Map.of(
+                "name", new BasicResponseFilter("name"),
+                "meta", new ObjectResponseFilter("meta", false, Map.of()),
+                "items", new ArrayResponseFilter("items", itemFilter)
+        ));
+        JSONObject value = new JSONObject()
+                .put("name", "siyukio")
+                .put("password", "secret")
+                .put("meta", new JSONObject().put("version", 1))
+                .put("items", new JSONArray().put(new JSONObject().put("id", 1).put("secret", "x")));
+
+        JSONObject resultJson = responseFilter.toJSONObject(value);
+        log.info("{}", resultJson);
+        assertEquals("siyukio", resultJson.optString("name"));
+        assertFalse(resultJson.has("password"));
+        assertTrue(resultJson.optJSONObject("meta").isEmpty());
+        JSONObject item = resultJson.optJSONArray("items").optJSONObject(0);
+        assertEquals(1, item.optInt("id"));
+        assertFalse(item.has("secret"));
+    }
+
+    @Test
+    void testWriteMatchesToJSONObject() throws Exception {
+        ResponseFilter responseFilter = new ObjectResponseFilter("", false, Map.of(
+                "name", new BasicResponseFilter("name"),
+                "tags", new ArrayResponseFilter("tags", new BasicResponseFilter("tags.items"))
+        ));
+        JSONObject value = new JSONObject()
+                .put("name", "siyukio")
+                .put("password", "secret")
+                .put("tags", new JSONArray().put("a").put("b"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        responseFilter.write(value, outputStream);
+        JSONObject writtenJson = new JSONObject(outputStream.toString());
+        assertTrue(writtenJson.similar(responseFilter.toJSONObject(value)));
+        assertFalse(writtenJson.has("password"));
+        assertEquals(2, writtenJson.getJSONArray("tags").length());
+    }
+}
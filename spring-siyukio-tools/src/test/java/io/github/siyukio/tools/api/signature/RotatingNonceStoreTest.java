@@ -0,0 +1,55 @@
+package io.github.siyukio.tools.api.signature;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class RotatingNonceStoreTest {
+
+    @Test
+    void testReplayInSameBucket() {
+        RotatingNonceStore nonceStore = new RotatingNonceStore(Duration.ofMinutes(10), Duration.ofMinutes(1));
+        long now = System.currentTimeMillis();
+        assertTrue(nonceStore.tryUse("a", now));
+        assertFalse(nonceStore.tryUse("a", now));
+        assertTrue(nonceStore.tryUse("b", now));
+        // a replay carries the original timestamp, other buckets do not see the nonce
+        assertTrue(nonceStore.tryUse("a", now - Duration.ofMinutes(5).toMillis()));
+        assertEquals(3, nonceStore.size());
+    }
+
+    @Test
+    void testRotateDropsExpiredBuckets() throws InterruptedException {
+        RotatingNonceStore nonceStore = new RotatingNonceStore(Duration.ofMillis(200), Duration.ofMillis(50));
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(nonceStore.tryUse("old-" + i, start));
+        }
+        assertEquals(100, nonceStore.size());
+
+        Thread.sleep(400);
+        long now = System.currentTimeMillis();
+        assertTrue(nonceStore.tryUse("new", now));
+        assertEquals(1, nonceStore.size());
+        assertFalse(nonceStore.tryUse("new", now));
+    }
+
+    @Test
+    void testKeepBucketsInsideWindow() throws InterruptedException {
+        RotatingNonceStore nonceStore = new RotatingNonceStore(Duration.ofSeconds(10), Duration.ofMillis(50));
+        long start = System.currentTimeMillis();
+        assertTrue(nonceStore.tryUse("a", start));
+        Thread.sleep(200);
+        // several buckets have rotated by, the nonce is still inside the window
+        assertTrue(nonceStore.tryUse("b", System.currentTimeMillis()));
+        assertFalse(nonceStore.tryUse("a", start));
+        assertEquals(2, nonceStore.size());
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.siyukio.tools.api.signature;
+
+import io.github.siyukio.tools.api.ApiException;
+import io.github.siyukio.tools.util.CryptoUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class SignatureProviderTest {
+
+    private final SignatureProvider signatureProvider = new SignatureProvider("siyukio", Duration.ofMinutes(30), null);
+
+    private void validate(long timestamp, String nonce) {
+        this.signatureProvider.validate(timestamp, nonce, this.signatureProvider.createSignature(timestamp, nonce));
+    }
+
+    @Test
+    void testFutureSkew() {
+        long now = System.currentTimeMillis();
+        this.validate(now + Duration.ofMinutes(4).toMillis(), UUID.randomUUID().toString());
+
+        ApiException apiException = assertThrows(ApiException.class,
+                () -> this.validate(now + Duration.ofMinutes(6).toMillis(), UUID.randomUUID().toString()));
+        assertEquals(400, apiException.getCode());
+        assertTrue(apiException.getMessage().contains("future"));
+    }
+
+    @Test
+    void testWindow() {
+        long now = System.currentTimeMillis();
+        this.validate(now - Duration.ofMinutes(29).toMillis(), UUID.randomUUID().toString());
+
+        ApiException apiException = assertThrows(ApiException.class,
+                () -> this.validate(now - Duration.ofMinutes(31).toMillis(), UUID.randomUUID().toString()));
+        assertTrue(apiException.getMessage().contains("expired"));
+    }
+
+    @Test
+    void testReplay() {
+        long now = System.currentTimeMillis();
+        String nonce = UUID.randomUUID().toString();
+        this.validate(now, nonce);
+        ApiException apiException = assertThrows(ApiException.class, () -> this.validate(now, nonce));
+        assertTrue(apiException.getMessage().contains("nonce used"));
+
+        // a forged signature is rejected before the nonce is recorded
+        String fresh = UUID.randomUUID().toString();
+        assertThrows(ApiException.class, () -> this.signatureProvider.validate(now, fresh, "forged"));
+        this.validate(now, fresh);
+    }
+
+    @Test
+    void testHmacSha256() {
+        long now = System.currentTimeMillis();
+        byte[] bodyDigest = SignatureProvider.newBodyDigest().digest("{}".getBytes(StandardCharsets.UTF_8));
+        String canonical = "POST\n/api/test\n" + now + "\nn1\n" + HexFormat.of().formatHex(bodyDigest);
+        byte[] expected = Base64.getDecoder().decode(CryptoUtils.hmacSha256("siyukio".getBytes(StandardCharsets.UTF_8), canonical));
+        String signature = this.signatureProvider.createSignature("post", "/api/test", now, "n1", bodyDigest);
+        assertEquals(HexFormat.of().formatHex(expected), signature);
+        // pooled instances are reset between calls
+        assertEquals(signature, this.signatureProvider.createSignature("post", "/api/test", now, "n1", bodyDigest));
+
+        MessageDigest digest = SignatureProvider.newBodyDigest();
+        digest.update("{}".getBytes(StandardCharsets.UTF_8));
+        this.signatureProvider.validate("POST", "/api/test", now, "n1", digest, signature);
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.siyukio.tools.api.token;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Buddy
+ */
+@Slf4j
+public class TokenProviderTest {
+
+    private TokenProvider createTokenProvider() {
+        return new TokenProvider(null, null, Duration.ofMinutes(30), Duration.ofDays(7), "");
+    }
+
+    @Test
+    void testRevokeBeyondCacheSize() {
+        TokenProvider tokenProvider = this.createTokenProvider();
+        int revoked = 150_000;
+        for (int i = 0; i < revoked; i++) {
+            tokenProvider.revoke("jti-" + i);
+        }
+        for (int i = 0; i < revoked; i++) {
+            assertTrue(tokenProvider.isRevoked("jti-" + i), "jti-" + i);
+        }
+        assertFalse(tokenProvider.isRevoked("jti-" + revoked));
+    }
+
+    @Test
+    void testRevokeUntil() throws InterruptedException {
+        TokenProvider tokenProvider = this.createTokenProvider();
+        long now = System.currentTimeMillis();
+        tokenProvider.revoke("short", now + 100);
+        tokenProvider.revoke("long", now + 100);
+        // revoking again keeps the later time
+        tokenProvider.revoke("long", now + 60_000);
+        tokenProvider.revoke("long", now + 100);
+        assertTrue(tokenProvider.isRevoked("short"));
+
+        Thread.sleep(300);
+        assertFalse(tokenProvider.isRevoked("short"));
+        assertTrue(tokenProvider.isRevoked("long"));
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.siyukio.tools.entity.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bugee
+ */
+@Slf4j
+public class CachedEntityTest {
+
+    private JSONObject createRow() {
+        return new JSONObject("""
+                {"id": "a", "profile": {"name": "before", "tags": ["x"]}, "items": [{"count": 1}]}
+                """);
+    }
+
+    private void mutateNested(JSONObject entityJson) {
+        entityJson.getJSONObject("profile").put("name", "after");
+        entityJson.getJSONObject("profile").getJSONArray("tags").put("y");
+        entityJson.getJSONArray("items").getJSONObject(0).put("count", 2);
+        entityJson.getJSONArray("items").put(new JSONObject());
+    }
+
+    @Test
+    void testNestedValuesAreCopied() {
+        for (boolean compact : new boolean[]{false, true}) {
+            CachedEntity cachedEntity = CachedEntity.of(this.createRow(), compact);
+            this.mutateNested(cachedEntity.getEntityJson());
+
+            JSONObject entityJson = cachedEntity.getEntityJson();
+            log.info("compact: {}, {}", compact, entityJson);
+            assertTrue(this.createRow().similar(entityJson), "compact: " + compact);
+        }
+    }
+}
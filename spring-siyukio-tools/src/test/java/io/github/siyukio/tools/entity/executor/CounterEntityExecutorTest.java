@@ -0,0 +1,127 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.util.AsyncUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bugee
+ */
+@Slf4j
+public class CounterEntityExecutorTest {
+
+    private final static long FLUSH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private JSONObject createRow(String id) {
+        JSONObject row = new JSONObject();
+        row.put(MemoryEntityExecutor.KEY_FIELD, id);
+        row.put("views", 10);
+        return row;
+    }
+
+    @Test
+    void testInFlightDeltasStayVisible() throws Exception {
+        EntityDefinition entityDefinition = MemoryEntityExecutor.createEntityDefinition("counter_test", null, FLUSH_INTERVAL, null);
+        CountDownLatch updating = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        MemoryEntityExecutor delegate = new MemoryEntityExecutor(entityDefinition) {
+            @Override
+            public synchronized int increment(String fieldName, Map<String, Long> deltas) {
+                updating.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return super.increment(fieldName, deltas);
+            }
+        };
+        delegate.insert(this.createRow("a"));
+        CounterEntityExecutor executor = new CounterEntityExecutor(delegate, FLUSH_INTERVAL);
+
+        executor.increment("views", Map.of("a", 5L));
+        assertEquals(15, executor.queryById("a").getLong("views"));
+
+        Future<?> flushing = AsyncUtils.VIRTUAL_EXECUTOR_SERVICE.submit(executor::destroy);
+        assertTrue(updating.await(5, TimeUnit.SECONDS));
+        // the UPDATE has not committed, the delta must not disappear from reads
+        assertEquals(15, executor.queryById("a").getLong("views"));
+        executor.increment("views", Map.of("a", 1L));
+        assertEquals(16, executor.queryById("a").getLong("views"));
+
+        commit.countDown();
+        flushing.get(5, TimeUnit.SECONDS);
+        assertEquals(15, delegate.queryById("a").getLong("views"));
+        assertEquals(16, executor.queryById("a").getLong("views"));
+    }
+
+    @Test
+    void testFailedFlushKeepsDeltas() {
+        EntityDefinition entityDefinition = MemoryEntityExecutor.createEntityDefinition("counter_test", null, FLUSH_INTERVAL, null);
+        MemoryEntityExecutor delegate = new MemoryEntityExecutor(entityDefinition) {
+
+            private boolean failed;
+
+            @Override
+            public synchronized int increment(String fieldName, Map<String, Long> deltas) {
+                if (!this.failed) {
+                    this.failed = true;
+                    throw new IllegalStateException("connection lost");
+                }
+                return super.increment(fieldName, deltas);
+            }
+        };
+        delegate.insert(this.createRow("a"));
+        CounterEntityExecutor executor = new CounterEntityExecutor(delegate, FLUSH_INTERVAL);
+
+        executor.increment("views", Map.of("a", 3L));
+        executor.destroy();
+        assertEquals(10, delegate.queryById("a").getLong("views"));
+        assertEquals(13, executor.queryById("a").getLong("views"));
+
+        executor.destroy();
+        assertEquals(13, delegate.queryById("a").getLong("views"));
+        assertEquals(13, executor.queryById("a").getLong("views"));
+    }
+
+    @Test
+    void testReadUpdateFlush() {
+        EntityDefinition entityDefinition = MemoryEntityExecutor.createEntityDefinition("counter_test", null, FLUSH_INTERVAL, null);
+        MemoryEntityExecutor delegate = new MemoryEntityExecutor(entityDefinition);
+        delegate.insert(this.createRow("a"));
+        delegate.insert(this.createRow("b"));
+        CounterEntityExecutor executor = new CounterEntityExecutor(delegate, FLUSH_INTERVAL);
+
+        executor.increment("views", Map.of("a", 5L, "b", 2L));
+        JSONObject row = executor.queryById("a");
+        assertEquals(15, row.getLong("views"));
+        row.put("title", "changed");
+        executor.update(row);
+        assertEquals(15, delegate.queryById("a").getLong("views"));
+        // the other row's delta is still pending
+        assertEquals(10, delegate.queryById("b").getLong("views"));
+
+        executor.destroy();
+        assertEquals(15, delegate.queryById("a").getLong("views"));
+        assertEquals("changed", delegate.queryById("a").getString("title"));
+        assertEquals(12, delegate.queryById("b").getLong("views"));
+
+        executor.increment("views", Map.of("a", 1L, "b", 1L));
+        List<JSONObject> rows = executor.queryByIds(List.of("a", "b"));
+        executor.updateBatch(rows);
+        executor.upsert(executor.queryById("a"));
+        executor.destroy();
+        assertEquals(16, delegate.queryById("a").getLong("views"));
+        assertEquals(13, delegate.queryById("b").getLong("views"));
+    }
+}
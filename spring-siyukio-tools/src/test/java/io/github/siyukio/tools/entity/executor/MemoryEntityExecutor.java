@@ -0,0 +1,218 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.ColumnType;
+import io.github.siyukio.tools.entity.EntityExecutor;
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.definition.KeyDefinition;
+import io.github.siyukio.tools.entity.definition.ShardDefinition;
+import io.github.siyukio.tools.entity.definition.WriteBehindDefinition;
+import io.github.siyukio.tools.entity.query.QueryBuilder;
+import io.github.siyukio.tools.entity.sort.SortBuilder;
+import io.github.siyukio.tools.util.XDataUtils;
+import org.json.JSONObject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * In-memory executor keyed by the id field, used as the delegate of the decorating executors in tests.
+ *
+ * @author Bugee
+ */
+public class MemoryEntityExecutor implements EntityExecutor {
+
+    public final static String KEY_FIELD = "id";
+
+    private final EntityDefinition entityDefinition;
+
+    private final Map<String, JSONObject> rows = new ConcurrentHashMap<>();
+
+    private final AtomicInteger insertBatchCount = new AtomicInteger();
+
+    private final AtomicInteger updateCount = new AtomicInteger();
+
+    /**
+     * Writes of rows matching this predicate fail, and a failing row fails its whole batch.
+     */
+    private volatile Predicate<JSONObject> failOn = entityJson -> false;
+
+    public MemoryEntityExecutor(EntityDefinition entityDefinition) {
+        this.entityDefinition = entityDefinition;
+    }
+
+    public static EntityDefinition createEntityDefinition(String table, WriteBehindDefinition writeBehindDefinition,
+                                                          long counterFlushInterval, ShardDefinition shardDefinition) {
+        KeyDefinition keyDefinition = new KeyDefinition(KEY_FIELD, KEY_FIELD, ColumnType.TEXT, false, "");
+        return new EntityDefinition("", "public", table, "", false, false, false, false, false, "",
+                EntityDefinition.Partition.NONE, keyDefinition, List.of(), List.of(), null, writeBehindDefinition,
+                counterFlushInterval, false, false, shardDefinition);
+    }
+
+    public void setFailOn(Predicate<JSONObject> failOn) {
+        this.failOn = failOn;
+    }
+
+    public Map<String, JSONObject> getRows() {
+        return this.rows;
+    }
+
+    public int getInsertBatchCount() {
+        return this.insertBatchCount.get();
+    }
+
+    public int getUpdateCount() {
+        return this.updateCount.get();
+    }
+
+    private String getId(Object id) {
+        return String.valueOf(id);
+    }
+
+    private void check(JSONObject entityJson) {
+        if (this.failOn.test(entityJson)) {
+            throw new IllegalStateException("write failed: " + entityJson.opt(KEY_FIELD));
+        }
+    }
+
+    @Override
+    public String getMasterKey() {
+        return "";
+    }
+
+    @Override
+    public EntityDefinition getEntityDefinition() {
+        return this.entityDefinition;
+    }
+
+    @Override
+    public JSONObject insert(JSONObject entityJson) {
+        this.check(entityJson);
+        this.rows.put(this.getId(entityJson.get(KEY_FIELD)), new JSONObject(entityJson.toMap()));
+        return entityJson;
+    }
+
+    @Override
+    public synchronized int insertBatch(List<JSONObject> entityJsons) {
+        this.insertBatchCount.incrementAndGet();
+        for (JSONObject entityJson : entityJsons) {
+            this.check(entityJson);
+        }
+        for (JSONObject entityJson : entityJsons) {
+            this.rows.put(this.getId(entityJson.get(KEY_FIELD)), new JSONObject(entityJson.toMap()));
+        }
+        return entityJsons.size();
+    }
+
+    @Override
+    public JSONObject update(JSONObject entityJson) {
+        this.check(entityJson);
+        this.updateCount.incrementAndGet();
+        JSONObject row = this.rows.get(this.getId(entityJson.get(KEY_FIELD)));
+        if (row == null) {
+            return null;
+        }
+        for (String key : entityJson.keySet()) {
+            row.put(key, entityJson.opt(key));
+        }
+        return entityJson;
+    }
+
+    @Override
+    public int updateBatch(List<JSONObject> entityJsons) {
+        int count = 0;
+        for (JSONObject entityJson : entityJsons) {
+            if (this.update(entityJson) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public JSONObject upsert(JSONObject entityJson) {
+        if (this.rows.containsKey(this.getId(entityJson.get(KEY_FIELD)))) {
+            return this.update(entityJson);
+        }
+        return this.insert(entityJson);
+    }
+
+    @Override
+    public synchronized int increment(String fieldName, Map<String, Long> deltas) {
+        this.updateCount.incrementAndGet();
+        int count = 0;
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            JSONObject row = this.rows.get(entry.getKey());
+            if (row != null) {
+                row.put(fieldName, row.optLong(fieldName) + entry.getValue());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int delete(Object id) {
+        return this.rows.remove(this.getId(id)) == null ? 0 : 1;
+    }
+
+    @Override
+    public void deleteBatch(List<Object> ids) {
+        ids.forEach(this::delete);
+    }
+
+    @Override
+    public int deleteByQuery(QueryBuilder queryBuilder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int count() {
+        return this.rows.size();
+    }
+
+    @Override
+    public int countByQuery(QueryBuilder queryBuilder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public JSONObject queryById(Object id) {
+        JSONObject row = this.rows.get(this.getId(id));
+        return row == null ? null : new JSONObject(row.toMap());
+    }
+
+    @Override
+    public <T> T queryById(Object id, Class<T> entityClass) {
+        JSONObject row = this.queryById(id);
+        return row == null ? null : XDataUtils.copy(row, entityClass);
+    }
+
+    @Override
+    public List<JSONObject> queryByIds(Collection<String> ids) {
+        List<JSONObject> items = new ArrayList<>();
+        for (String id : ids) {
+            JSONObject row = this.queryById(id);
+            if (row != null) {
+                items.add(row);
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public List<JSONObject> query(QueryBuilder queryBuilder, SortBuilder sort, int from, int size) {
+        // queries are not evaluated, every row matches
+        List<JSONObject> items = new ArrayList<>();
+        for (JSONObject row : this.rows.values()) {
+            items.add(new JSONObject(row.toMap()));
+        }
+        return items.subList(Math.min(from, items.size()), Math.min(from + size, items.size()));
+    }
+
+    @Override
+    public List<JSONObject> claim(QueryBuilder queryBuilder, SortBuilder sort, int size, String leaseField, long now, long leaseUntil) {
+        throw new UnsupportedOperationException();
+    }
+}
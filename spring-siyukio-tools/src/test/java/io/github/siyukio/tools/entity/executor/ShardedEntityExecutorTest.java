@@ -0,0 +1,110 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.EntityExecutor;
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.definition.ShardDefinition;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bugee
+ */
+@Slf4j
+public class ShardedEntityExecutorTest {
+
+    private final MemoryEntityExecutor shard1;
+
+    private final MemoryEntityExecutor shard2;
+
+    private final ShardedEntityExecutor executor;
+
+    public ShardedEntityExecutorTest() {
+        ShardDefinition shardDefinition = new ShardDefinition(List.of("db1", "db2"), "tenant", 64);
+        EntityDefinition entityDefinition = MemoryEntityExecutor.createEntityDefinition("shard_test", null, 0, shardDefinition);
+        this.shard1 = new MemoryEntityExecutor(entityDefinition.withShard("db1", "public"));
+        this.shard2 = new MemoryEntityExecutor(entityDefinition.withShard("db2", "public"));
+        this.executor = new ShardedEntityExecutor(entityDefinition, List.of(this.shard1, this.shard2));
+    }
+
+    private JSONObject createRow(String id, String tenant) {
+        JSONObject row = new JSONObject();
+        row.put(MemoryEntityExecutor.KEY_FIELD, id);
+        row.put("tenant", tenant);
+        row.put("name", "before");
+        return row;
+    }
+
+    private EntityExecutor holder(String id) {
+        return this.shard1.queryById(id) != null ? this.shard1 : this.shard2;
+    }
+
+    /**
+     * A tenant routed to the other shard than the given row.
+     */
+    private String otherShardTenant(String id) {
+        EntityExecutor current = this.holder(id);
+        for (int i = 0; i < 1000; i++) {
+            String tenant = "tenant-" + i;
+            this.executor.insert(this.createRow("probe", tenant));
+            boolean other = this.holder("probe") != current;
+            this.executor.delete("probe");
+            if (other) {
+                return tenant;
+            }
+        }
+        throw new IllegalStateException("no tenant routed to the other shard");
+    }
+
+    @Test
+    void testUpdateKeepingShardField() {
+        this.executor.insert(this.createRow("a", "tenant-a"));
+        JSONObject row = this.createRow("a", "tenant-a");
+        row.put("name", "after");
+        this.executor.update(row);
+        assertEquals("after", this.executor.queryById("a").getString("name"));
+        assertEquals(1, this.executor.count());
+    }
+
+    @Test
+    void testRejectChangedShardField() {
+        this.executor.insert(this.createRow("a", "tenant-a"));
+        EntityExecutor holder = this.holder("a");
+        String otherTenant = this.otherShardTenant("a");
+
+        JSONObject moved = this.createRow("a", otherTenant);
+        moved.put("name", "after");
+        assertThrows(IllegalArgumentException.class, () -> this.executor.update(moved));
+        assertThrows(IllegalArgumentException.class, () -> this.executor.upsert(moved));
+        assertThrows(IllegalArgumentException.class, () -> this.executor.updateBatch(List.of(this.createRow("a", "tenant-a"), moved)));
+
+        // nothing was written to either shard
+        assertEquals(1, this.executor.count());
+        assertEquals("before", holder.queryById("a").getString("name"));
+        assertEquals("tenant-a", holder.queryById("a").getString("tenant"));
+    }
+
+    @Test
+    void testUpsertNewRow() {
+        this.executor.upsert(this.createRow("b", "tenant-b"));
+        assertNotNull(this.executor.queryById("b"));
+        assertEquals(1, this.executor.count());
+    }
+
+    @Test
+    void testShardEntityDefinitions() {
+        ShardDefinition shardDefinition = new ShardDefinition(List.of("db1", "db2"), "tenant", 64);
+        EntityDefinition entityDefinition = MemoryEntityExecutor.createEntityDefinition("shard_test", null, 0, shardDefinition);
+        ShardedEntityExecutor shardedEntityExecutor = new ShardedEntityExecutor(entityDefinition, List.of(
+                new MemoryEntityExecutor(entityDefinition.withShard("db1", "tenant_a")),
+                new MemoryEntityExecutor(entityDefinition.withShard("db2", "tenant_b"))));
+
+        List<EntityDefinition> shardEntityDefinitions = shardedEntityExecutor.getShardEntityDefinitions();
+        assertEquals(List.of("db1", "db2"), shardEntityDefinitions.stream().map(EntityDefinition::dbName).toList());
+        assertEquals(List.of("tenant_a", "tenant_b"), shardEntityDefinitions.stream().map(EntityDefinition::schema).toList());
+    }
+}
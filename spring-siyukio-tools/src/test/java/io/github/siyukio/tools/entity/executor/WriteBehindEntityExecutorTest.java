@@ -0,0 +1,98 @@
+package io.github.siyukio.tools.entity.executor;
+
+import io.github.siyukio.tools.entity.definition.EntityDefinition;
+import io.github.siyukio.tools.entity.definition.WriteBehindDefinition;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Bugee
+ */
+@Slf4j
+public class WriteBehindEntityExecutorTest {
+
+    private MemoryEntityExecutor createDelegate(WriteBehindDefinition writeBehindDefinition) {
+        EntityDefinition entityDefinition = MemoryEntityExecutor.createEntityDefinition("write_behind_test",
+                writeBehindDefinition, 0, null);
+        return new MemoryEntityExecutor(entityDefinition);
+    }
+
+    private JSONObject createRow(int index) {
+        JSONObject row = new JSONObject();
+        row.put(MemoryEntityExecutor.KEY_FIELD, "row-" + index);
+        row.put("value", index);
+        return row;
+    }
+
+    @Test
+    void testFailedRowOnlyFailsItself() throws Exception {
+        WriteBehindDefinition writeBehindDefinition = new WriteBehindDefinition(100, 50, 1000, true);
+        MemoryEntityExecutor delegate = this.createDelegate(writeBehindDefinition);
+        delegate.setFailOn(row -> row.optInt("value") == 3);
+        WriteBehindEntityExecutor executor = new WriteBehindEntityExecutor(delegate, writeBehindDefinition);
+
+        int rows = 10;
+        List<Future<JSONObject>> futures = new ArrayList<>();
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < rows; i++) {
+                JSONObject row = this.createRow(i);
+                futures.add(executorService.submit(() -> executor.insert(row)));
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            Future<JSONObject> future = futures.get(i);
+            if (i == 3) {
+                ExecutionException e = assertThrows(ExecutionException.class, future::get);
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            } else {
+                assertEquals("row-" + i, future.get().getString(MemoryEntityExecutor.KEY_FIELD));
+            }
+        }
+        assertEquals(rows - 1, delegate.count());
+        assertNull(delegate.queryById("row-3"));
+        executor.destroy();
+    }
+
+    @Test
+    void testDestroyCompletesConcurrentInserts() throws Exception {
+        WriteBehindDefinition writeBehindDefinition = new WriteBehindDefinition(50, 20, 16, true);
+        MemoryEntityExecutor delegate = this.createDelegate(writeBehindDefinition);
+        WriteBehindEntityExecutor executor = new WriteBehindEntityExecutor(delegate, writeBehindDefinition);
+
+        int rows = 2000;
+        List<Future<JSONObject>> futures = new ArrayList<>();
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < rows; i++) {
+                JSONObject row = this.createRow(i);
+                futures.add(executorService.submit(() -> executor.insert(row)));
+                if (i == rows / 2) {
+                    executorService.submit(executor::destroy);
+                }
+            }
+            // no caller may be left waiting on a queued row after destroy
+            for (Future<JSONObject> future : futures) {
+                assertNotNull(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(rows, delegate.count());
+    }
+
+    @Test
+    void testInsertAfterDestroyWritesDirectly() {
+        WriteBehindDefinition writeBehindDefinition = new WriteBehindDefinition(50, 20, 16, true);
+        MemoryEntityExecutor delegate = this.createDelegate(writeBehindDefinition);
+        WriteBehindEntityExecutor executor = new WriteBehindEntityExecutor(delegate, writeBehindDefinition);
+        executor.destroy();
+
+        executor.insert(this.createRow(1));
+        assertEquals(1, delegate.count());
+        assertEquals(0, delegate.getInsertBatchCount());
+    }
+}
@@ -1,8 +1,28 @@
 package io.github.siyukio.tools.util;
 
+import io.github.siyukio.tools.api.token.Token;
+import io.github.siyukio.tools.api.token.TokenProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * @author Buddy
  */
@@ -20,6 +40,43 @@ public class CryptoUtilsTest {
         CryptoUtils.createECKeyPair();
     }
 
+    @Test
+    void testCreateEd25519KeyPair() throws Exception {
+        CryptoUtils.createEd25519KeyPair();
+    }
+
+    @Test
+    void testTokenSignVerifyThroughput() throws Exception {
+        Map<String, String> algorithms = Map.of("RS256", "RSA", "ES256", "EC", "EdDSA", "Ed25519");
+        for (Map.Entry<String, String> entry : algorithms.entrySet()) {
+            KeyPairGenerator keyGen = KeyPairGenerator.getInstance(entry.getValue());
+            if (entry.getValue().equals("RSA")) {
+                keyGen.initialize(2048);
+            } else if (entry.getValue().equals("EC")) {
+                keyGen.initialize(256);
+            }
+            KeyPair pair = keyGen.generateKeyPair();
+            TokenProvider tokenProvider = new TokenProvider("kid-1", pair.getPublic(), pair.getPrivate(), Map.of(),
+                    Duration.ofMinutes(15), Duration.ofDays(1), "");
+            Token token = new Token(new Token.UserPrincipal("123", "Bugee"));
+
+            int count = 2000;
+            List<String> authorizations = new ArrayList<>(count);
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                authorizations.add(tokenProvider.createAuthorization(token));
+            }
+            long signNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String authorization : authorizations) {
+                assertNotNull(tokenProvider.verifyToken(authorization));
+            }
+            long verifyNanos = System.nanoTime() - start;
+            log.info("{}: sign {} ops/s, verify {} ops/s", entry.getKey(),
+                    count * 1_000_000_000L / signNanos, count * 1_000_000_000L / verifyNanos);
+        }
+    }
+
     @Test
     void testCreateMasterKey() throws Exception {
         String masterKey = CryptoUtils.randomMasterKey();
@@ -52,4 +109,79 @@ public class CryptoUtilsTest {
             log.info("encryptedText: {}", encryptedText);
         }
     }
+
+    @Test
+    void testDeriveKeyBytes() throws Exception {
+        String masterKey = CryptoUtils.randomMasterKey();
+        String salt = CryptoUtils.randomSalt();
+        byte[] keyBytes = CryptoUtils.deriveKey(masterKey, salt, "test");
+        byte[] decodedKeyBytes = CryptoUtils.deriveKey(Base64.getDecoder().decode(masterKey), Base64.getDecoder().decode(salt), "test");
+        assertArrayEquals(keyBytes, decodedKeyBytes);
+    }
+
+    @Test
+    void testEncryptBytes() throws Exception {
+        String masterKey = CryptoUtils.randomMasterKey();
+        String salt = CryptoUtils.randomSalt();
+        byte[] keyBytes = CryptoUtils.deriveKey(masterKey, salt, "test");
+        byte[] plainBytes = "hello".getBytes(StandardCharsets.UTF_8);
+        byte[] cipherBytes = CryptoUtils.encryptBytes(keyBytes, plainBytes);
+        assertArrayEquals(plainBytes, CryptoUtils.decryptBytes(keyBytes, cipherBytes));
+        String encryptedText = Base64.getEncoder().encodeToString(cipherBytes);
+        assertEquals("hello", CryptoUtils.decrypt(keyBytes, encryptedText));
+    }
+
+    @Test
+    void testDecryptThroughput() throws Exception {
+        String masterKey = CryptoUtils.randomMasterKey();
+        CryptoUtils.HmacSha256Pool masterKeyPool = new CryptoUtils.HmacSha256Pool(Base64.getDecoder().decode(masterKey), 4);
+        int rows = 10000;
+        String[] salts = new String[rows];
+        String[] encryptedTexts = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            salts[i] = CryptoUtils.randomSalt();
+            encryptedTexts[i] = CryptoUtils.encrypt(masterKey, salts[i], "test", "hello@siyukio.io" + i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            assertEquals("hello@siyukio.io" + i, CryptoUtils.decrypt(masterKey, salts[i], "test", encryptedTexts[i]));
+        }
+        long plainNanos = System.nanoTime() - start;
+
+        // pooled derivation must produce the same keys, from many virtual threads at once
+        AtomicInteger decrypted = new AtomicInteger();
+        start = System.nanoTime();
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                int index = i;
+                futures.add(executorService.submit(() -> {
+                    byte[] keyBytes = CryptoUtils.deriveKey(masterKeyPool, Base64.getDecoder().decode(salts[index]), "test");
+                    assertEquals("hello@siyukio.io" + index, CryptoUtils.decrypt(keyBytes, encryptedTexts[index]));
+                    decrypted.incrementAndGet();
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long pooledNanos = System.nanoTime() - start;
+
+        assertEquals(rows, decrypted.get());
+        assertTrue(masterKeyPool.idleSize() > 0);
+        assertTrue(masterKeyPool.idleSize() <= 4);
+        log.info("decrypt rows/s: {}, with pooled master key rows/s: {}",
+                rows * 1_000_000_000L / plainNanos, rows * 1_000_000_000L / pooledNanos);
+    }
+
+    @Test
+    void testHmacSha256Pool() {
+        byte[] keyBytes = Base64.getDecoder().decode(CryptoUtils.randomMasterKey());
+        CryptoUtils.HmacSha256Pool keyPool = new CryptoUtils.HmacSha256Pool(keyBytes, 2);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(CryptoUtils.hmacSha256(keyBytes, "hello" + i), CryptoUtils.hmacSha256(keyPool, "hello" + i));
+        }
+        assertEquals(1, keyPool.idleSize());
+    }
 }
@@ -130,6 +130,25 @@ public class XDataUtilsTest {
         assertEquals(1, roundTripObject.optJSONObject("meta").optInt("version"));
     }
 
+    @Test
+    void testJsonBytesRoundTrip() {
+        JSONObject jsonObject = new JSONObject()
+                .put("name", "siyukio")
+                .put("count", 42L)
+                .put("meta", new JSONObject().put("version", 1));
+
+        byte[] body = XDataUtils.toJSONBytes(jsonObject);
+        JSONObject roundTripObject = XDataUtils.parse(body, JSONObject.class);
+        assertEquals("siyukio", roundTripObject.optString("name"));
+        assertEquals(42L, roundTripObject.optLong("count"));
+        assertEquals(1, roundTripObject.optJSONObject("meta").optInt("version"));
+        assertTrue(body.length < CacheUtils.sizeOf(jsonObject));
+
+        // strings with a char above latin1 are stored with two bytes per char
+        assertEquals(44, CacheUtils.sizeOf("abcd"));
+        assertEquals(48, CacheUtils.sizeOf("ab\u4e2d\u6587"));
+    }
+
     @Test
     void test() {
         AcpSchemaExt.SessionInfoUpdate sessionInfoUpdate = new AcpSchemaExt.SessionInfoUpdate("session_info_update", "test", "test");